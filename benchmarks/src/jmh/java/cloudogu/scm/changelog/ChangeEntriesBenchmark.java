@@ -0,0 +1,90 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2020-present Cloudogu GmbH and Contributors
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package cloudogu.scm.changelog;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+public class ChangeEntriesBenchmark {
+
+  // versions of the changelog which is validated together with the fragments
+  private static final int CHANGELOG_VERSIONS = 1000;
+
+  @Param({"10", "1000", "50000"})
+  private int fragments;
+
+  private Path directory;
+  private Path packed;
+  private Path changelog;
+
+  @Setup
+  public void setUp() throws IOException {
+    directory = Generator.create().fragments(Files.createTempDirectory("changelog-entries"), fragments);
+    packed = Generator.create().fragments(Files.createTempDirectory("changelog-pack"), fragments);
+    new FragmentPack(packed).pack();
+    changelog = Generator.create().changelog(
+      Files.createTempDirectory("changelog-validate").resolve("CHANGELOG.md"), CHANGELOG_VERSIONS, true
+    );
+  }
+
+  @TearDown
+  public void tearDown() throws IOException {
+    Benchmarks.delete(directory);
+    Benchmarks.delete(packed);
+    Benchmarks.delete(changelog.getParent());
+  }
+
+  @Benchmark
+  public Map<String, List<Changelog.Change>> from() {
+    return new ChangeEntries().from(directory);
+  }
+
+  @Benchmark
+  public Map<String, List<Changelog.Change>> fromPack() {
+    return new ChangeEntries().from(packed);
+  }
+
+  @Benchmark
+  public List<ChangelogValidationError> validate() {
+    return new ChangelogValidator().validate(changelog, directory);
+  }
+}
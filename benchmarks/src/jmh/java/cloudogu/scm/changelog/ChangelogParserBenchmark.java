@@ -0,0 +1,88 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2020-present Cloudogu GmbH and Contributors
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package cloudogu.scm.changelog;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+public class ChangelogParserBenchmark {
+
+  @Param({"10", "1000", "100000"})
+  private int versions;
+
+  private Path directory;
+  private Path changelog;
+
+  @Setup
+  public void setUp() throws IOException {
+    directory = Files.createTempDirectory("changelog-parser");
+    changelog = Generator.create().changelog(directory.resolve("CHANGELOG.md"), versions, true);
+  }
+
+  @TearDown
+  public void tearDown() throws IOException {
+    Benchmarks.delete(directory);
+  }
+
+  @Benchmark
+  public Changelog parse() {
+    return new ChangelogParser().parse(changelog);
+  }
+
+  @Benchmark
+  public String parseLazilyLatestVersion() {
+    return new ChangelogParser().parseLazily(changelog).getVersions().get(0).getNumber();
+  }
+
+  @Benchmark
+  public int parseLazilyVersionCount() {
+    return new ChangelogParser().parseLazily(changelog).getVersions().size();
+  }
+
+  @Benchmark
+  public int parseLazilyWithIndexVersionCount() {
+    return new ChangelogParser().withIndex(true).parseLazily(changelog).getVersions().size();
+  }
+
+  @Benchmark
+  public Changelog.Version extractLatestVersion() {
+    return new ReleaseNotesExtractor(changelog).extract(null).get();
+  }
+}
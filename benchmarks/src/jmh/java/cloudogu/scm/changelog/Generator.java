@@ -0,0 +1,123 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2020-present Cloudogu GmbH and Contributors
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package cloudogu.scm.changelog;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.util.Random;
+
+/**
+ * Generates synthetic changelogs and changelog entry directories of arbitrary size. The generated content is
+ * derived from a fixed seed, so that every run of a benchmark works on the same input.
+ */
+final class Generator {
+
+  private static final String[] TYPES = {"added", "fixed", "changed", "removed", "security"};
+  private static final String[] WORDS = {
+    "repository", "branch", "permission", "commit", "tag", "plugin", "user", "group", "mercurial", "git",
+    "subversion", "import", "export", "hook", "cache", "search", "index", "avatar", "theme", "notification"
+  };
+  private static final LocalDate LAST_RELEASE = LocalDate.of(2020, 12, 4);
+
+  private final Random random = new Random(42);
+
+  private Generator() {
+  }
+
+  static Generator create() {
+    return new Generator();
+  }
+
+  /**
+   * Writes a changelog with the given number of versions, starting with the newest one.
+   */
+  Path changelog(Path file, int versions, boolean withLinks) throws IOException {
+    try (BufferedWriter writer = Files.newBufferedWriter(file, StandardCharsets.UTF_8)) {
+      writer.write("# Changelog\n");
+      writer.write("All notable changes to this project will be documented in this file.\n\n");
+      for (int i = 0; i < versions; i++) {
+        String number = version(versions - i);
+        String date = LAST_RELEASE.minusDays(i).toString();
+        writer.write(withLinks ? "## [" + number + "] - " + date + "\n" : "## " + number + " - " + date + "\n");
+        int types = 1 + random.nextInt(3);
+        for (int t = 0; t < types; t++) {
+          writer.write("### " + capitalize(TYPES[t]) + "\n");
+          int changes = 1 + random.nextInt(4);
+          for (int c = 0; c < changes; c++) {
+            writer.write("- " + description() + "\n");
+          }
+          writer.write("\n");
+        }
+      }
+      if (withLinks) {
+        for (int i = versions; i > 0; i--) {
+          String number = version(i);
+          writer.write("[" + number + "]: https://scm-manager.org/download/" + number + "\n");
+        }
+      }
+    }
+    return file;
+  }
+
+  /**
+   * Creates the given number of changelog entry files with one or two entries each.
+   */
+  Path fragments(Path directory, int count) throws IOException {
+    Files.createDirectories(directory);
+    for (int i = 0; i < count; i++) {
+      StringBuilder content = new StringBuilder();
+      int entries = 1 + random.nextInt(2);
+      for (int e = 0; e < entries; e++) {
+        content.append("- type: ").append(TYPES[random.nextInt(TYPES.length)]).append('\n');
+        content.append("  description: ").append(description()).append('\n');
+      }
+      Files.write(directory.resolve(String.format("feature_%05d.yaml", i)), content.toString().getBytes(StandardCharsets.UTF_8));
+    }
+    return directory;
+  }
+
+  private static String version(int index) {
+    return (1 + index / 1000) + "." + (index / 10 % 100) + "." + (index % 10);
+  }
+
+  private String description() {
+    StringBuilder description = new StringBuilder(capitalize(WORDS[random.nextInt(WORDS.length)]));
+    int words = 4 + random.nextInt(8);
+    for (int w = 0; w < words; w++) {
+      description.append(' ').append(WORDS[random.nextInt(WORDS.length)]);
+    }
+    int issue = random.nextInt(10000);
+    return description.append(" ([#").append(issue).append("](https://github.com/scm-manager/scm-manager/issues/")
+      .append(issue).append("))").toString();
+  }
+
+  private static String capitalize(String value) {
+    return Character.toUpperCase(value.charAt(0)) + value.substring(1);
+  }
+}
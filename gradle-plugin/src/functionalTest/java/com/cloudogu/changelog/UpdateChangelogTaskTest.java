@@ -27,6 +27,7 @@ package com.cloudogu.changelog;
 import org.assertj.core.util.CanIgnoreReturnValue;
 import org.gradle.testkit.runner.BuildResult;
 import org.gradle.testkit.runner.GradleRunner;
+import org.gradle.testkit.runner.TaskOutcome;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.io.TempDir;
 
@@ -45,6 +46,7 @@ import static org.assertj.core.api.Assertions.assertThat;
 class UpdateChangelogTaskTest {
 
   private static final String TASK = "updateChangelog";
+  private static final String AGGREGATE_TASK = "updateAllChangelogs";
 
   @Test
   void shouldUpdateChangelogWithConfiguration(@TempDir Path directory) throws IOException {
@@ -152,6 +154,301 @@ class UpdateChangelogTaskTest {
       .contains("- Feature b");
   }
 
+  @Test
+  void shouldBeUpToDateIfNothingHasChanged(@TempDir Path directory) throws IOException {
+    settings(directory).create();
+    buildDotGradle(directory).create();
+    file(directory, "gradle", "changelog", "001.yml").content(
+      "- type: fixed",
+      "  description: Feature a"
+    ).create();
+    File changelog = changelog(directory, "CHANGELOG.md").content(
+      "## 1.0.0 - 2020-12-07",
+      "### Added",
+      "- Awesome feature"
+    ).create();
+
+    BuildResult first = updateChangelog(directory, "--release=1.0.1");
+    String content = changelog.read();
+    BuildResult second = updateChangelog(directory, "--release=1.0.1");
+
+    assertThat(first.task(":" + TASK).getOutcome()).isEqualTo(TaskOutcome.SUCCESS);
+    assertThat(second.task(":" + TASK).getOutcome()).isEqualTo(TaskOutcome.UP_TO_DATE);
+    assertThat(changelog.read()).isEqualTo(content);
+  }
+
+  @Test
+  void shouldUpdateChangelogWithPackedEntries(@TempDir Path directory) throws IOException {
+    settings(directory).create();
+    buildDotGradle(directory).create();
+    file(directory, "gradle", "changelog", "001.yml").content(
+      "- type: added",
+      "  description: Packed feature"
+    ).create();
+    file(directory, "gradle", "changelog", "002.yml").content(
+      "- type: fixed",
+      "  description: Packed bug"
+    ).create();
+    File changelog = changelog(directory, "CHANGELOG.md").content(
+      "## 1.0.0 - 2020-12-07",
+      "### Added",
+      "- Awesome feature"
+    ).create();
+
+    BuildResult pack = GradleRunner.create()
+      .withProjectDir(directory.toFile())
+      .withPluginClasspath()
+      .withArguments("packChangelogEntries")
+      .build();
+    file(directory, "gradle", "changelog", "003.yml").content(
+      "- type: added",
+      "  description: Loose feature"
+    ).create();
+    updateChangelog(directory, "--release=1.1.0");
+
+    assertThat(pack.getOutput()).contains("Packed 2 changelog entry files");
+    assertThat(directory.resolve("gradle/changelog/001.yml")).doesNotExist();
+    assertThat(changelog.read())
+      .contains("## 1.1.0")
+      .containsSubsequence("### Added", "- Packed feature", "- Loose feature", "### Fixed", "- Packed bug");
+  }
+
+  @Test
+  void shouldSkipWithoutEntries(@TempDir Path directory) throws IOException {
+    settings(directory).create();
+    buildDotGradle(directory).create();
+    Files.createDirectories(directory.resolve("gradle").resolve("changelog").resolve("empty"));
+    File changelog = changelog(directory, "CHANGELOG.md").content(
+      "## 1.0.0 - 2020-12-07",
+      "### Added",
+      "- Awesome feature"
+    ).create();
+    String content = changelog.read();
+
+    BuildResult result = updateChangelog(directory, "--release=1.0.1");
+
+    assertThat(result.task(":" + TASK).getOutcome()).isEqualTo(TaskOutcome.NO_SOURCE);
+    assertThat(changelog.read()).isEqualTo(content);
+  }
+
+  @Test
+  void shouldUpdateChangelogInIsolatedWorker(@TempDir Path directory) throws IOException {
+    settings(directory).create();
+    buildDotGradle(directory).content(
+      "changelog {",
+      "  isolation = 'classloader'",
+      "}"
+    ).create();
+    file(directory, "gradle", "changelog", "001.yml").content(
+      "- type: added",
+      "  description: Feature a"
+    ).create();
+    File changelog = changelog(directory, "CHANGELOG.md").content(
+      "## 1.0.0 - 2020-12-07",
+      "### Added",
+      "- Awesome feature"
+    ).create();
+
+    BuildResult result = updateChangelog(directory, "--info");
+
+    assertThat(changelog.read())
+      .contains("## 1.1.0")
+      .contains("- Feature a");
+    assertThat(result.getOutput()).contains("PARSE_ENTRIES took", "WRITE_CHANGELOG took");
+    assertThat(new String(Files.readAllBytes(directory.resolve("build/reports/changelog/" + TASK + ".json")), StandardCharsets.UTF_8))
+      .startsWith("{\"changelog\":")
+      .contains("{\"phase\":\"scan_entries\"", "{\"phase\":\"write_changelog\"");
+  }
+
+  @Test
+  void shouldReuseConfigurationCache(@TempDir Path directory) throws IOException {
+    settings(directory).create();
+    buildDotGradle(directory).content(
+      "changelog {",
+      "  versionUrlPattern = 'https://scm-manager.org/download/{0}'",
+      "}"
+    ).create();
+    file(directory, "gradle", "changelog", "001.yml").content(
+      "- type: fixed",
+      "  description: Feature a"
+    ).create();
+    File changelog = changelog(directory, "CHANGELOG.md").content(
+      "## 1.0.0 - 2020-12-07",
+      "### Added",
+      "- Awesome feature"
+    ).create();
+
+    BuildResult first = updateChangelog(directory, "--release=1.0.1", "--configuration-cache");
+    BuildResult second = updateChangelog(directory, "--release=1.0.1", "--configuration-cache");
+
+    assertThat(first.getOutput()).contains("Configuration cache entry stored.");
+    assertThat(second.getOutput()).contains("Reusing configuration cache.");
+    assertThat(second.task(":" + TASK).getOutcome()).isEqualTo(TaskOutcome.UP_TO_DATE);
+    assertThat(changelog.read())
+      .containsOnlyOnce("## [1.0.1]")
+      .contains("- Feature a")
+      .contains("[1.0.1]: https://scm-manager.org/download/1.0.1");
+  }
+
+  @Test
+  void shouldUpdateChangelogsOfAllProjects(@TempDir Path directory) throws IOException {
+    multiProject(directory);
+    file(directory, "a", "gradle", "changelog", "001.yml").content(
+      "- type: fixed",
+      "  description: Bug a"
+    ).create();
+    file(directory, "b", "gradle", "changelog", "001.yml").content(
+      "- type: added",
+      "  description: Feature b"
+    ).create();
+    File a = changelog(directory, "a", "CHANGELOG.md").content("## 1.0.0 - 2020-12-07").create();
+    File b = changelog(directory, "b", "CHANGELOG.md").content("## 2.0.0 - 2020-12-07").create();
+
+    BuildResult result = GradleRunner.create()
+      .withProjectDir(directory.toFile())
+      .withPluginClasspath()
+      .withArguments(AGGREGATE_TASK)
+      .build();
+
+    assertThat(result.getOutput())
+      .contains("Updated 2 of 3 changelogs, 1 without entries")
+      .contains(":a: 1.0.1 (1 change)")
+      .contains(":b: 2.1.0 (1 change)")
+      .contains(":a: using next version 1.0.1");
+    assertThat(a.read()).contains("## 1.0.1", "- Bug a");
+    assertThat(b.read()).contains("## 2.1.0", "- Feature b");
+    assertThat(new String(Files.readAllBytes(directory.resolve("build/reports/changelog/" + AGGREGATE_TASK + ".json")), StandardCharsets.UTF_8))
+      .startsWith("[{\"changelog\":")
+      .containsOnlyOnce("},{\"changelog\":");
+  }
+
+  @Test
+  void shouldNotUpdateAnyChangelogIfEntriesOfOneProjectAreInvalid(@TempDir Path directory) throws IOException {
+    multiProject(directory);
+    file(directory, "a", "gradle", "changelog", "001.yml").content(
+      "- type: fixed",
+      "  description: Bug a"
+    ).create();
+    file(directory, "b", "gradle", "changelog", "001.yml").content(
+      "- type: added",
+      "  description: [unclosed"
+    ).create();
+    File a = changelog(directory, "a", "CHANGELOG.md").content("## 1.0.0 - 2020-12-07").create();
+    String content = a.read();
+
+    BuildResult result = GradleRunner.create()
+      .withProjectDir(directory.toFile())
+      .withPluginClasspath()
+      .withArguments(AGGREGATE_TASK)
+      .buildAndFail();
+
+    assertThat(result.getOutput()).contains("failed to read the entries of 1 changelog(s)");
+    assertThat(a.read()).isEqualTo(content);
+  }
+
+  @Test
+  void shouldValidateChangelogWithCheck(@TempDir Path directory) throws IOException {
+    settings(directory).create();
+    file(directory, "build.gradle").content(
+      "plugins {",
+      "  id('base')",
+      "  id('org.scm-manager.changelog')",
+      "}"
+    ).create();
+    file(directory, "gradle", "changelog", "001.yml").content(
+      "- type: added",
+      "  description: Awesome feature"
+    ).create();
+    changelog(directory, "CHANGELOG.md").content("## 1.0.0 - 2020-12-07").create();
+
+    BuildResult result = GradleRunner.create()
+      .withProjectDir(directory.toFile())
+      .withPluginClasspath()
+      .withArguments("check")
+      .build();
+
+    assertThat(result.task(":validateChangelog").getOutcome()).isEqualTo(TaskOutcome.SUCCESS);
+  }
+
+  @Test
+  void shouldReportAllErrorsOfValidation(@TempDir Path directory) throws IOException {
+    settings(directory).create();
+    buildDotGradle(directory).create();
+    file(directory, "gradle", "changelog", "001.yml").content(
+      "- type: added",
+      "  description: Awesome feature",
+      "- type: ''",
+      "  description: Empty type"
+    ).create();
+    file(directory, "gradle", "changelog", "002.yml").content(
+      "- type: fixed"
+    ).create();
+
+    BuildResult result = GradleRunner.create()
+      .withProjectDir(directory.toFile())
+      .withPluginClasspath()
+      .withArguments("validateChangelog")
+      .buildAndFail();
+
+    assertThat(result.getOutput())
+      .contains("001.yml:3: empty type")
+      .contains("002.yml:1: change without description")
+      .contains("Found 2 errors");
+    assertThat(directory.resolve("build/reports/changelog/validateChangelog.txt")).exists();
+  }
+
+  @Test
+  void shouldExtractReleaseNotes(@TempDir Path directory) throws IOException {
+    settings(directory).create();
+    buildDotGradle(directory).create();
+    changelog(directory, "CHANGELOG.md").content(
+      "## 1.1.0 - 2020-12-08",
+      "### Fixed",
+      "- Awesome bug",
+      "",
+      "## 1.0.0 - 2020-12-07",
+      "### Added",
+      "- Awesome feature"
+    ).create();
+
+    GradleRunner.create()
+      .withProjectDir(directory.toFile())
+      .withPluginClasspath()
+      .withArguments("extractReleaseNotes", "--release=1.0")
+      .build();
+    BuildResult json = GradleRunner.create()
+      .withProjectDir(directory.toFile())
+      .withPluginClasspath()
+      .withArguments("extractReleaseNotes", "--format=json")
+      .build();
+
+    assertThat(directory.resolve("build/changelog/release-notes.md")).hasContent("### Added\n- Awesome feature");
+    assertThat(directory.resolve("build/changelog/release-notes.json"))
+      .hasContent("{\"version\":\"1.1.0\",\"date\":\"2020-12-08\",\"changes\":{\"Fixed\":[\"Awesome bug\"]}}");
+    assertThat(json.getOutput()).contains("Wrote release notes to");
+  }
+
+  private void multiProject(Path directory) throws IOException {
+    file(directory, "settings.gradle").content(
+      "rootProject.name = 'chango'",
+      "include 'a', 'b'"
+    ).create();
+    buildDotGradle(directory).create();
+    buildDotGradle(directory.resolve("a")).create();
+    buildDotGradle(directory.resolve("b")).create();
+  }
+
+  private BuildResult updateChangelog(Path directory, String... arguments) {
+    List<String> args = new ArrayList<>();
+    args.add(TASK);
+    args.addAll(Arrays.asList(arguments));
+    return GradleRunner.create()
+      .withProjectDir(directory.toFile())
+      .withPluginClasspath()
+      .withArguments(args)
+      .build();
+  }
+
   private File settings(Path directory) {
     return file(directory, "settings.gradle").content("rootProject.name = 'chango'");
   }
@@ -28,35 +28,30 @@ import org.gradle.api.file.Directory;
 import org.gradle.api.file.DirectoryProperty;
 import org.gradle.api.file.ProjectLayout;
 import org.gradle.api.file.RegularFileProperty;
-import org.gradle.api.model.ObjectFactory;
 import org.gradle.api.provider.Property;
 
 import javax.inject.Inject;
 
-public class ChangelogExtension {
-
-  private final RegularFileProperty file;
-  private final DirectoryProperty directory;
-  private final Property<String> versionUrlPattern;
+public abstract class ChangelogExtension {
 
   @Inject
-  @SuppressWarnings("UnstableApiUsage")
-  public ChangelogExtension(ProjectLayout layout, ObjectFactory objectFactory) {
+  public ChangelogExtension(ProjectLayout layout) {
     Directory projectDirectory = layout.getProjectDirectory();
-    this.file = objectFactory.fileProperty().convention(projectDirectory.file("CHANGELOG.md"));
-    this.directory = objectFactory.directoryProperty().convention(projectDirectory.dir("gradle/changelog"));
-    this.versionUrlPattern = objectFactory.property(String.class);
+    getFile().convention(projectDirectory.file("CHANGELOG.md"));
+    getDirectory().convention(projectDirectory.dir("gradle/changelog"));
+    getIsolation().convention(UpdateChangelogTask.ISOLATION_NONE);
+    getLock().convention(false);
   }
 
-  public DirectoryProperty getDirectory() {
-    return directory;
-  }
+  public abstract DirectoryProperty getDirectory();
 
-  public RegularFileProperty getFile() {
-    return file;
-  }
+  public abstract RegularFileProperty getFile();
 
-  public Property<String> getVersionUrlPattern() {
-    return versionUrlPattern;
-  }
+  public abstract Property<String> getVersionUrlPattern();
+
+  public abstract RegularFileProperty getCacheFile();
+
+  public abstract Property<String> getIsolation();
+
+  public abstract Property<Boolean> getLock();
 }
@@ -0,0 +1,99 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2020-present Cloudogu GmbH and Contributors
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.cloudogu.changelog;
+
+import cloudogu.scm.changelog.ChangelogPhaseMetrics;
+import cloudogu.scm.changelog.ChangelogUpdateListener;
+import cloudogu.scm.changelog.ChangelogUpdateReport;
+import org.gradle.api.logging.Logger;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+/**
+ * Logs the phases of a changelog update at info level and collects them for the report file. The computed version is
+ * logged at lifecycle level.
+ */
+class ChangelogMetrics implements ChangelogUpdateListener {
+
+  private final Logger logger;
+  private final String name;
+  private final ChangelogUpdateReport report;
+
+  ChangelogMetrics(Logger logger, String name, Path changelogFile) {
+    this.logger = logger;
+    this.name = name;
+    this.report = new ChangelogUpdateReport(changelogFile);
+  }
+
+  @Override
+  public void phaseCompleted(ChangelogPhaseMetrics metrics) {
+    logger.info(
+      "{}: {} took {} ms, {} items, {} bytes",
+      name, metrics.getPhase(), metrics.getDuration().toMillis(), metrics.getItems(), metrics.getBytes()
+    );
+    report.phaseCompleted(metrics);
+  }
+
+  @Override
+  public void versionComputed(String number) {
+    logger.lifecycle("{}: using next version {}", name, number);
+  }
+
+  /**
+   * Writes the report of a single changelog as json object.
+   */
+  void write(Path reportFile) throws IOException {
+    try (Writer writer = open(reportFile)) {
+      report.writeJson(writer);
+      writer.write('\n');
+    }
+  }
+
+  /**
+   * Writes the reports of several changelogs as json array.
+   */
+  static void writeAll(Path reportFile, List<ChangelogMetrics> metrics) throws IOException {
+    try (Writer writer = open(reportFile)) {
+      writer.write('[');
+      for (int i = 0; i < metrics.size(); i++) {
+        if (i > 0) {
+          writer.write(',');
+        }
+        metrics.get(i).report.writeJson(writer);
+      }
+      writer.write("]\n");
+    }
+  }
+
+  private static Writer open(Path reportFile) throws IOException {
+    Files.createDirectories(reportFile.toAbsolutePath().getParent());
+    return Files.newBufferedWriter(reportFile, StandardCharsets.UTF_8);
+  }
+}
@@ -0,0 +1,108 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2020-present Cloudogu GmbH and Contributors
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.cloudogu.changelog;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.math.BigInteger;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Properties;
+
+/**
+ * Remembers the content of a changelog before and after its last update, in form of hashes.
+ */
+final class ChangelogState {
+
+  private static final String BASELINE = "baseline";
+  private static final String UPDATED = "updated";
+
+  private final String baseline;
+  private final String updated;
+
+  private ChangelogState(String baseline, String updated) {
+    this.baseline = baseline;
+    this.updated = updated;
+  }
+
+  static ChangelogState read(Path stateFile) throws IOException {
+    if (!Files.exists(stateFile)) {
+      return new ChangelogState(null, null);
+    }
+    Properties properties = new Properties();
+    try (InputStream input = Files.newInputStream(stateFile)) {
+      properties.load(input);
+    }
+    return new ChangelogState(properties.getProperty(BASELINE), properties.getProperty(UPDATED));
+  }
+
+  static void write(Path stateFile, String baseline, Path changelog) throws IOException {
+    Properties properties = new Properties();
+    properties.setProperty(BASELINE, baseline);
+    properties.setProperty(UPDATED, hash(changelog));
+    Files.createDirectories(stateFile.toAbsolutePath().getParent());
+    try (OutputStream output = Files.newOutputStream(stateFile)) {
+      properties.store(output, null);
+    }
+  }
+
+  /**
+   * Returns the hash of the content before the last update, if the changelog was not modified since then. Otherwise
+   * the hash of the current content is returned.
+   */
+  String baselineOf(Path changelog) throws IOException {
+    String current = hash(changelog);
+    if (baseline != null && current.equals(updated)) {
+      return baseline;
+    }
+    return current;
+  }
+
+  static String hash(Path file) throws IOException {
+    if (!Files.exists(file)) {
+      return "";
+    }
+    MessageDigest digest = sha256();
+    try (InputStream input = new DigestInputStream(Files.newInputStream(file), digest)) {
+      byte[] buffer = new byte[8192];
+      while (input.read(buffer) >= 0) {
+        // only read to compute the digest
+      }
+    }
+    return String.format("%064x", new BigInteger(1, digest.digest()));
+  }
+
+  private static MessageDigest sha256() {
+    try {
+      return MessageDigest.getInstance("SHA-256");
+    } catch (NoSuchAlgorithmException e) {
+      throw new IllegalStateException("SHA-256 is not available", e);
+    }
+  }
+}
@@ -0,0 +1,118 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2020-present Cloudogu GmbH and Contributors
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.cloudogu.changelog;
+
+import cloudogu.scm.changelog.ChangelogException;
+import cloudogu.scm.changelog.ReleaseNotesExtractor;
+import org.gradle.api.DefaultTask;
+import org.gradle.api.GradleException;
+import org.gradle.api.InvalidUserDataException;
+import org.gradle.api.file.RegularFileProperty;
+import org.gradle.api.provider.Property;
+import org.gradle.api.tasks.Input;
+import org.gradle.api.tasks.InputFile;
+import org.gradle.api.tasks.Optional;
+import org.gradle.api.tasks.OutputFile;
+import org.gradle.api.tasks.PathSensitive;
+import org.gradle.api.tasks.PathSensitivity;
+import org.gradle.api.tasks.TaskAction;
+import org.gradle.api.tasks.options.Option;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/**
+ * Writes the release notes of a single version of the changelog to a file, e.g. for the body of a git tag. Only the
+ * section of the version is read from the changelog.
+ */
+public abstract class ExtractReleaseNotesTask extends DefaultTask {
+
+  public static final String NAME = "extractReleaseNotes";
+
+  public static final String FORMAT_MARKDOWN = "markdown";
+  public static final String FORMAT_JSON = "json";
+
+  @InputFile
+  @PathSensitive(PathSensitivity.NONE)
+  public abstract RegularFileProperty getFile();
+
+  @Input
+  @Option(option = "release", description = "Version number of the release notes, the first version of the changelog if omitted")
+  @Optional
+  public abstract Property<String> getVersion();
+
+  @Input
+  @Option(option = "format", description = "Format of the release notes, markdown or json")
+  public abstract Property<String> getFormat();
+
+  @Input
+  public abstract Property<Boolean> getHeading();
+
+  @OutputFile
+  public abstract RegularFileProperty getOutputFile();
+
+  @TaskAction
+  void extract() {
+    String format = getFormat().get();
+    if (!FORMAT_MARKDOWN.equals(format) && !FORMAT_JSON.equals(format)) {
+      throw new InvalidUserDataException("unknown format " + format + ", use " + FORMAT_MARKDOWN + " or " + FORMAT_JSON);
+    }
+    String version = getVersion().getOrNull();
+    Path changelog = getFile().get().getAsFile().toPath();
+    Path outputFile = getOutputFile().get().getAsFile().toPath();
+    ReleaseNotesExtractor extractor = new ReleaseNotesExtractor(changelog).withHeading(getHeading().get());
+    boolean found;
+    try {
+      Files.createDirectories(outputFile.getParent());
+      try (OutputStream out = Files.newOutputStream(outputFile)) {
+        if (FORMAT_JSON.equals(format)) {
+          Writer writer = new OutputStreamWriter(out, StandardCharsets.UTF_8);
+          found = extractor.extractJson(version, writer);
+        } else {
+          found = extractor.extractMarkdown(version, out);
+        }
+      }
+      if (!found) {
+        Files.delete(outputFile);
+      }
+    } catch (ChangelogException e) {
+      throw new GradleException(e.getMessage(), e);
+    } catch (IOException e) {
+      throw new UncheckedIOException("failed to write release notes " + outputFile, e);
+    }
+    if (!found) {
+      throw new GradleException(
+        version != null ? "changelog " + changelog + " does not contain version " + version : "changelog " + changelog + " has no versions"
+      );
+    }
+    getLogger().lifecycle("Wrote release notes to {}", outputFile);
+  }
+}
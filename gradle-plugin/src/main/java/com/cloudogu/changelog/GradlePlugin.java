@@ -26,15 +26,75 @@ package com.cloudogu.changelog;
 
 import org.gradle.api.Plugin;
 import org.gradle.api.Project;
+import org.gradle.api.file.ProjectLayout;
+import org.gradle.api.tasks.TaskProvider;
+import org.gradle.language.base.plugins.LifecycleBasePlugin;
 
 public class GradlePlugin implements Plugin<Project> {
+
+  public static final String ID = "org.scm-manager.changelog";
+
   @Override
   public void apply(Project project) {
     ChangelogExtension extension = project.getExtensions().create("changelog", ChangelogExtension.class);
-    project.getTasks().register(UpdateChangelogTask.NAME, UpdateChangelogTask.class).configure(task -> {
+    ProjectLayout layout = project.getLayout();
+    project.getTasks().register(UpdateChangelogTask.NAME, UpdateChangelogTask.class, task -> {
       task.getFile().set(extension.getFile());
       task.getDirectory().set(extension.getDirectory());
       task.getVersionUrlPattern().set(extension.getVersionUrlPattern());
+      task.getCacheFile().set(extension.getCacheFile());
+      task.getIsolation().set(extension.getIsolation());
+      task.getLock().set(extension.getLock());
+      task.getStateFile().set(layout.getBuildDirectory().file("changelog/" + task.getName() + ".properties"));
+      task.getReportFile().convention(layout.getBuildDirectory().file("reports/changelog/" + task.getName() + ".json"));
+    });
+    project.getTasks().register(PackChangelogEntriesTask.NAME, PackChangelogEntriesTask.class, task ->
+      task.getDirectory().set(extension.getDirectory())
+    );
+    project.getTasks().register(WatchChangelogTask.NAME, WatchChangelogTask.class, task -> {
+      task.getDirectory().set(extension.getDirectory());
+      task.getPreviewFile().convention(layout.getBuildDirectory().file("changelog/unreleased.md"));
+    });
+    project.getTasks().register(ExtractReleaseNotesTask.NAME, ExtractReleaseNotesTask.class, task -> {
+      task.getFile().set(extension.getFile());
+      task.getFormat().convention(ExtractReleaseNotesTask.FORMAT_MARKDOWN);
+      task.getHeading().convention(false);
+      task.getOutputFile().convention(layout.getBuildDirectory().file(task.getFormat().map(
+        format -> "changelog/release-notes." + (ExtractReleaseNotesTask.FORMAT_JSON.equals(format) ? "json" : "md")
+      )));
     });
+    TaskProvider<ValidateChangelogTask> validate = project.getTasks().register(ValidateChangelogTask.NAME, ValidateChangelogTask.class, task -> {
+      task.getFile().set(extension.getFile());
+      task.getDirectory().set(extension.getDirectory());
+      task.getReportFile().convention(layout.getBuildDirectory().file("reports/changelog/" + task.getName() + ".txt"));
+    });
+    project.getPlugins().withType(LifecycleBasePlugin.class, plugin ->
+      project.getTasks().named(LifecycleBasePlugin.CHECK_TASK_NAME).configure(check -> check.dependsOn(validate))
+    );
+    if (project == project.getRootProject()) {
+      registerAggregate(project);
+    }
+  }
+
+  private void registerAggregate(Project root) {
+    TaskProvider<UpdateAllChangelogsTask> aggregate = root.getTasks().register(
+      UpdateAllChangelogsTask.NAME,
+      UpdateAllChangelogsTask.class,
+      task -> {
+        task.getParallelism().convention(Runtime.getRuntime().availableProcessors());
+        task.getReportFile().convention(root.getLayout().getBuildDirectory().file("reports/changelog/" + task.getName() + ".json"));
+      }
+    );
+    root.allprojects(project -> project.getPluginManager().withPlugin(ID, plugin -> {
+      ChangelogExtension extension = project.getExtensions().getByType(ChangelogExtension.class);
+      ChangelogSpec spec = root.getObjects().newInstance(ChangelogSpec.class);
+      spec.getProjectPath().set(project.getPath());
+      spec.getFile().set(extension.getFile());
+      spec.getDirectory().set(extension.getDirectory());
+      spec.getVersionUrlPattern().set(extension.getVersionUrlPattern());
+      spec.getCacheFile().set(extension.getCacheFile());
+      spec.getLock().set(extension.getLock());
+      aggregate.configure(task -> task.getChangelogs().add(spec));
+    }));
   }
 }
@@ -0,0 +1,68 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2020-present Cloudogu GmbH and Contributors
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.cloudogu.changelog;
+
+import cloudogu.scm.changelog.ChangelogException;
+import cloudogu.scm.changelog.FragmentPack;
+import org.gradle.api.DefaultTask;
+import org.gradle.api.GradleException;
+import org.gradle.api.file.DirectoryProperty;
+import org.gradle.api.tasks.Internal;
+import org.gradle.api.tasks.TaskAction;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/**
+ * Moves the loose changelog entry files into the entry pack of the directory. The update reads the pack and the
+ * remaining loose files together, so the changelog is the same as without packing.
+ */
+public abstract class PackChangelogEntriesTask extends DefaultTask {
+
+  public static final String NAME = "packChangelogEntries";
+
+  @Internal
+  public abstract DirectoryProperty getDirectory();
+
+  @TaskAction
+  void pack() {
+    Path directory = getDirectory().get().getAsFile().toPath();
+    if (!Files.isDirectory(directory)) {
+      getLogger().lifecycle("No changelog entries found in {}", directory);
+      return;
+    }
+    FragmentPack pack = new FragmentPack(directory);
+    try {
+      int packed = pack.pack();
+      getLogger().lifecycle("Packed {} changelog entry files into {}", packed, pack.getFile());
+    } catch (ChangelogException e) {
+      throw new GradleException(e.getMessage(), e);
+    } catch (IOException e) {
+      throw new UncheckedIOException("failed to pack changelog entries in " + directory, e);
+    }
+  }
+}
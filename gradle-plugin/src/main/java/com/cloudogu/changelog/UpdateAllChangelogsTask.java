@@ -0,0 +1,148 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2020-present Cloudogu GmbH and Contributors
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.cloudogu.changelog;
+
+import cloudogu.scm.changelog.ChangelogBatch;
+import cloudogu.scm.changelog.ChangelogBatchException;
+import cloudogu.scm.changelog.ChangelogUpdater;
+import org.gradle.api.DefaultTask;
+import org.gradle.api.GradleException;
+import org.gradle.api.file.RegularFileProperty;
+import org.gradle.api.provider.Property;
+import org.gradle.api.tasks.Internal;
+import org.gradle.api.tasks.TaskAction;
+import org.gradle.api.tasks.options.Option;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Updates the changelogs of all projects, which apply the changelog plugin, in a single batch. The entries of all
+ * projects are read first, so no changelog is modified if the entries of any project are invalid.
+ */
+public abstract class UpdateAllChangelogsTask extends DefaultTask {
+
+  public static final String NAME = "updateAllChangelogs";
+
+  private final List<ChangelogSpec> changelogs = new ArrayList<>();
+
+  @Internal
+  public List<ChangelogSpec> getChangelogs() {
+    return changelogs;
+  }
+
+  @Internal
+  @Option(option = "release", description = "Version number of the release for all changelogs")
+  public abstract Property<String> getVersion();
+
+  /**
+   * Maximum number of threads, which are used to read entries and to write changelogs.
+   */
+  @Internal
+  public abstract Property<Integer> getParallelism();
+
+  /**
+   * Json report with the duration and the counters of each phase of the update of each changelog.
+   */
+  @Internal
+  public abstract RegularFileProperty getReportFile();
+
+  @TaskAction
+  void updateChangelogs() {
+    Instant date = Instant.now();
+    ChangelogBatch batch = new ChangelogBatch(getParallelism().get());
+    List<ChangelogSpec> withEntries = new ArrayList<>();
+    List<ChangelogMetrics> metrics = new ArrayList<>();
+    for (ChangelogSpec changelog : changelogs) {
+      // projects without entry directory have nothing to release, like the updateChangelog task without entries
+      if (changelog.getDirectory().get().getAsFile().isDirectory()) {
+        ChangelogUpdater updater = updater(changelog, date);
+        ChangelogMetrics changelogMetrics = new ChangelogMetrics(
+          getLogger(), changelog.getProjectPath().get(), changelog.getFile().get().getAsFile().toPath()
+        );
+        withEntries.add(changelog);
+        metrics.add(changelogMetrics);
+        batch.add(updater.withListener(changelogMetrics));
+      }
+    }
+    List<ChangelogBatch.Result> results;
+    try {
+      results = batch.update();
+    } catch (ChangelogBatchException e) {
+      throw new GradleException(e.getMessage(), e);
+    }
+    report(withEntries, results);
+    if (getReportFile().isPresent()) {
+      try {
+        ChangelogMetrics.writeAll(getReportFile().get().getAsFile().toPath(), metrics);
+      } catch (IOException e) {
+        throw new UncheckedIOException("failed to write changelog report", e);
+      }
+    }
+  }
+
+  private ChangelogUpdater updater(ChangelogSpec changelog, Instant date) {
+    ChangelogUpdater updater = new ChangelogUpdater(
+      changelog.getFile().get().getAsFile().toPath(),
+      changelog.getDirectory().get().getAsFile().toPath(),
+      date
+    );
+    if (getVersion().isPresent()) {
+      updater.withVersion(getVersion().get());
+    }
+    if (changelog.getVersionUrlPattern().isPresent()) {
+      updater.withVersionUrls(changelog.getVersionUrlPattern().get());
+    }
+    if (changelog.getCacheFile().isPresent()) {
+      updater.withCache(changelog.getCacheFile().get().getAsFile().toPath());
+    }
+    return updater.withLock(changelog.getLock().getOrElse(false));
+  }
+
+  private void report(List<ChangelogSpec> updatedChangelogs, List<ChangelogBatch.Result> results) {
+    int updated = 0;
+    StringBuilder summary = new StringBuilder();
+    for (int i = 0; i < results.size(); i++) {
+      ChangelogBatch.Result result = results.get(i);
+      if (result.isUpdated()) {
+        updated++;
+        summary.append("\n  ")
+          .append(updatedChangelogs.get(i).getProjectPath().get())
+          .append(": ")
+          .append(result.getVersion())
+          .append(" (")
+          .append(result.getChanges())
+          .append(result.getChanges() == 1 ? " change)" : " changes)");
+      }
+    }
+    getLogger().lifecycle(
+      "Updated {} of {} changelogs, {} without entries{}",
+      updated, changelogs.size(), changelogs.size() - updated, summary
+    );
+  }
+}
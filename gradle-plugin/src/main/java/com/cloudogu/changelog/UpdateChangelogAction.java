@@ -0,0 +1,68 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2020-present Cloudogu GmbH and Contributors
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.cloudogu.changelog;
+
+import cloudogu.scm.changelog.ChangelogUpdater;
+import org.gradle.api.logging.Logging;
+import org.gradle.workers.WorkAction;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Path;
+
+public abstract class UpdateChangelogAction implements WorkAction<UpdateChangelogParameters> {
+
+  @Override
+  public void execute() {
+    UpdateChangelogParameters parameters = getParameters();
+    Path changelog = parameters.getFile().get().getAsFile().toPath();
+    ChangelogUpdater updater = new ChangelogUpdater(
+      changelog,
+      parameters.getDirectory().get().getAsFile().toPath(),
+      parameters.getDate().get()
+    );
+    if (parameters.getVersion().isPresent()) {
+      updater.withVersion(parameters.getVersion().get());
+    }
+    if (parameters.getVersionUrlPattern().isPresent()) {
+      updater.withVersionUrls(parameters.getVersionUrlPattern().get());
+    }
+    if (parameters.getCacheFile().isPresent()) {
+      updater.withCache(parameters.getCacheFile().get().getAsFile().toPath());
+    }
+    updater.withLock(parameters.getLock().getOrElse(false));
+    ChangelogMetrics metrics = new ChangelogMetrics(Logging.getLogger(UpdateChangelogAction.class), changelog.toString(), changelog);
+    updater.withListener(metrics);
+    try {
+      updater.update();
+      ChangelogState.write(parameters.getStateFile().get().getAsFile().toPath(), parameters.getBaseline().get(), changelog);
+      if (parameters.getReportFile().isPresent()) {
+        metrics.write(parameters.getReportFile().get().getAsFile().toPath());
+      }
+    } catch (IOException e) {
+      throw new UncheckedIOException("failed to update changelog " + changelog, e);
+    }
+  }
+}
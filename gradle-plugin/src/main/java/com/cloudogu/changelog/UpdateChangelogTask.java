@@ -25,68 +25,185 @@
 package com.cloudogu.changelog;
 
 import cloudogu.scm.changelog.ChangelogUpdater;
+import com.google.common.hash.Hashing;
 import org.gradle.api.DefaultTask;
+import org.gradle.api.InvalidUserDataException;
 import org.gradle.api.file.DirectoryProperty;
+import org.gradle.api.file.FileTree;
 import org.gradle.api.file.RegularFileProperty;
 import org.gradle.api.provider.Property;
+import org.gradle.api.tasks.CacheableTask;
+import org.gradle.api.tasks.IgnoreEmptyDirectories;
 import org.gradle.api.tasks.Input;
-import org.gradle.api.tasks.InputDirectory;
+import org.gradle.api.tasks.InputFiles;
+import org.gradle.api.tasks.Internal;
 import org.gradle.api.tasks.Optional;
 import org.gradle.api.tasks.OutputFile;
+import org.gradle.api.tasks.PathSensitive;
+import org.gradle.api.tasks.PathSensitivity;
+import org.gradle.api.tasks.SkipWhenEmpty;
 import org.gradle.api.tasks.TaskAction;
 import org.gradle.api.tasks.options.Option;
+import org.gradle.workers.WorkQueue;
+import org.gradle.workers.WorkerExecutor;
+import org.yaml.snakeyaml.Yaml;
 
+import javax.inject.Inject;
+import java.io.File;
 import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.URISyntaxException;
+import java.nio.file.Path;
 import java.time.Instant;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.util.Arrays;
+import java.util.LinkedHashSet;
+import java.util.Set;
 
-public class UpdateChangelogTask extends DefaultTask {
+/**
+ * Writes the changelog entries into a new version of the changelog file.
+ * <p>
+ * The changelog file is read and written by the task. Its current content can therefore not be used as input: it
+ * changes with every execution. Instead the content before the last update is used as input, which is tracked in
+ * the {@link #getStateFile() state file}. So the task is up to date, as long as neither the entries, the changelog
+ * nor the configuration have changed after the last update, and it can be restored from the build cache.
+ */
+@CacheableTask
+public abstract class UpdateChangelogTask extends DefaultTask {
 
   public static final String NAME = "updateChangelog";
 
-  @SuppressWarnings("UnstableApiUsage")
-  private final RegularFileProperty file = getProject().getObjects().fileProperty();
-  @SuppressWarnings("UnstableApiUsage")
-  private final DirectoryProperty directory = getProject().getObjects().directoryProperty();
-  private final Property<String> versionUrlPattern = getProject().getObjects().property(String.class);
-  private final Property<String> version = getProject().getObjects().property(String.class);
+  public static final String ISOLATION_NONE = "none";
+  public static final String ISOLATION_CLASSLOADER = "classloader";
+
+  private static final DateTimeFormatter DATE_FORMAT = DateTimeFormatter.ofPattern("uuuu-MM-dd").withZone(ZoneOffset.UTC);
+
+  private Instant date;
 
   @OutputFile
-  public RegularFileProperty getFile() {
-    return file;
+  public abstract RegularFileProperty getFile();
+
+  @Internal
+  public abstract DirectoryProperty getDirectory();
+
+  @InputFiles
+  @SkipWhenEmpty
+  @IgnoreEmptyDirectories
+  @PathSensitive(PathSensitivity.RELATIVE)
+  public FileTree getEntries() {
+    return getDirectory().getAsFileTree();
   }
 
-  @InputDirectory
-  public DirectoryProperty getDirectory() {
-    return directory;
+  /**
+   * Hash of the changelog content before the last update, or of the current content if it was changed since then.
+   */
+  @Input
+  public String getBaseline() {
+    try {
+      return ChangelogState.read(getStateFile().get().getAsFile().toPath()).baselineOf(changelog());
+    } catch (IOException e) {
+      throw new UncheckedIOException("failed to read changelog state", e);
+    }
   }
 
   @Input
-  @Optional
-  public Property<String> getVersionUrlPattern() {
-    return versionUrlPattern;
+  public String getDate() {
+    return DATE_FORMAT.format(date());
   }
 
+  @Input
+  @Optional
+  public abstract Property<String> getVersionUrlPattern();
+
   @Input
   @Option(option = "release", description = "Version number of the release for changelog update")
   @Optional
-  public Property<String> getVersion() {
-    return version;
-  }
+  public abstract Property<String> getVersion();
+
+  @Internal
+  public abstract RegularFileProperty getCacheFile();
+
+  @OutputFile
+  public abstract RegularFileProperty getStateFile();
+
+  /**
+   * Json report with the duration and the counters of each phase of the update.
+   */
+  @OutputFile
+  @Optional
+  public abstract RegularFileProperty getReportFile();
+
+  /**
+   * Isolation of the worker which updates the changelog, either {@code none} or {@code classloader}.
+   */
+  @Internal
+  public abstract Property<String> getIsolation();
+
+  /**
+   * Locks the changelog during the update, for builds which update the same changelog concurrently.
+   */
+  @Internal
+  public abstract Property<Boolean> getLock();
+
+  @Inject
+  protected abstract WorkerExecutor getWorkerExecutor();
 
   @TaskAction
-  void updateChangelog() throws IOException {
-    ChangelogUpdater updater = new ChangelogUpdater(
-      file.getAsFile().get().toPath(),
-      directory.get().getAsFile().toPath(),
-      Instant.now()
+  void updateChangelog() {
+    String baseline = getBaseline();
+    workQueue().submit(UpdateChangelogAction.class, parameters -> {
+      parameters.getFile().set(getFile());
+      parameters.getDirectory().set(getDirectory());
+      parameters.getVersion().set(getVersion());
+      parameters.getVersionUrlPattern().set(getVersionUrlPattern());
+      parameters.getCacheFile().set(getCacheFile());
+      parameters.getLock().set(getLock());
+      parameters.getStateFile().set(getStateFile());
+      parameters.getReportFile().set(getReportFile());
+      parameters.getBaseline().set(baseline);
+      parameters.getDate().set(date());
+    });
+  }
+
+  private WorkQueue workQueue() {
+    String isolation = getIsolation().getOrElse(ISOLATION_NONE);
+    if (ISOLATION_NONE.equals(isolation)) {
+      return getWorkerExecutor().noIsolation();
+    }
+    if (ISOLATION_CLASSLOADER.equals(isolation)) {
+      return getWorkerExecutor().classLoaderIsolation(spec -> spec.getClasspath().from(isolatedClasspath()));
+    }
+    throw new InvalidUserDataException(
+      "unknown isolation " + isolation + ", use " + ISOLATION_NONE + " or " + ISOLATION_CLASSLOADER
     );
-    if (version.isPresent()) {
-      updater.withVersion(version.get());
+  }
+
+  /**
+   * The locations of the changelog library and its dependencies. If the plugin is used from its distribution, all of
+   * them are part of the plugin jar.
+   */
+  private static Set<File> isolatedClasspath() {
+    Set<File> classpath = new LinkedHashSet<>();
+    for (Class<?> type : Arrays.asList(ChangelogUpdater.class, Yaml.class, Hashing.class)) {
+      try {
+        classpath.add(new File(type.getProtectionDomain().getCodeSource().getLocation().toURI()));
+      } catch (URISyntaxException e) {
+        throw new IllegalStateException("failed to determine location of " + type, e);
+      }
     }
-    if (versionUrlPattern.isPresent()) {
-      updater.withVersionUrls(versionUrlPattern.get());
+    return classpath;
+  }
+
+  private Instant date() {
+    // the date is determined on first use, which is the up to date check of the task
+    if (date == null) {
+      date = Instant.now();
     }
-    updater.update();
+    return date;
   }
 
+  private Path changelog() {
+    return getFile().get().getAsFile().toPath();
+  }
 }
@@ -0,0 +1,128 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2020-present Cloudogu GmbH and Contributors
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.cloudogu.changelog;
+
+import cloudogu.scm.changelog.ChangelogException;
+import cloudogu.scm.changelog.ChangelogValidationError;
+import cloudogu.scm.changelog.ChangelogValidator;
+import org.gradle.api.DefaultTask;
+import org.gradle.api.GradleException;
+import org.gradle.api.file.DirectoryProperty;
+import org.gradle.api.file.FileCollection;
+import org.gradle.api.file.FileTree;
+import org.gradle.api.file.RegularFileProperty;
+import org.gradle.api.model.ObjectFactory;
+import org.gradle.api.tasks.CacheableTask;
+import org.gradle.api.tasks.IgnoreEmptyDirectories;
+import org.gradle.api.tasks.InputFiles;
+import org.gradle.api.tasks.Internal;
+import org.gradle.api.tasks.OutputFile;
+import org.gradle.api.tasks.PathSensitive;
+import org.gradle.api.tasks.PathSensitivity;
+import org.gradle.api.tasks.TaskAction;
+
+import javax.inject.Inject;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.stream.Collectors;
+
+/**
+ * Checks the changelog entries and the changelog file, without modifying them. The task fails with every error and
+ * its file and line, so that invalid entries are found by the {@code check} task and not by the update at release
+ * time. The task is up to date, as long as neither the entries nor the changelog have changed.
+ */
+@CacheableTask
+public abstract class ValidateChangelogTask extends DefaultTask {
+
+  public static final String NAME = "validateChangelog";
+
+  @Inject
+  protected abstract ObjectFactory getObjects();
+
+  @Internal
+  public abstract RegularFileProperty getFile();
+
+  @Internal
+  public abstract DirectoryProperty getDirectory();
+
+  /**
+   * Report with one line per error, which is empty if the changelog and its entries are valid.
+   */
+  @OutputFile
+  public abstract RegularFileProperty getReportFile();
+
+  @InputFiles
+  @IgnoreEmptyDirectories
+  @PathSensitive(PathSensitivity.RELATIVE)
+  public FileTree getEntries() {
+    return getDirectory().getAsFileTree();
+  }
+
+  /**
+   * The changelog file, as collection because it does not exist before the first release.
+   */
+  @InputFiles
+  @PathSensitive(PathSensitivity.NONE)
+  public FileCollection getChangelog() {
+    return getObjects().fileCollection().from(getFile());
+  }
+
+  @TaskAction
+  void validate() {
+    Path changelog = getFile().get().getAsFile().toPath();
+    Path directory = getDirectory().get().getAsFile().toPath();
+    List<ChangelogValidationError> errors;
+    try {
+      errors = new ChangelogValidator().validate(changelog, directory);
+    } catch (ChangelogException e) {
+      throw new GradleException(e.getMessage(), e);
+    }
+    Path reportFile = getReportFile().get().getAsFile().toPath();
+    writeReport(reportFile, errors);
+    if (!errors.isEmpty()) {
+      errors.forEach(error -> getLogger().error(error.toString()));
+      throw new GradleException(
+        "Found " + errors.size() + " errors in the changelog or its entries, see " + reportFile
+      );
+    }
+  }
+
+  private void writeReport(Path reportFile, List<ChangelogValidationError> errors) {
+    try {
+      Files.createDirectories(reportFile.getParent());
+      Files.write(
+        reportFile,
+        errors.stream().map(ChangelogValidationError::toString).collect(Collectors.toList()),
+        StandardCharsets.UTF_8
+      );
+    } catch (IOException e) {
+      throw new UncheckedIOException("failed to write validation report " + reportFile, e);
+    }
+  }
+}
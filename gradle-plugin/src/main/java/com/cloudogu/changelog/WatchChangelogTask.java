@@ -0,0 +1,67 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2020-present Cloudogu GmbH and Contributors
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.cloudogu.changelog;
+
+import cloudogu.scm.changelog.ChangelogWatcher;
+import cloudogu.scm.changelog.UnreleasedPreview;
+import org.gradle.api.DefaultTask;
+import org.gradle.api.file.DirectoryProperty;
+import org.gradle.api.file.RegularFileProperty;
+import org.gradle.api.tasks.Internal;
+import org.gradle.api.tasks.TaskAction;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Path;
+
+/**
+ * Writes a preview of the next version and keeps it up to date, while changelog entries are created, modified or
+ * deleted. The task runs until the build is cancelled.
+ */
+public abstract class WatchChangelogTask extends DefaultTask {
+
+  public static final String NAME = "watchChangelog";
+
+  @Internal
+  public abstract DirectoryProperty getDirectory();
+
+  @Internal
+  public abstract RegularFileProperty getPreviewFile();
+
+  @TaskAction
+  void watch() {
+    Path directory = getDirectory().get().getAsFile().toPath();
+    Path previewFile = getPreviewFile().get().getAsFile().toPath();
+    UnreleasedPreview preview = new UnreleasedPreview(directory, previewFile)
+      .withErrorHandler(e -> getLogger().warn("{}: {}", e.getMessage(), e.getCause() != null ? e.getCause().getMessage() : ""));
+    try (ChangelogWatcher watcher = new ChangelogWatcher(preview)) {
+      watcher.withUpdateListener(() -> getLogger().lifecycle("Updated preview {}", previewFile));
+      getLogger().lifecycle("Watching {} for changes, press ctrl-c to stop", directory);
+      watcher.run();
+    } catch (IOException e) {
+      throw new UncheckedIOException("failed to watch changelog entries in " + directory, e);
+    }
+  }
+}
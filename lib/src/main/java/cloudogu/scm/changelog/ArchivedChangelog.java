@@ -0,0 +1,130 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2020-present Cloudogu GmbH and Contributors
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package cloudogu.scm.changelog;
+
+import java.nio.file.Path;
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import static java.util.Collections.emptyList;
+
+/**
+ * A changelog together with its archives (see {@link ChangelogArchive}). The versions of the archives follow the
+ * versions of the changelog, latest major version first. An archive is only mapped, if one of its versions or the
+ * links are requested, so reading the recent versions only touches the changelog itself.
+ */
+final class ArchivedChangelog extends Changelog {
+
+  private final Changelog changelog;
+  private final List<Path> archiveFiles;
+  private final Changelog[] archives;
+
+  private final Versions versions = new Versions();
+  private List<VersionLink> links;
+
+  ArchivedChangelog(Changelog changelog, List<Path> archiveFiles) {
+    super(emptyList(), emptyList(), emptyList());
+    this.changelog = changelog;
+    this.archiveFiles = archiveFiles;
+    this.archives = new Changelog[archiveFiles.size()];
+  }
+
+  @Override
+  public List<String> getHeader() {
+    return changelog.getHeader();
+  }
+
+  @Override
+  public List<Version> getVersions() {
+    return versions;
+  }
+
+  @Override
+  public synchronized List<VersionLink> getLinks() {
+    if (links == null) {
+      List<VersionLink> result = new ArrayList<>(changelog.getLinks());
+      for (int i = 0; i < archives.length; i++) {
+        result.addAll(archive(i).getLinks());
+      }
+      links = Collections.unmodifiableList(result);
+    }
+    return links;
+  }
+
+  private int partCount() {
+    return archives.length + 1;
+  }
+
+  private List<Version> versionsOf(int part) {
+    return part == 0 ? changelog.getVersions() : archive(part - 1).getVersions();
+  }
+
+  private synchronized Changelog archive(int index) {
+    if (archives[index] == null) {
+      archives[index] = MappedChangelog.map(archiveFiles.get(index));
+    }
+    return archives[index];
+  }
+
+  private class Versions extends AbstractList<Version> {
+
+    @Override
+    public boolean isEmpty() {
+      for (int part = 0; part < partCount(); part++) {
+        if (!versionsOf(part).isEmpty()) {
+          return false;
+        }
+      }
+      return true;
+    }
+
+    @Override
+    public int size() {
+      int size = 0;
+      for (int part = 0; part < partCount(); part++) {
+        size += versionsOf(part).size();
+      }
+      return size;
+    }
+
+    @Override
+    public Version get(int index) {
+      if (index < 0) {
+        throw new IndexOutOfBoundsException("Index: " + index);
+      }
+      int remaining = index;
+      for (int part = 0; part < partCount(); part++) {
+        List<Version> partVersions = versionsOf(part);
+        if (remaining < partVersions.size()) {
+          return partVersions.get(remaining);
+        }
+        remaining -= partVersions.size();
+      }
+      throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size());
+    }
+  }
+}
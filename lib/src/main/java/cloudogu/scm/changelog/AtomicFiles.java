@@ -0,0 +1,149 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2020-present Cloudogu GmbH and Contributors
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package cloudogu.scm.changelog;
+
+import com.google.common.hash.Hasher;
+import com.google.common.hash.Hashing;
+
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.PosixFileAttributeView;
+
+/**
+ * Replaces files atomically: the new content is written to a temporary file next to the target, which is then moved
+ * over the target. Readers see either the old or the new content, but never a partially written file.
+ */
+final class AtomicFiles {
+
+  private static final int BUFFER_SIZE = 8192;
+
+  private AtomicFiles() {
+  }
+
+  /**
+   * Creates a temporary file in the directory of the target. The caller has to delete the file, if it was not moved.
+   */
+  static Path createTempFile(Path target) throws IOException {
+    Path directory = target.toAbsolutePath().getParent();
+    Files.createDirectories(directory);
+    return Files.createTempFile(directory, "." + target.getFileName(), ".tmp");
+  }
+
+  /**
+   * Writes the content to the temporary file and forces it to the storage device, so that the file is complete,
+   * before it is moved over the target. Errors of the writer, which are otherwise swallowed by
+   * {@link PrintWriter}, are thrown as {@link IOException}.
+   */
+  static void write(Path tempFile, Content content) throws IOException {
+    try (PrintWriter out = new PrintWriter(Files.newBufferedWriter(tempFile))) {
+      content.write(out);
+      out.flush();
+      if (out.checkError()) {
+        throw new IOException("failed to write " + tempFile);
+      }
+    }
+    force(tempFile);
+  }
+
+  static void force(Path file) throws IOException {
+    try (FileChannel channel = FileChannel.open(file, StandardOpenOption.WRITE)) {
+      channel.force(true);
+    }
+  }
+
+  /**
+   * Moves the temporary file over the target. If an expected hash is given, the content of the target is compared and
+   * replaced while the target is locked for the other threads of this jvm, so that two updates, which have read the
+   * same content, can not both replace it. Other processes are only excluded, if they hold the {@link ChangelogLock}
+   * of the target, see {@link ChangelogUpdater#withLock(boolean)}.
+   *
+   * @param expectedHash hash of the content of the target, from which the content of the temporary file was derived,
+   *                     or {@code null} to replace the target regardless of its content
+   * @throws ConcurrentChangelogModificationException if the content of the target does not match the expected hash
+   */
+  static void replace(Path tempFile, Path target, String expectedHash) throws IOException {
+    if (Files.exists(target)) {
+      copyPermissions(target, tempFile);
+    }
+    if (expectedHash == null) {
+      move(tempFile, target);
+      return;
+    }
+    try (ChangelogLock ignored = ChangelogLock.acquireInProcess(target)) {
+      if (!expectedHash.equals(hash(target))) {
+        throw new ConcurrentChangelogModificationException(target);
+      }
+      move(tempFile, target);
+    }
+  }
+
+  private static void move(Path tempFile, Path target) throws IOException {
+    try {
+      Files.move(tempFile, target, StandardCopyOption.ATOMIC_MOVE);
+    } catch (AtomicMoveNotSupportedException e) {
+      Files.move(tempFile, target, StandardCopyOption.REPLACE_EXISTING);
+    }
+  }
+
+  private static void copyPermissions(Path source, Path target) throws IOException {
+    PosixFileAttributeView view = Files.getFileAttributeView(source, PosixFileAttributeView.class);
+    if (view != null) {
+      Files.setPosixFilePermissions(target, view.readAttributes().permissions());
+    }
+  }
+
+  static String hash(Path file) throws IOException {
+    try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+      return hash(channel);
+    }
+  }
+
+  /**
+   * Returns the sha-256 hash of the whole content of the channel. The position of the channel is not changed.
+   */
+  static String hash(FileChannel channel) throws IOException {
+    Hasher hasher = Hashing.sha256().newHasher();
+    ByteBuffer buffer = ByteBuffer.allocate(BUFFER_SIZE);
+    long position = 0;
+    int read;
+    while ((read = channel.read(buffer, position)) >= 0) {
+      hasher.putBytes(buffer.array(), 0, read);
+      position += read;
+      buffer.clear();
+    }
+    return hasher.hash().toString();
+  }
+
+  interface Content {
+    void write(PrintWriter out) throws IOException;
+  }
+}
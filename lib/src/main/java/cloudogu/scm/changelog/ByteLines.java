@@ -0,0 +1,206 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2020-present Cloudogu GmbH and Contributors
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package cloudogu.scm.changelog;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * Line handling on the raw bytes of a changelog file. All markers of the changelog format are ascii characters and
+ * can therefore be found without decoding the file. Only the lines which are of interest are decoded, so that the
+ * rules of {@link ChangelogLines} can be applied to them.
+ */
+final class ByteLines {
+
+  private static final int BUFFER_SIZE = 8192;
+
+  private final CharsetDecoder decoder = StandardCharsets.UTF_8.newDecoder()
+    .onMalformedInput(CodingErrorAction.REPORT)
+    .onUnmappableCharacter(CodingErrorAction.REPORT);
+
+  private char[] chars = new char[256];
+
+  /**
+   * Decodes the line into the reused character array, which is returned by {@link #chars()}.
+   *
+   * @return number of decoded characters
+   */
+  int decode(ByteBuffer buffer, int start, int end) throws IOException {
+    int length = end - start;
+    if (chars.length < length) {
+      chars = new char[Math.max(length, chars.length * 2)];
+    }
+    for (int i = 0; i < length; i++) {
+      byte b = buffer.get(start + i);
+      if (b < 0) {
+        return decodeUtf8(buffer, start, end);
+      }
+      chars[i] = (char) b;
+    }
+    return length;
+  }
+
+  private int decodeUtf8(ByteBuffer buffer, int start, int end) throws IOException {
+    ByteBuffer in = buffer.duplicate();
+    in.limit(end).position(start);
+    CharBuffer out = CharBuffer.wrap(chars);
+    decoder.reset();
+    CoderResult result = decoder.decode(in, out, true);
+    if (result.isUnderflow()) {
+      result = decoder.flush(out);
+    }
+    if (result.isError()) {
+      result.throwException();
+    }
+    return out.position();
+  }
+
+  char[] chars() {
+    return chars;
+  }
+
+  /**
+   * Decodes all lines of the given range and passes them to the consumer.
+   */
+  void decodeLines(ByteBuffer buffer, int from, int to, ChangelogParser.LineConsumer consumer) throws IOException {
+    int start = from;
+    while (start < to) {
+      int end = lineEnd(buffer, start, to);
+      int length = decode(buffer, start, end);
+      consumer.readLine(chars, 0, length);
+      start = nextLine(buffer, end, to);
+    }
+  }
+
+  /**
+   * Returns the index of the line break of the line starting at the given index, or the end of the range.
+   */
+  static int lineEnd(ByteBuffer buffer, int start, int to) {
+    int pos = start;
+    while (pos < to && !isLineBreak(buffer.get(pos))) {
+      pos++;
+    }
+    return pos;
+  }
+
+  /**
+   * Returns the start of the line after the line break at the given index.
+   */
+  static int nextLine(ByteBuffer buffer, int lineEnd, int to) {
+    if (lineEnd + 1 < to && buffer.get(lineEnd) == '\r' && buffer.get(lineEnd + 1) == '\n') {
+      return lineEnd + 2;
+    }
+    return lineEnd + 1;
+  }
+
+  /**
+   * Returns the first character of the trimmed line, or a space if the line is blank.
+   */
+  static char firstCharacter(ByteBuffer buffer, int start, int end) {
+    for (int i = start; i < end; i++) {
+      int b = buffer.get(i) & 0xff;
+      if (b > ' ') {
+        return (char) b;
+      }
+    }
+    return ' ';
+  }
+
+  static boolean isLineBreak(byte b) {
+    return b == '\n' || b == '\r';
+  }
+
+  /**
+   * Calls the visitor for each line of the channel starting at the given position, until the visitor returns
+   * {@code false} or the end of the channel is reached. Lines are terminated by {@code \n}, {@code \r} or
+   * {@code \r\n}, like {@link java.io.BufferedReader#readLine()} does.
+   */
+  static void forEachLine(FileChannel channel, long position, LineVisitor visitor) throws IOException {
+    ByteBuffer buffer = ByteBuffer.allocate(BUFFER_SIZE);
+    long bufferOffset = position;
+    boolean eof = false;
+    while (true) {
+      int read = eof ? -1 : channel.read(buffer, bufferOffset + buffer.position());
+      eof = read < 0;
+      int limit = buffer.position();
+      int start = 0;
+      for (int pos = 0; pos < limit; pos++) {
+        byte b = buffer.get(pos);
+        if (isLineBreak(b)) {
+          if (b == '\r' && pos + 1 == limit && !eof) {
+            // we have to know the next byte, to decide whether this is a \r\n line break
+            break;
+          }
+          int next = b == '\r' && pos + 1 < limit && buffer.get(pos + 1) == '\n' ? pos + 2 : pos + 1;
+          if (!visitor.visit(buffer, start, pos, bufferOffset + start, bufferOffset + next)) {
+            return;
+          }
+          start = next;
+          pos = next - 1;
+        }
+      }
+      if (eof) {
+        if (start < limit) {
+          visitor.visit(buffer, start, limit, bufferOffset + start, bufferOffset + limit);
+        }
+        return;
+      }
+      buffer = compact(buffer, start, limit);
+      bufferOffset += start;
+    }
+  }
+
+  private static ByteBuffer compact(ByteBuffer buffer, int start, int limit) {
+    if (start == 0 && limit == buffer.capacity()) {
+      byte[] grown = Arrays.copyOf(buffer.array(), buffer.capacity() * 2);
+      return ByteBuffer.wrap(grown).position(limit);
+    }
+    buffer.limit(limit).position(start);
+    buffer.compact();
+    return buffer;
+  }
+
+  interface LineVisitor {
+
+    /**
+     * Visits a single line without its line break.
+     *
+     * @param buffer      buffer containing the line
+     * @param start       index of the first byte of the line in the buffer
+     * @param end         index after the last byte of the line (without line break) in the buffer
+     * @param lineOffset  offset of the first byte of the line in the file
+     * @param nextOffset  offset of the first byte of the next line in the file
+     * @return {@code true} to continue with the next line
+     */
+    boolean visit(ByteBuffer buffer, int start, int end, long lineOffset, long nextOffset) throws IOException;
+  }
+}
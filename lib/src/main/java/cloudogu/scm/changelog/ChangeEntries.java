@@ -26,16 +26,25 @@ package cloudogu.scm.changelog;
 
 import org.yaml.snakeyaml.Yaml;
 import org.yaml.snakeyaml.constructor.CustomClassLoaderConstructor;
+import org.yaml.snakeyaml.error.YAMLException;
 
+import java.io.ByteArrayInputStream;
 import java.io.IOException;
+import java.nio.file.FileVisitOption;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Locale;
 import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.function.Function;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
 
@@ -47,11 +56,48 @@ class ChangeEntries {
   public static final String FIXED = "Fixed";
   public static final String CHANGED = "Changed";
 
-  private static final Yaml YAML = new Yaml(new CustomClassLoaderConstructor(ChangelogEntry.class.getClassLoader()));
+  // yaml instances are not thread safe
+  private static final ThreadLocal<Yaml> YAML = ThreadLocal.withInitial(
+    () -> new Yaml(new CustomClassLoaderConstructor(ChangelogEntry.class.getClassLoader()))
+  );
   private static final List<String> TYPE_ORDER = asList(ADDED, FIXED, CHANGED);
 
+  private final int parallelism;
+  private Path cacheFile;
+  private ChangelogUpdateListener listener = ChangelogUpdateListener.NOOP;
+
+  ChangeEntries() {
+    this(Runtime.getRuntime().availableProcessors());
+  }
+
+  /**
+   * @param parallelism maximum number of entry files which are parsed (and opened) at the same time
+   */
+  ChangeEntries(int parallelism) {
+    this.parallelism = Math.max(1, parallelism);
+  }
+
+  /**
+   * Caches the parsed entries in the given file, so that only new or modified entry files are parsed on the next run.
+   */
+  ChangeEntries withCache(Path cacheFile) {
+    this.cacheFile = cacheFile;
+    return this;
+  }
+
+  ChangeEntries withListener(ChangelogUpdateListener listener) {
+    this.listener = listener;
+    return this;
+  }
+
   Map<String, List<Changelog.Change>> from(Path path) {
-    List<ChangelogEntry> entries = getEntries(path);
+    return group(getEntries(path));
+  }
+
+  /**
+   * Groups the entries by their type, in the order of the change types.
+   */
+  static Map<String, List<Changelog.Change>> group(Collection<ChangelogEntry> entries) {
     Map<String, List<Changelog.Change>> changes = new LinkedHashMap<>();
     entries.forEach(
       entry -> changes
@@ -61,26 +107,114 @@ class ChangeEntries {
     return orderByChangeTypes(changes);
   }
 
+  /**
+   * Reads the entries of all files below the given path. The files are parsed in parallel, but the entries are
+   * always returned in the order of the relative paths of their files. So the result does not depend on the order
+   * of the file system or on the number of threads.
+   */
   private List<ChangelogEntry> getEntries(Path fileOrDirectory) {
-    List<ChangelogEntry> entries = new ArrayList<>();
-    if (Files.isDirectory(fileOrDirectory)) {
-      try (Stream<Path> files = Files.list(fileOrDirectory)) {
-        files.forEach(file -> entries.addAll(getEntries(file)));
-      } catch (IOException e) {
-        throw new ChangelogException("Failed to read changelog entries", e);
-      }
+    PhaseCounter scan = PhaseCounter.start(ChangelogUpdatePhase.SCAN_ENTRIES);
+    List<Path> files = findFiles(fileOrDirectory);
+    scan.add(files.size(), 0);
+    scan.complete(listener);
+
+    PhaseCounter parsing = PhaseCounter.start(ChangelogUpdatePhase.PARSE_ENTRIES);
+    Map<String, List<ChangelogEntry>> packed = readPack(fileOrDirectory, parsing);
+    List<List<ChangelogEntry>> entries;
+    if (cacheFile == null) {
+      entries = parseAll(files, parallelism, file -> parse(file, parsing));
     } else {
-      entries.addAll(
-        parse(fileOrDirectory)
-          .stream()
-          .map(it -> new ChangelogEntry(it.get("type"), it.get("description")))
-          .collect(Collectors.toList())
-      );
+      FragmentCache cache = FragmentCache.load(cacheFile, fileOrDirectory);
+      entries = parseAll(files, parallelism, file -> cache.get(relativeName(fileOrDirectory, file), file, parsing));
+      cache.store();
+    }
+    parsing.complete(listener);
+    if (packed.isEmpty()) {
+      return flatten(entries);
+    }
+    return flatten(merge(fileOrDirectory, packed, files, entries));
+  }
+
+  private static Map<String, List<ChangelogEntry>> readPack(Path fileOrDirectory, PhaseCounter counter) {
+    FragmentPack pack = new FragmentPack(fileOrDirectory);
+    if (!Files.isDirectory(fileOrDirectory) || !Files.exists(pack.getFile())) {
+      return Collections.emptyMap();
+    }
+    Map<String, List<ChangelogEntry>> packed = pack.read();
+    try {
+      counter.add(packed.size(), Files.size(pack.getFile()));
+    } catch (IOException e) {
+      throw new ChangelogException("failed to read changelog entry pack " + pack.getFile(), e);
+    }
+    return packed;
+  }
+
+  /**
+   * Combines the packed and the loose entry files in the order of their names, like all of them were loose. A loose
+   * file replaces a packed file with the same name.
+   */
+  private static List<List<ChangelogEntry>> merge(Path directory, Map<String, List<ChangelogEntry>> packed, List<Path> files, List<List<ChangelogEntry>> loose) {
+    Map<String, List<ChangelogEntry>> all = new TreeMap<>(packed);
+    for (int i = 0; i < files.size(); i++) {
+      all.put(relativeName(directory, files.get(i)), loose.get(i));
+    }
+    return new ArrayList<>(all.values());
+  }
+
+  /**
+   * Applies the parser to all files, with at most the given number of files at the same time. The results are in the
+   * order of the files.
+   */
+  static <T> List<T> parseAll(List<Path> files, int parallelism, Function<Path, T> parser) {
+    if (parallelism == 1 || files.size() < 2) {
+      return files.stream().map(parser).collect(Collectors.toList());
+    }
+    if (ForkJoinTask.inForkJoinPool()) {
+      // e.g. called by a ChangelogBatch, we share the pool of the caller
+      return files.parallelStream().map(parser).collect(Collectors.toList());
+    }
+    ForkJoinPool pool = new ForkJoinPool(Math.min(parallelism, files.size()));
+    try {
+      return pool.submit(() -> files.parallelStream().map(parser).collect(Collectors.toList())).get();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new ChangelogException("Interrupted while reading changelog entries", e);
+    } catch (ExecutionException e) {
+      if (e.getCause() instanceof RuntimeException) {
+        throw (RuntimeException) e.getCause();
+      }
+      throw new ChangelogException("Failed to read changelog entries", e.getCause());
+    } finally {
+      pool.shutdown();
+    }
+  }
+
+  private static List<ChangelogEntry> flatten(List<List<ChangelogEntry>> entries) {
+    return entries.stream().flatMap(List::stream).collect(Collectors.toList());
+  }
+
+  static List<Path> findFiles(Path fileOrDirectory) {
+    if (!Files.isDirectory(fileOrDirectory)) {
+      return asList(fileOrDirectory);
+    }
+    try (Stream<Path> files = Files.walk(fileOrDirectory, FileVisitOption.FOLLOW_LINKS)) {
+      // the relative name is computed once per file and not for each comparison of the sort
+      Map<String, Path> sorted = new TreeMap<>();
+      files
+        .filter(file -> !Files.isDirectory(file) && !FragmentPack.isPackFile(file))
+        .forEach(file -> sorted.put(relativeName(fileOrDirectory, file), file));
+      return new ArrayList<>(sorted.values());
+    } catch (IOException e) {
+      throw new ChangelogException("Failed to read changelog entries", e);
     }
-    return entries;
   }
 
-  private Map<String, List<Changelog.Change>> orderByChangeTypes(Map<String, List<Changelog.Change>> changeTypes) {
+  static String relativeName(Path directory, Path file) {
+    // use the same separator on every platform, to get the same order everywhere
+    return directory.relativize(file).toString().replace('\\', '/');
+  }
+
+  private static Map<String, List<Changelog.Change>> orderByChangeTypes(Map<String, List<Changelog.Change>> changeTypes) {
     Map<String, List<Changelog.Change>> orderedChange = new LinkedHashMap<>();
     TYPE_ORDER.forEach(
       type -> {
@@ -98,19 +232,68 @@ class ChangeEntries {
   }
 
 
-  private static Collection<LinkedHashMap<String, String>> parse(Path fileOrDirectory) {
+  static List<ChangelogEntry> parse(Path file) {
+    return parse(file, (PhaseCounter) null);
+  }
+
+  private static List<ChangelogEntry> parse(Path file, PhaseCounter counter) {
     try {
-      return YAML.loadAs(Files.newInputStream(fileOrDirectory), List.class);
+      byte[] content = Files.readAllBytes(file);
+      if (counter != null) {
+        counter.add(1, content.length);
+      }
+      return parse(file, content);
     } catch (IOException e) {
-      throw new ChangelogException("failed to parse changelog entry", e);
+      throw new ChangelogException("failed to parse changelog entry " + file, e);
     }
   }
 
+  /**
+   * Parses the content of an entry file. Files in the documented format are read by the {@link FragmentReader},
+   * all others by SnakeYAML.
+   */
+  static List<ChangelogEntry> parse(Path file, byte[] content) {
+    FragmentParseEvent event = new FragmentParseEvent();
+    event.begin();
+    List<ChangelogEntry> entries;
+    boolean yaml;
+    try {
+      entries = FragmentReader.read(content);
+      yaml = entries == null;
+      if (yaml) {
+        entries = parseYaml(content);
+      }
+    } catch (YAMLException | IllegalArgumentException e) {
+      throw new ChangelogException("failed to parse changelog entry " + file, e);
+    }
+    if (entries == null) {
+      // snakeyaml returns null for an empty file or a file with only comments, e.g. a new entry file
+      throw new ChangelogException("changelog entry " + file + " contains no changes");
+    }
+    event.complete(file, content.length, entries.size(), yaml);
+    return entries;
+  }
+
+  @SuppressWarnings("unchecked")
+  private static List<ChangelogEntry> parseYaml(byte[] content) {
+    Collection<LinkedHashMap<String, String>> entries = YAML.get().loadAs(new ByteArrayInputStream(content), List.class);
+    if (entries == null) {
+      return null;
+    }
+    return entries
+      .stream()
+      .map(it -> new ChangelogEntry(it.get("type"), it.get("description")))
+      .collect(Collectors.toList());
+  }
+
   static class ChangelogEntry {
     private final String type;
     private final String description;
 
     public ChangelogEntry(String type, String description) {
+      if (type == null || type.isEmpty()) {
+        throw new IllegalArgumentException("changelog entry without type");
+      }
       this.type = normalize(type);
       this.description = description;
     }
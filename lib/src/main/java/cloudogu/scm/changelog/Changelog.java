@@ -31,6 +31,7 @@ import java.time.format.DateTimeFormatter;
 import java.util.Collections;
 import java.util.List;
 import java.util.Map;
+import java.util.Optional;
 
 import static java.util.Collections.emptyMap;
 
@@ -42,6 +43,8 @@ public class Changelog {
   private final List<Version> versions;
   private final List<VersionLink> links;
 
+  private volatile VersionIndex index;
+
   public Changelog(List<String> header, List<Version> versions, List<VersionLink> links) {
     this.header = header;
     this.versions = versions;
@@ -60,6 +63,59 @@ public class Changelog {
     return links;
   }
 
+  /**
+   * Returns the version with the given number. Numbers are compared as semantic versions, so {@code 2.3} finds the
+   * version {@code 2.3.0}.
+   *
+   * @throws IllegalArgumentException if the number is not a semantic version
+   */
+  public Optional<Version> findVersion(String number) {
+    return Optional.ofNullable(index().find(number));
+  }
+
+  /**
+   * Returns the version with the highest semantic version, which is not necessarily the first version of the file.
+   */
+  public Optional<Version> getLatestVersion() {
+    return Optional.ofNullable(index().latest());
+  }
+
+  /**
+   * Returns all versions which are newer than the given one, latest first.
+   *
+   * @throws IllegalArgumentException if the number is not a semantic version
+   */
+  public List<Version> getVersionsAfter(String number) {
+    return index().range(number, null);
+  }
+
+  /**
+   * Returns all versions which are newer than {@code from} and not newer than {@code to}, latest first. E.g. the
+   * versions between {@code 2.3.0} and {@code 2.17.4} are the changes an update from 2.3.0 to 2.17.4 brings.
+   *
+   * @throws IllegalArgumentException if one of the numbers is not a semantic version
+   */
+  public List<Version> getVersionsBetween(String from, String to) {
+    return index().range(from, to);
+  }
+
+  /**
+   * The index is built once on the first query, versions without a semantic version number are ignored.
+   */
+  private VersionIndex index() {
+    VersionIndex result = index;
+    if (result == null) {
+      synchronized (this) {
+        result = index;
+        if (result == null) {
+          result = VersionIndex.of(getVersions());
+          index = result;
+        }
+      }
+    }
+    return result;
+  }
+
   public static class Change {
     private final String value;
 
@@ -109,7 +165,7 @@ public class Changelog {
       writeChanges(out);
     }
 
-    private void writeChanges(PrintWriter out) {
+    void writeChanges(PrintWriter out) {
       getChanges().forEach((key, value) -> {
         out.println("### " + capitalize(key));
         value.forEach(change -> change.write(out));
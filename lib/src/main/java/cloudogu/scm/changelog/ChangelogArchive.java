@@ -0,0 +1,288 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2020-present Cloudogu GmbH and Contributors
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package cloudogu.scm.changelog;
+
+import com.google.common.hash.Hashing;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.channels.Channels;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.time.Period;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Moves old versions of a changelog into archive files next to it, one file per major version, e.g.
+ * {@code CHANGELOG-1.x.md} for the versions 1.x of {@code CHANGELOG.md}. The changelog itself keeps only the recent
+ * versions, so that it stays small and routine updates do not have to read and write the whole history.
+ * {@link ChangelogParser#parseWithArchives(Path)} reads the changelog and its archives as a single changelog.
+ * <p>
+ * A version is archived if its major version is older than the kept major versions, or if it was released before the
+ * maximum age. The first version of the changelog is never archived, because the next version number is computed from
+ * it.
+ */
+public final class ChangelogArchive {
+
+  private final Path changelogFile;
+  private final Instant date;
+  private int majorsToKeep;
+  private Period maxAge;
+
+  public ChangelogArchive(Path changelogFile) {
+    this(changelogFile, Instant.now());
+  }
+
+  /**
+   * @param date reference date for the maximum age
+   */
+  public ChangelogArchive(Path changelogFile, Instant date) {
+    this.changelogFile = changelogFile;
+    this.date = date;
+  }
+
+  /**
+   * Keeps the versions of the given number of major versions in the changelog, e.g. with {@code 1} all versions
+   * before 3.0.0 are archived, as soon as 3.0.0 was released.
+   */
+  public ChangelogArchive withMajorsToKeep(int majorsToKeep) {
+    this.majorsToKeep = majorsToKeep;
+    return this;
+  }
+
+  /**
+   * Archives all versions which were released before the given period.
+   */
+  public ChangelogArchive withMaxAge(Period maxAge) {
+    this.maxAge = maxAge;
+    return this;
+  }
+
+  Path getChangelogFile() {
+    return changelogFile;
+  }
+
+  /**
+   * Returns the archive file for the versions of the given major version.
+   */
+  public Path getArchiveFile(int major) {
+    String[] name = splitExtension(changelogFile);
+    return changelogFile.resolveSibling(name[0] + "-" + major + ".x" + name[1]);
+  }
+
+  /**
+   * Returns the existing archive files of the changelog, latest major version first.
+   */
+  public static List<Path> findArchiveFiles(Path changelogFile) {
+    Path directory = changelogFile.toAbsolutePath().getParent();
+    if (!Files.isDirectory(directory)) {
+      return Collections.emptyList();
+    }
+    String[] name = splitExtension(changelogFile);
+    Pattern pattern = Pattern.compile(Pattern.quote(name[0]) + "-(\\d+)\\.x" + Pattern.quote(name[1]));
+    Map<Integer, Path> archives = new TreeMap<>(Comparator.reverseOrder());
+    try (Stream<Path> files = Files.list(directory)) {
+      files.forEach(file -> {
+        Matcher matcher = pattern.matcher(file.getFileName().toString());
+        if (matcher.matches()) {
+          archives.put(Integer.parseInt(matcher.group(1)), changelogFile.resolveSibling(file.getFileName()));
+        }
+      });
+    } catch (IOException e) {
+      throw new ChangelogException("failed to list archives of changelog " + changelogFile, e);
+    }
+    return new ArrayList<>(archives.values());
+  }
+
+  private static String[] splitExtension(Path file) {
+    String name = file.getFileName().toString();
+    int dot = name.lastIndexOf('.');
+    if (dot <= 0) {
+      return new String[]{name, ""};
+    }
+    return new String[]{name.substring(0, dot), name.substring(dot)};
+  }
+
+  /**
+   * Moves the versions, which have to be archived, together with their links from the changelog into the archive
+   * files. The archives are written before the changelog, so an interrupted run may leave a version in both files,
+   * but it never loses one.
+   *
+   * @return number of archived versions
+   * @throws ConcurrentChangelogModificationException if the changelog or an archive was modified during the run
+   */
+  public int archive() throws IOException {
+    if (majorsToKeep <= 0 && maxAge == null) {
+      return 0;
+    }
+    ChangelogFile changelog = ChangelogFile.read(changelogFile);
+    List<Changelog.Version> versions = changelog.content.getVersions();
+    int latestMajor = versions.stream().mapToInt(ChangelogArchive::major).max().orElse(-1);
+    Instant oldest = maxAge == null ? null : date.atZone(ZoneOffset.UTC).minus(maxAge).toInstant();
+
+    List<Changelog.Version> kept = new ArrayList<>();
+    Map<Integer, List<Changelog.Version>> archived = new TreeMap<>(Comparator.reverseOrder());
+    for (int i = 0; i < versions.size(); i++) {
+      Changelog.Version version = versions.get(i);
+      if (i > 0 && isArchived(version, latestMajor, oldest)) {
+        archived.computeIfAbsent(major(version), major -> new ArrayList<>()).add(version);
+      } else {
+        kept.add(version);
+      }
+    }
+    if (archived.isEmpty()) {
+      return 0;
+    }
+
+    Map<String, Integer> archivedMajors = new HashMap<>();
+    archived.forEach((major, archivedVersions) -> archivedVersions.forEach(v -> archivedMajors.put(v.getNumber(), major)));
+    List<Changelog.VersionLink> keptLinks = new ArrayList<>();
+    Map<Integer, List<Changelog.VersionLink>> archivedLinks = new HashMap<>();
+    for (Changelog.VersionLink link : changelog.content.getLinks()) {
+      Integer major = archivedMajors.get(link.getVersion());
+      if (major == null) {
+        keptLinks.add(link);
+      } else {
+        archivedLinks.computeIfAbsent(major, m -> new ArrayList<>()).add(link);
+      }
+    }
+
+    for (Map.Entry<Integer, List<Changelog.Version>> entry : archived.entrySet()) {
+      int major = entry.getKey();
+      addToArchive(major, entry.getValue(), archivedLinks.getOrDefault(major, Collections.emptyList()));
+    }
+    write(changelogFile, changelog.hash, new Changelog(changelog.content.getHeader(), kept, keptLinks));
+    return archived.values().stream().mapToInt(List::size).sum();
+  }
+
+  private boolean isArchived(Changelog.Version version, int latestMajor, Instant oldest) {
+    int major = major(version);
+    if (major < 0) {
+      return false;
+    }
+    return (majorsToKeep > 0 && major <= latestMajor - majorsToKeep)
+      || (oldest != null && version.getDate().isBefore(oldest));
+  }
+
+  /**
+   * The archived versions are newer than the versions which are already in the archive, so they are written first.
+   * Versions and links which are already in the archive are skipped, e.g. if a previous run has written the archive
+   * but could not remove the versions from the changelog, because it was modified concurrently.
+   */
+  private void addToArchive(int major, List<Changelog.Version> versions, List<Changelog.VersionLink> links) throws IOException {
+    Path archiveFile = getArchiveFile(major);
+    List<String> header;
+    List<Changelog.Version> allVersions = new ArrayList<>(versions);
+    List<Changelog.VersionLink> allLinks = new ArrayList<>(links);
+    String hash = null;
+    if (Files.exists(archiveFile)) {
+      ChangelogFile archive = ChangelogFile.read(archiveFile);
+      header = archive.content.getHeader();
+      Set<String> archivedVersions = archive.content.getVersions().stream()
+        .map(Changelog.Version::getNumber)
+        .collect(Collectors.toSet());
+      Set<String> archivedLinks = archive.content.getLinks().stream()
+        .map(Changelog.VersionLink::getVersion)
+        .collect(Collectors.toSet());
+      allVersions.removeIf(version -> archivedVersions.contains(version.getNumber()));
+      allLinks.removeIf(link -> archivedLinks.contains(link.getVersion()));
+      allVersions.addAll(archive.content.getVersions());
+      allLinks.addAll(archive.content.getLinks());
+      hash = archive.hash;
+    } else {
+      header = Arrays.asList("# Changelog " + major + ".x", "");
+    }
+    write(archiveFile, hash, new Changelog(header, allVersions, allLinks));
+  }
+
+  private static void write(Path file, String expectedHash, Changelog changelog) throws IOException {
+    Set<String> linked = changelog.getLinks().stream().map(Changelog.VersionLink::getVersion).collect(Collectors.toSet());
+    Path tempFile = AtomicFiles.createTempFile(file);
+    try {
+      AtomicFiles.write(tempFile, out -> {
+        changelog.getHeader().forEach(out::println);
+        for (Changelog.Version version : changelog.getVersions()) {
+          if (linked.contains(version.getNumber())) {
+            version.writeWithLink(out);
+          } else {
+            version.write(out);
+          }
+        }
+        changelog.getLinks().forEach(link -> link.write(out));
+      });
+      AtomicFiles.replace(tempFile, file, expectedHash);
+    } finally {
+      Files.deleteIfExists(tempFile);
+    }
+  }
+
+  /**
+   * Returns the major version of the version number or -1, if the number does not start with a major version.
+   */
+  static int major(Changelog.Version version) {
+    String number = version.getNumber();
+    int end = 0;
+    while (end < number.length() && end < 9 && number.charAt(end) >= '0' && number.charAt(end) <= '9') {
+      end++;
+    }
+    return end == 0 ? -1 : Integer.parseInt(number.substring(0, end));
+  }
+
+  private static final class ChangelogFile {
+
+    private final Changelog content;
+    private final String hash;
+
+    private ChangelogFile(Changelog content, String hash) {
+      this.content = content;
+      this.hash = hash;
+    }
+
+    private static ChangelogFile read(Path file) throws IOException {
+      byte[] bytes;
+      try {
+        bytes = Files.readAllBytes(file);
+      } catch (IOException e) {
+        throw new ReadChangelogFileException(file, e);
+      }
+      Changelog content = new ChangelogParser().parse(Channels.newChannel(new ByteArrayInputStream(bytes)));
+      return new ChangelogFile(content, Hashing.sha256().hashBytes(bytes).toString());
+    }
+  }
+}
@@ -0,0 +1,174 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2020-present Cloudogu GmbH and Contributors
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package cloudogu.scm.changelog;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.IntFunction;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+/**
+ * Updates several changelogs at once on a shared, bounded thread pool. The entries of all changelogs are read
+ * before the first changelog is written, so that no changelog is modified if the entries of any changelog are
+ * invalid.
+ */
+public final class ChangelogBatch {
+
+  private final int parallelism;
+  private final List<ChangelogUpdater> updaters = new ArrayList<>();
+
+  public ChangelogBatch() {
+    this(Runtime.getRuntime().availableProcessors());
+  }
+
+  /**
+   * @param parallelism maximum number of threads, which are used for reading entries and writing changelogs
+   */
+  public ChangelogBatch(int parallelism) {
+    this.parallelism = Math.max(1, parallelism);
+  }
+
+  public ChangelogBatch add(ChangelogUpdater updater) {
+    updaters.add(updater);
+    return this;
+  }
+
+  /**
+   * Updates all changelogs of the batch.
+   *
+   * @return one result for each updater, in the order in which the updaters were added
+   * @throws ChangelogBatchException if the entries of a changelog could not be read, or a changelog could not be
+   *                                 written
+   */
+  public List<Result> update() {
+    ForkJoinPool pool = new ForkJoinPool(parallelism);
+    try {
+      List<Outcome<Map<String, List<Changelog.Change>>>> entries = run(pool, (index, updater) -> updater.readEntries());
+      failIfAnyFailed("failed to read the entries of", entries);
+
+      List<Outcome<Result>> results = run(pool, (index, updater) -> {
+        Map<String, List<Changelog.Change>> newEntries = entries.get(index).value;
+        return new Result(updater.getChangelogFile(), updater.update(newEntries), count(newEntries));
+      });
+      failIfAnyFailed("failed to write", results);
+      return results.stream().map(outcome -> outcome.value).collect(Collectors.toList());
+    } finally {
+      pool.shutdown();
+    }
+  }
+
+  private <T> List<Outcome<T>> run(ForkJoinPool pool, Step<T> step) {
+    IntFunction<Outcome<T>> safeStep = index -> {
+      ChangelogUpdater updater = updaters.get(index);
+      try {
+        return new Outcome<>(updater, step.apply(index, updater), null);
+      } catch (Exception e) {
+        return new Outcome<>(updater, null, e);
+      }
+    };
+    try {
+      return pool.submit(
+        () -> IntStream.range(0, updaters.size()).parallel().mapToObj(safeStep).collect(Collectors.toList())
+      ).get();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new ChangelogException("Interrupted while updating changelogs", e);
+    } catch (ExecutionException e) {
+      throw new ChangelogException("Failed to update changelogs", e.getCause());
+    }
+  }
+
+  private static <T> void failIfAnyFailed(String action, List<Outcome<T>> outcomes) {
+    List<Outcome<T>> failed = outcomes.stream().filter(outcome -> outcome.failure != null).collect(Collectors.toList());
+    if (failed.isEmpty()) {
+      return;
+    }
+    StringBuilder message = new StringBuilder(action).append(' ').append(failed.size()).append(" changelog(s):");
+    for (Outcome<T> outcome : failed) {
+      message.append("\n  ").append(outcome.updater.getChangelogFile()).append(": ").append(outcome.failure.getMessage());
+    }
+    ChangelogBatchException exception = new ChangelogBatchException(message.toString());
+    failed.forEach(outcome -> exception.addSuppressed(outcome.failure));
+    throw exception;
+  }
+
+  private static int count(Map<String, List<Changelog.Change>> entries) {
+    return entries.values().stream().mapToInt(List::size).sum();
+  }
+
+  @FunctionalInterface
+  private interface Step<T> {
+    T apply(int index, ChangelogUpdater updater) throws Exception;
+  }
+
+  private static final class Outcome<T> {
+    private final ChangelogUpdater updater;
+    private final T value;
+    private final Exception failure;
+
+    private Outcome(ChangelogUpdater updater, T value, Exception failure) {
+      this.updater = updater;
+      this.value = value;
+      this.failure = failure;
+    }
+  }
+
+  public static final class Result {
+    private final Path changelogFile;
+    private final String version;
+    private final int changes;
+
+    private Result(Path changelogFile, String version, int changes) {
+      this.changelogFile = changelogFile;
+      this.version = version;
+      this.changes = changes;
+    }
+
+    public Path getChangelogFile() {
+      return changelogFile;
+    }
+
+    /**
+     * Returns the number of the new version or {@code null}, if the changelog was not updated because there were no
+     * entries.
+     */
+    public String getVersion() {
+      return version;
+    }
+
+    public int getChanges() {
+      return changes;
+    }
+
+    public boolean isUpdated() {
+      return version != null;
+    }
+  }
+}
@@ -0,0 +1,303 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2020-present Cloudogu GmbH and Contributors
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package cloudogu.scm.changelog;
+
+import com.google.common.hash.HashFunction;
+import com.google.common.hash.Hashing;
+
+import java.io.PrintWriter;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Objects;
+import java.util.stream.Collectors;
+
+/**
+ * Structural difference between two revisions of a changelog. Versions are matched by their number and changes by
+ * their type and description, so that the formatting of the file (e.g. the capitalization of the types, blank lines
+ * or the order of the changes of a version) does not show up as difference.
+ * <p>
+ * Each change is hashed once and the hashes of a version are combined independent of their order, so that equal
+ * versions are recognized without comparing their changes (a collision of the hashes is accepted). Only the changes of
+ * modified versions are compared, by counting them in hash maps. The diff therefore runs in linear time of the size of both changelogs.
+ */
+public final class ChangelogDiff {
+
+  public enum Status {
+    ADDED, REMOVED, MODIFIED
+  }
+
+  private static final HashFunction HASH = Hashing.murmur3_128();
+
+  private final List<VersionDiff> versions;
+
+  private ChangelogDiff(List<VersionDiff> versions) {
+    this.versions = Collections.unmodifiableList(versions);
+  }
+
+  /**
+   * Compares the versions of both changelogs. If a changelog contains a version number more than once, only the
+   * first version with the number is compared.
+   */
+  public static ChangelogDiff between(Changelog from, Changelog to) {
+    Map<String, Changelog.Version> fromVersions = byNumber(from);
+    Map<String, Changelog.Version> toVersions = byNumber(to);
+    List<VersionDiff> diffs = new ArrayList<>();
+    toVersions.forEach((number, version) -> {
+      Changelog.Version previous = fromVersions.get(number);
+      if (previous == null) {
+        diffs.add(new VersionDiff(Status.ADDED, null, version, entries(version), Collections.emptyList()));
+      } else {
+        VersionDiff modified = compare(previous, version);
+        if (modified != null) {
+          diffs.add(modified);
+        }
+      }
+    });
+    fromVersions.forEach((number, version) -> {
+      if (!toVersions.containsKey(number)) {
+        diffs.add(new VersionDiff(Status.REMOVED, version, null, Collections.emptyList(), entries(version)));
+      }
+    });
+    return new ChangelogDiff(diffs);
+  }
+
+  private static Map<String, Changelog.Version> byNumber(Changelog changelog) {
+    Map<String, Changelog.Version> versions = new LinkedHashMap<>();
+    for (Changelog.Version version : changelog.getVersions()) {
+      versions.putIfAbsent(version.getNumber(), version);
+    }
+    return versions;
+  }
+
+  /**
+   * Returns the difference of both versions or {@code null}, if they are equal. Versions with equal fingerprints are
+   * considered equal without comparing their changes. A collision of the 64 bit fingerprints of different versions is
+   * accepted, because it is far less likely than any change of a changelog.
+   */
+  private static VersionDiff compare(Changelog.Version from, Changelog.Version to) {
+    List<Entry> fromEntries = entries(from);
+    List<Entry> toEntries = entries(to);
+    boolean sameDate = Objects.equals(from.getDate(), to.getDate());
+    if (sameDate && fromEntries.size() == toEntries.size() && fingerprint(fromEntries) == fingerprint(toEntries)) {
+      return null;
+    }
+    return new VersionDiff(Status.MODIFIED, from, to, subtract(toEntries, fromEntries), subtract(fromEntries, toEntries));
+  }
+
+  /**
+   * Sum of the hashes of the entries, which does not depend on their order.
+   */
+  private static long fingerprint(List<Entry> entries) {
+    long fingerprint = 0;
+    for (Entry entry : entries) {
+      fingerprint += entry.hash;
+    }
+    return fingerprint;
+  }
+
+  /**
+   * Returns the entries which are not in the other list, in their order. Equal entries are counted, so that a change
+   * which was listed twice and is now listed once is reported.
+   */
+  private static List<Entry> subtract(List<Entry> entries, List<Entry> other) {
+    Map<Entry, Integer> counts = new HashMap<>();
+    for (Entry entry : other) {
+      counts.merge(entry, 1, Integer::sum);
+    }
+    List<Entry> result = new ArrayList<>();
+    for (Entry entry : entries) {
+      Integer count = counts.get(entry);
+      if (count == null || count == 0) {
+        result.add(entry);
+      } else {
+        counts.put(entry, count - 1);
+      }
+    }
+    return result;
+  }
+
+  private static List<Entry> entries(Changelog.Version version) {
+    List<Entry> entries = new ArrayList<>();
+    version.getChanges().forEach((type, changes) -> {
+      if (changes != null) {
+        changes.forEach(change -> entries.add(new Entry(type, change.getValue())));
+      }
+    });
+    return entries;
+  }
+
+  /**
+   * All differences, the added and modified versions in the order of the new changelog followed by the removed
+   * versions in the order of the old changelog.
+   */
+  public List<VersionDiff> getVersions() {
+    return versions;
+  }
+
+  public List<VersionDiff> getVersions(Status status) {
+    return versions.stream().filter(version -> version.status == status).collect(Collectors.toList());
+  }
+
+  public boolean isEmpty() {
+    return versions.isEmpty();
+  }
+
+  /**
+   * Writes the differences in a form which is similar to a unified diff, e.g.:
+   *
+   * <pre>
+   * + 2.0.0 - 2020-12-08
+   *   + Added: Awesome feature
+   * ~ 1.0.0 - 2020-12-07
+   *   - Fixed: Old bug
+   * </pre>
+   */
+  public void write(PrintWriter out) {
+    for (VersionDiff version : versions) {
+      Changelog.Version current = version.to != null ? version.to : version.from;
+      out.print(version.status == Status.ADDED ? "+ " : version.status == Status.REMOVED ? "- " : "~ ");
+      out.print(current.getNumber());
+      if (current.getDate() != null) {
+        out.print(" - " + Changelog.DATE_FORMAT.format(current.getDate()));
+      }
+      if (version.isDateChanged()) {
+        out.print(" (was " + Changelog.DATE_FORMAT.format(version.from.getDate()) + ")");
+      }
+      out.println();
+      version.added.forEach(entry -> out.println("  + " + entry.getType() + ": " + entry.getDescription()));
+      version.removed.forEach(entry -> out.println("  - " + entry.getType() + ": " + entry.getDescription()));
+    }
+    out.flush();
+  }
+
+  public static final class VersionDiff {
+
+    private final Status status;
+    private final Changelog.Version from;
+    private final Changelog.Version to;
+    private final List<Entry> added;
+    private final List<Entry> removed;
+
+    private VersionDiff(Status status, Changelog.Version from, Changelog.Version to, List<Entry> added, List<Entry> removed) {
+      this.status = status;
+      this.from = from;
+      this.to = to;
+      this.added = Collections.unmodifiableList(added);
+      this.removed = Collections.unmodifiableList(removed);
+    }
+
+    public Status getStatus() {
+      return status;
+    }
+
+    public String getNumber() {
+      return to != null ? to.getNumber() : from.getNumber();
+    }
+
+    /**
+     * The version of the old changelog or {@code null}, if the version was added.
+     */
+    public Changelog.Version getFrom() {
+      return from;
+    }
+
+    /**
+     * The version of the new changelog or {@code null}, if the version was removed.
+     */
+    public Changelog.Version getTo() {
+      return to;
+    }
+
+    public boolean isDateChanged() {
+      return from != null && to != null && !Objects.equals(from.getDate(), to.getDate());
+    }
+
+    /**
+     * Changes which are only in the new version, all changes of an added version.
+     */
+    public List<Entry> getAddedChanges() {
+      return added;
+    }
+
+    /**
+     * Changes which are only in the old version, all changes of a removed version.
+     */
+    public List<Entry> getRemovedChanges() {
+      return removed;
+    }
+  }
+
+  /**
+   * A change with its type. Types are compared case insensitive, because the updater capitalizes them.
+   */
+  public static final class Entry {
+
+    private final String type;
+    private final String description;
+    private final long hash;
+
+    private Entry(String type, String description) {
+      this.type = type;
+      this.description = description;
+      this.hash = HASH.newHasher()
+        .putString(type.toLowerCase(Locale.ENGLISH), StandardCharsets.UTF_8)
+        .putByte((byte) 0)
+        .putString(description, StandardCharsets.UTF_8)
+        .hash()
+        .asLong();
+    }
+
+    public String getType() {
+      return type;
+    }
+
+    public String getDescription() {
+      return description;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+      if (this == o) {
+        return true;
+      }
+      if (o == null || getClass() != o.getClass()) {
+        return false;
+      }
+      Entry entry = (Entry) o;
+      return hash == entry.hash && type.equalsIgnoreCase(entry.type) && description.equals(entry.description);
+    }
+
+    @Override
+    public int hashCode() {
+      return Long.hashCode(hash);
+    }
+  }
+}
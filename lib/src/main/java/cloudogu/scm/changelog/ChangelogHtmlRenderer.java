@@ -0,0 +1,224 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2020-present Cloudogu GmbH and Contributors
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package cloudogu.scm.changelog;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.hash.Hasher;
+import com.google.common.hash.Hashing;
+import org.commonmark.node.Node;
+import org.commonmark.node.Paragraph;
+import org.commonmark.parser.Parser;
+import org.commonmark.renderer.html.HtmlRenderer;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Renders a changelog as html. The html is written version by version to the writer, so that the document is never
+ * held in memory as a whole. Change descriptions are rendered with commonmark; raw html in the descriptions is escaped
+ * and links are sanitized.
+ * <p>
+ * The html of each version is cached by the hash of its content, so that only new or modified versions are rendered
+ * again. The cache is held in memory and can additionally be stored in a directory with {@link #withCache(Path)}, to
+ * share it between processes.
+ */
+public final class ChangelogHtmlRenderer {
+
+  // has to be increased, if the generated html changes, to invalidate cached versions
+  private static final int FORMAT_VERSION = 1;
+  private static final int DEFAULT_CACHE_SIZE = 1024;
+
+  private final Parser parser = Parser.builder().build();
+  private final HtmlRenderer renderer = HtmlRenderer.builder().escapeHtml(true).sanitizeUrls(true).build();
+  private final Cache<String, String> cache;
+
+  private Path cacheDirectory;
+
+  public ChangelogHtmlRenderer() {
+    this(DEFAULT_CACHE_SIZE);
+  }
+
+  /**
+   * @param cacheSize maximum number of rendered versions, which are kept in memory
+   */
+  public ChangelogHtmlRenderer(int cacheSize) {
+    this.cache = CacheBuilder.newBuilder().maximumSize(cacheSize).build();
+  }
+
+  /**
+   * Stores rendered versions in the given directory, one file per version named by the hash of its content.
+   */
+  public ChangelogHtmlRenderer withCache(Path cacheDirectory) {
+    this.cacheDirectory = cacheDirectory;
+    return this;
+  }
+
+  public void render(Changelog changelog, Writer writer) throws IOException {
+    List<String> header = changelog.getHeader();
+    if (!header.isEmpty()) {
+      renderer.render(parser.parse(String.join("\n", header)), writer);
+    }
+    Map<String, String> links = new HashMap<>();
+    changelog.getLinks().forEach(link -> links.put(link.getVersion(), link.getLink()));
+    for (Changelog.Version version : changelog.getVersions()) {
+      writer.write(render(version, links.get(version.getNumber())));
+    }
+    writer.flush();
+  }
+
+  private String render(Changelog.Version version, String link) throws IOException {
+    String hash = hash(version, link);
+    String html = cache.getIfPresent(hash);
+    if (html == null) {
+      html = readCached(hash);
+      if (html == null) {
+        html = renderVersion(version, link);
+        writeCached(hash, html);
+      }
+      cache.put(hash, html);
+    }
+    return html;
+  }
+
+  private String readCached(String hash) throws IOException {
+    if (cacheDirectory == null) {
+      return null;
+    }
+    Path file = cacheDirectory.resolve(hash + ".html");
+    if (!Files.exists(file)) {
+      return null;
+    }
+    return new String(Files.readAllBytes(file), StandardCharsets.UTF_8);
+  }
+
+  private void writeCached(String hash, String html) throws IOException {
+    if (cacheDirectory == null) {
+      return;
+    }
+    Path file = cacheDirectory.resolve(hash + ".html");
+    Path tempFile = AtomicFiles.createTempFile(file);
+    try {
+      Files.write(tempFile, html.getBytes(StandardCharsets.UTF_8));
+      AtomicFiles.replace(tempFile, file, null);
+    } finally {
+      Files.deleteIfExists(tempFile);
+    }
+  }
+
+  private String renderVersion(Changelog.Version version, String link) {
+    StringBuilder html = new StringBuilder();
+    String number = escape(version.getNumber());
+    html.append("<section id=\"").append(number).append("\">\n<h2>");
+    if (link != null) {
+      html.append("<a href=\"").append(escape(link)).append("\">").append(number).append("</a>");
+    } else {
+      html.append(number);
+    }
+    html.append(" - ").append(Changelog.DATE_FORMAT.format(version.getDate())).append("</h2>\n");
+    version.getChanges().forEach((type, changes) -> {
+      html.append("<h3>").append(escape(capitalize(type))).append("</h3>\n<ul>\n");
+      for (Changelog.Change change : changes) {
+        html.append("<li>");
+        renderInline(change.getValue(), html);
+        html.append("</li>\n");
+      }
+      html.append("</ul>\n");
+    });
+    return html.append("</section>\n").toString();
+  }
+
+  /**
+   * Renders a description without the paragraph, which commonmark creates around every text.
+   */
+  private void renderInline(String description, StringBuilder html) {
+    Node document = parser.parse(description);
+    Node block = document.getFirstChild();
+    if (block instanceof Paragraph && block.getNext() == null) {
+      for (Node node = block.getFirstChild(); node != null; node = node.getNext()) {
+        renderer.render(node, html);
+      }
+    } else {
+      renderer.render(document, html);
+    }
+  }
+
+  private static String hash(Changelog.Version version, String link) {
+    Hasher hasher = Hashing.sha256().newHasher()
+      .putInt(FORMAT_VERSION);
+    putString(hasher, version.getNumber());
+    hasher.putLong(version.getDate().toEpochMilli());
+    putString(hasher, link);
+    version.getChanges().forEach((type, changes) -> {
+      putString(hasher, type);
+      hasher.putInt(changes.size());
+      changes.forEach(change -> putString(hasher, change.getValue()));
+    });
+    return hasher.hash().toString();
+  }
+
+  private static void putString(Hasher hasher, String value) {
+    // the length separates the values, so that e.g. "ab" + "c" and "a" + "bc" have different hashes
+    if (value == null) {
+      hasher.putInt(-1);
+    } else {
+      hasher.putInt(value.length()).putString(value, StandardCharsets.UTF_8);
+    }
+  }
+
+  private static String capitalize(String str) {
+    return str.substring(0, 1).toUpperCase() + str.substring(1);
+  }
+
+  private static String escape(String value) {
+    StringBuilder escaped = new StringBuilder(value.length());
+    for (int i = 0; i < value.length(); i++) {
+      char c = value.charAt(i);
+      switch (c) {
+        case '&':
+          escaped.append("&amp;");
+          break;
+        case '<':
+          escaped.append("&lt;");
+          break;
+        case '>':
+          escaped.append("&gt;");
+          break;
+        case '"':
+          escaped.append("&quot;");
+          break;
+        default:
+          escaped.append(c);
+      }
+    }
+    return escaped.toString();
+  }
+}
@@ -0,0 +1,405 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2020-present Cloudogu GmbH and Contributors
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package cloudogu.scm.changelog;
+
+import com.google.common.hash.Hasher;
+import com.google.common.hash.Hashing;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Binary sidecar index of a changelog file, stored as {@code .CHANGELOG.md.idx} next to it. The index holds the
+ * offset, length, number, date and content hash of each version, the offsets of the version links and a hash of the
+ * whole file, so that readers can seek straight to the sections they need instead of scanning the file.
+ * <p>
+ * An index is valid as long as the size and the modification time of the changelog match the ones stored in the
+ * index. A stale or unreadable index is rebuilt with a single pass over the changelog.
+ */
+final class ChangelogIndex {
+
+  private static final int MAGIC = 0x434c4958;
+  private static final int FORMAT_VERSION = 1;
+
+  private final long size;
+  private final long modified;
+  private final String hash;
+  private final long firstVersionOffset;
+  private final long contentEnd;
+  private final boolean endsWithLink;
+  private final List<Entry> entries;
+  private final long[] linkOffsets;
+
+  private ChangelogIndex(long size, long modified, String hash, long firstVersionOffset, long contentEnd, boolean endsWithLink, List<Entry> entries, long[] linkOffsets) {
+    this.size = size;
+    this.modified = modified;
+    this.hash = hash;
+    this.firstVersionOffset = firstVersionOffset;
+    this.contentEnd = contentEnd;
+    this.endsWithLink = endsWithLink;
+    this.entries = Collections.unmodifiableList(entries);
+    this.linkOffsets = linkOffsets;
+  }
+
+  static Path indexFile(Path changelogFile) {
+    return changelogFile.resolveSibling("." + changelogFile.getFileName() + ".idx");
+  }
+
+  /**
+   * Returns the index of the changelog. The stored index is used if it is still valid, otherwise it is rebuilt and
+   * stored again. Failing to store the index (e.g. in a read only directory) is not an error, the rebuilt index is
+   * returned anyway.
+   */
+  static ChangelogIndex of(Path changelogFile) {
+    BasicFileAttributes attributes = attributes(changelogFile);
+    ChangelogIndex index = load(indexFile(changelogFile));
+    if (index != null && index.isValidFor(attributes)) {
+      return index;
+    }
+    index = build(changelogFile);
+    try {
+      index.store(indexFile(changelogFile));
+    } catch (IOException e) {
+      // the index is only an optimization, the next reader will try again
+    }
+    return index;
+  }
+
+  /**
+   * Scans the changelog and creates a new index, without storing it.
+   */
+  static ChangelogIndex build(Path changelogFile) {
+    // the attributes are read first: if the file is replaced during the scan, the index is stale and not wrongly valid
+    BasicFileAttributes attributes = attributes(changelogFile);
+    try (FileChannel channel = FileChannel.open(changelogFile, StandardOpenOption.READ)) {
+      Builder builder = new Builder();
+      ByteLines.forEachLine(channel, 0, builder);
+      return builder.build(channel.size(), modified(attributes));
+    } catch (IOException e) {
+      throw new ReadChangelogFileException(changelogFile, e);
+    }
+  }
+
+  /**
+   * Creates the index of the changelog after a new version was spliced in front of the first version, without reading
+   * the changelog again. The sections and links of the existing versions are moved by the inserted bytes. If a link
+   * was appended, the last section ends with it and gets the given hash. The changelog must have had a version
+   * before, otherwise the index has to be built.
+   *
+   * @param attributes      attributes of the new changelog
+   * @param hash            hash of the whole new changelog
+   * @param version         the new version
+   * @param versionOffset   offset of the heading of the new version
+   * @param versionLength   length of the section of the new version
+   * @param versionHash     hash of the section of the new version
+   * @param linkOffset      offset of the appended link or -1, if no link was appended
+   * @param linkEnd         offset after the appended link, without its line break
+   * @param lastSectionHash hash of the last section, if a link was appended
+   */
+  ChangelogIndex splice(BasicFileAttributes attributes, String hash, Changelog.Version version, long versionOffset, long versionLength, String versionHash, long linkOffset, long linkEnd, String lastSectionHash) {
+    long inserted = versionOffset + versionLength - firstVersionOffset;
+    List<Entry> spliced = new ArrayList<>(entries.size() + 1);
+    // the heading contains only the day, like the parsed date of a rebuilt index
+    Instant date = version.getDate().truncatedTo(ChronoUnit.DAYS);
+    spliced.add(new Entry(versionOffset, versionLength, version.getNumber(), date, versionHash));
+    for (int i = 0; i < entries.size(); i++) {
+      Entry entry = entries.get(i);
+      long offset = entry.offset + inserted;
+      if (linkOffset >= 0 && i == entries.size() - 1) {
+        spliced.add(new Entry(offset, attributes.size() - offset, entry.number, entry.date, lastSectionHash));
+      } else {
+        spliced.add(new Entry(offset, entry.length, entry.number, entry.date, entry.hash));
+      }
+    }
+    long[] splicedLinks = Arrays.copyOf(linkOffsets, linkOffsets.length + (linkOffset >= 0 ? 1 : 0));
+    for (int i = 0; i < linkOffsets.length; i++) {
+      splicedLinks[i] += inserted;
+    }
+    if (linkOffset >= 0) {
+      splicedLinks[linkOffsets.length] = linkOffset;
+    }
+    return new ChangelogIndex(
+      attributes.size(), modified(attributes), hash, versionOffset,
+      linkOffset >= 0 ? linkEnd : contentEnd + inserted, linkOffset >= 0 || endsWithLink, spliced, splicedLinks
+    );
+  }
+
+  boolean isValidFor(BasicFileAttributes attributes) {
+    return size == attributes.size() && modified == modified(attributes);
+  }
+
+  private static BasicFileAttributes attributes(Path changelogFile) {
+    try {
+      return Files.readAttributes(changelogFile, BasicFileAttributes.class);
+    } catch (IOException e) {
+      throw new ReadChangelogFileException(changelogFile, e);
+    }
+  }
+
+  private static long modified(BasicFileAttributes attributes) {
+    return attributes.lastModifiedTime().to(TimeUnit.NANOSECONDS);
+  }
+
+  long getSize() {
+    return size;
+  }
+
+  /**
+   * The sha-256 hash of the whole changelog, in the format of {@link AtomicFiles#hash(Path)}.
+   */
+  String getHash() {
+    return hash;
+  }
+
+  /**
+   * Offset of the first version heading or the size of the file, if the changelog has no versions.
+   */
+  long getFirstVersionOffset() {
+    return firstVersionOffset;
+  }
+
+  /**
+   * Offset after the last non blank line of the file, without its line break.
+   */
+  long getContentEnd() {
+    return contentEnd;
+  }
+
+  /**
+   * Returns {@code true} if the last non blank line of the file is a version link.
+   */
+  boolean isEndsWithLink() {
+    return endsWithLink;
+  }
+
+  List<Entry> getEntries() {
+    return entries;
+  }
+
+  /**
+   * Offsets of the lines after the first version, which start with {@code [} and may therefore be version links.
+   */
+  long[] getLinkOffsets() {
+    return linkOffsets.clone();
+  }
+
+  static ChangelogIndex load(Path indexFile) {
+    try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(indexFile)))) {
+      if (in.readInt() != MAGIC || in.readInt() != FORMAT_VERSION) {
+        return null;
+      }
+      long size = in.readLong();
+      long modified = in.readLong();
+      String hash = in.readUTF();
+      long firstVersionOffset = in.readLong();
+      long contentEnd = in.readLong();
+      boolean endsWithLink = in.readBoolean();
+      int entryCount = in.readInt();
+      List<Entry> entries = new ArrayList<>(entryCount);
+      for (int i = 0; i < entryCount; i++) {
+        entries.add(new Entry(in.readLong(), in.readLong(), in.readUTF(), Instant.ofEpochMilli(in.readLong()), in.readUTF()));
+      }
+      long[] linkOffsets = new long[in.readInt()];
+      for (int i = 0; i < linkOffsets.length; i++) {
+        linkOffsets[i] = in.readLong();
+      }
+      return new ChangelogIndex(size, modified, hash, firstVersionOffset, contentEnd, endsWithLink, entries, linkOffsets);
+    } catch (IOException | RuntimeException e) {
+      // a missing or corrupt index is rebuilt like a stale one
+      return null;
+    }
+  }
+
+  void store(Path indexFile) throws IOException {
+    Path tempFile = AtomicFiles.createTempFile(indexFile);
+    try {
+      try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(tempFile)))) {
+        out.writeInt(MAGIC);
+        out.writeInt(FORMAT_VERSION);
+        out.writeLong(size);
+        out.writeLong(modified);
+        out.writeUTF(hash);
+        out.writeLong(firstVersionOffset);
+        out.writeLong(contentEnd);
+        out.writeBoolean(endsWithLink);
+        out.writeInt(entries.size());
+        for (Entry entry : entries) {
+          out.writeLong(entry.offset);
+          out.writeLong(entry.length);
+          out.writeUTF(entry.number);
+          out.writeLong(entry.date.toEpochMilli());
+          out.writeUTF(entry.hash);
+        }
+        out.writeInt(linkOffsets.length);
+        for (long linkOffset : linkOffsets) {
+          out.writeLong(linkOffset);
+        }
+      }
+      AtomicFiles.replace(tempFile, indexFile, null);
+    } finally {
+      Files.deleteIfExists(tempFile);
+    }
+  }
+
+  /**
+   * The section of a single version, from its heading up to the next version heading or the end of the file.
+   */
+  static final class Entry {
+
+    private final long offset;
+    private final long length;
+    private final String number;
+    private final Instant date;
+    private final String hash;
+
+    private Entry(long offset, long length, String number, Instant date, String hash) {
+      this.offset = offset;
+      this.length = length;
+      this.number = number;
+      this.date = date;
+      this.hash = hash;
+    }
+
+    long getOffset() {
+      return offset;
+    }
+
+    long getLength() {
+      return length;
+    }
+
+    String getNumber() {
+      return number;
+    }
+
+    Instant getDate() {
+      return date;
+    }
+
+    /**
+     * The sha-256 hash of the bytes of the section, which changes if the version was edited.
+     */
+    String getHash() {
+      return hash;
+    }
+  }
+
+  /**
+   * Collects the sections of the file and hashes the file and each section in the same pass.
+   */
+  private static class Builder implements ByteLines.LineVisitor {
+
+    private final ByteLines lines = new ByteLines();
+    private final Hasher fileHasher = Hashing.sha256().newHasher();
+    private final List<Entry> entries = new ArrayList<>();
+
+    private long[] linkOffsets = new long[16];
+    private int linkCount;
+    private long contentEnd;
+    private boolean endsWithLink;
+
+    private Hasher sectionHasher;
+    private long sectionOffset = -1;
+    private ChangelogLines.Heading sectionHeading;
+
+    @Override
+    public boolean visit(ByteBuffer buffer, int start, int end, long lineOffset, long nextOffset) throws IOException {
+      char first = ByteLines.firstCharacter(buffer, start, end);
+      if (first == '#') {
+        ChangelogLines.Heading heading = heading(buffer, start, end);
+        if (heading != null) {
+          finishSection(lineOffset);
+          sectionHasher = Hashing.sha256().newHasher();
+          sectionOffset = lineOffset;
+          sectionHeading = heading;
+        }
+      }
+      boolean link = first == '[' && isLink(buffer, start, end);
+      if (first == '[' && sectionHeading != null) {
+        if (linkCount == linkOffsets.length) {
+          linkOffsets = Arrays.copyOf(linkOffsets, linkCount * 2);
+        }
+        linkOffsets[linkCount++] = lineOffset;
+      }
+      if (first != ' ') {
+        contentEnd = lineOffset + (end - start);
+        endsWithLink = link;
+      }
+      int length = (int) (nextOffset - lineOffset);
+      fileHasher.putBytes(buffer.array(), start, length);
+      if (sectionHasher != null) {
+        sectionHasher.putBytes(buffer.array(), start, length);
+      }
+      return true;
+    }
+
+    private ChangelogLines.Heading heading(ByteBuffer buffer, int start, int end) throws IOException {
+      int length = lines.decode(buffer, start, end);
+      char[] chars = lines.chars();
+      int trimmedStart = ChangelogLines.trimStart(chars, 0, length);
+      return ChangelogLines.heading(chars, trimmedStart, ChangelogLines.trimEnd(chars, trimmedStart, length));
+    }
+
+    private boolean isLink(ByteBuffer buffer, int start, int end) throws IOException {
+      int length = lines.decode(buffer, start, end);
+      char[] chars = lines.chars();
+      int trimmedStart = ChangelogLines.trimStart(chars, 0, length);
+      return ChangelogLines.link(chars, trimmedStart, ChangelogLines.trimEnd(chars, trimmedStart, length)) != null;
+    }
+
+    private void finishSection(long end) {
+      if (sectionHeading != null) {
+        entries.add(new Entry(
+          sectionOffset, end - sectionOffset, sectionHeading.getNumber(), sectionHeading.getDate(), sectionHasher.hash().toString()
+        ));
+      }
+    }
+
+    private ChangelogIndex build(long size, long modified) {
+      finishSection(size);
+      long firstVersionOffset = entries.isEmpty() ? size : entries.get(0).getOffset();
+      return new ChangelogIndex(
+        size, modified, fileHasher.hash().toString(), firstVersionOffset, contentEnd, endsWithLink, entries,
+        Arrays.copyOf(linkOffsets, linkCount)
+      );
+    }
+  }
+}
@@ -0,0 +1,202 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2020-present Cloudogu GmbH and Contributors
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package cloudogu.scm.changelog;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.List;
+
+/**
+ * Byte offsets of the sections of a changelog file, which are required to splice a new version into the file
+ * without reading the whole history. Only the lines up to the first version heading and the last lines of the file
+ * are read.
+ */
+final class ChangelogLayout {
+
+  private static final int TAIL_SIZE = 4096;
+
+  private final long size;
+  private final long firstVersionOffset;
+  private final Changelog.Version firstVersion;
+  private final long contentEnd;
+  private final boolean endsWithLink;
+  private final int scannedLines;
+
+  private ChangelogLayout(long size, long firstVersionOffset, Changelog.Version firstVersion, long contentEnd, boolean endsWithLink, int scannedLines) {
+    this.size = size;
+    this.firstVersionOffset = firstVersionOffset;
+    this.firstVersion = firstVersion;
+    this.contentEnd = contentEnd;
+    this.endsWithLink = endsWithLink;
+    this.scannedLines = scannedLines;
+  }
+
+  static ChangelogLayout scan(FileChannel channel) throws IOException {
+    long size = channel.size();
+    FirstVersionVisitor firstVersion = new FirstVersionVisitor(size);
+    ByteLines.forEachLine(channel, 0, firstVersion);
+    LastLineVisitor lastLine = scanTail(channel, size);
+    return new ChangelogLayout(
+      size, firstVersion.offset, firstVersion.version, lastLine.end, lastLine.link, firstVersion.lineCount + lastLine.lineCount
+    );
+  }
+
+  /**
+   * Takes the sections from the index of the file, without reading the file.
+   */
+  static ChangelogLayout of(ChangelogIndex index) {
+    List<ChangelogIndex.Entry> entries = index.getEntries();
+    Changelog.Version firstVersion = null;
+    if (!entries.isEmpty()) {
+      firstVersion = new Changelog.Version(entries.get(0).getNumber(), entries.get(0).getDate(), null);
+    }
+    return new ChangelogLayout(
+      index.getSize(), index.getFirstVersionOffset(), firstVersion, index.getContentEnd(), index.isEndsWithLink(), 0
+    );
+  }
+
+  private static LastLineVisitor scanTail(FileChannel channel, long size) throws IOException {
+    long tailSize = TAIL_SIZE;
+    while (true) {
+      long start = Math.max(0, size - tailSize);
+      LastLineVisitor lastLine = new LastLineVisitor(start == 0);
+      ByteLines.forEachLine(channel, start, lastLine);
+      if (lastLine.found || start == 0) {
+        return lastLine;
+      }
+      tailSize *= 2;
+    }
+  }
+
+  long getSize() {
+    return size;
+  }
+
+  /**
+   * Offset of the first version heading or the size of the file, if the changelog has no versions.
+   */
+  long getFirstVersionOffset() {
+    return firstVersionOffset;
+  }
+
+  /**
+   * The latest version without its changes or {@code null}, if the changelog has no versions.
+   */
+  Changelog.Version getFirstVersion() {
+    return firstVersion;
+  }
+
+  /**
+   * Offset after the last non blank line of the file, without its line break.
+   */
+  long getContentEnd() {
+    return contentEnd;
+  }
+
+  /**
+   * Returns {@code true} if the last non blank line of the file is a version link.
+   */
+  boolean isEndsWithLink() {
+    return endsWithLink;
+  }
+
+  /**
+   * Number of lines which were read to find the sections.
+   */
+  int getScannedLines() {
+    return scannedLines;
+  }
+
+  private static class FirstVersionVisitor implements ByteLines.LineVisitor {
+
+    private final ByteLines lines = new ByteLines();
+
+    private long offset;
+    private Changelog.Version version;
+    private int lineCount;
+
+    private FirstVersionVisitor(long size) {
+      this.offset = size;
+    }
+
+    @Override
+    public boolean visit(ByteBuffer buffer, int start, int end, long lineOffset, long nextOffset) throws IOException {
+      lineCount++;
+      if (ByteLines.firstCharacter(buffer, start, end) != '#') {
+        return true;
+      }
+      int length = lines.decode(buffer, start, end);
+      char[] chars = lines.chars();
+      int trimmedStart = ChangelogLines.trimStart(chars, 0, length);
+      ChangelogLines.Heading heading = ChangelogLines.heading(chars, trimmedStart, ChangelogLines.trimEnd(chars, trimmedStart, length));
+      if (heading == null) {
+        return true;
+      }
+      offset = lineOffset;
+      version = new Changelog.Version(heading.getNumber(), heading.getDate(), null);
+      return false;
+    }
+  }
+
+  private static class LastLineVisitor implements ByteLines.LineVisitor {
+
+    private final ByteLines lines = new ByteLines();
+
+    private boolean complete;
+    private boolean found;
+    private long end;
+    private boolean link;
+    private int lineCount;
+
+    private LastLineVisitor(boolean startsAtBeginning) {
+      // the first line of the tail is incomplete, if the tail does not start at the beginning of the file
+      this.complete = startsAtBeginning;
+    }
+
+    @Override
+    public boolean visit(ByteBuffer buffer, int start, int end, long lineOffset, long nextOffset) throws IOException {
+      lineCount++;
+      if (!complete) {
+        complete = true;
+        return true;
+      }
+      char first = ByteLines.firstCharacter(buffer, start, end);
+      if (first != ' ') {
+        found = true;
+        this.end = lineOffset + (end - start);
+        link = first == '[' && isLink(buffer, start, end);
+      }
+      return true;
+    }
+
+    private boolean isLink(ByteBuffer buffer, int start, int end) throws IOException {
+      int length = lines.decode(buffer, start, end);
+      char[] chars = lines.chars();
+      int trimmedStart = ChangelogLines.trimStart(chars, 0, length);
+      return ChangelogLines.link(chars, trimmedStart, ChangelogLines.trimEnd(chars, trimmedStart, length)) != null;
+    }
+  }
+}
@@ -0,0 +1,267 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2020-present Cloudogu GmbH and Contributors
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package cloudogu.scm.changelog;
+
+import java.nio.CharBuffer;
+import java.time.DateTimeException;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneOffset;
+
+import static cloudogu.scm.changelog.Changelog.DATE_FORMAT;
+
+/**
+ * Line rules of the changelog markdown format. All rules work on an already trimmed range of a character array and
+ * are selected by the first characters of the line, so that a line is only inspected by the one rule which can apply.
+ * The rules are equivalent to the following patterns, which were used by earlier versions of the parser:
+ *
+ * <pre>
+ * version: ##\s+\[?([0-9.]+(?:-[^]\s]*)?)]? - (....-..-..)
+ * type:    ###\s+(.*)
+ * change:  -\s+(.*)
+ * link:    \[([0-9.]+(?:-.*)?)]:\s+(.+)
+ * </pre>
+ */
+final class ChangelogLines {
+
+  private static final int DATE_LENGTH = 10;
+
+  private ChangelogLines() {
+  }
+
+  static int trimStart(char[] line, int start, int end) {
+    while (start < end && line[start] <= ' ') {
+      start++;
+    }
+    return start;
+  }
+
+  static int trimEnd(char[] line, int start, int end) {
+    while (end > start && line[end - 1] <= ' ') {
+      end--;
+    }
+    return end;
+  }
+
+  /**
+   * Returns the parsed version heading of the line or {@code null}, if the line is not a version heading.
+   */
+  static Heading heading(char[] line, int start, int end) {
+    int numberEnd = headingNumberEnd(line, start, end);
+    if (numberEnd < 0) {
+      return null;
+    }
+    int numberStart = headingNumberStart(line, start, end);
+    return new Heading(new String(line, numberStart, numberEnd - numberStart), parseDate(line, end - DATE_LENGTH));
+  }
+
+  /**
+   * Returns {@code true} if the line is a version heading, without parsing the heading.
+   */
+  static boolean isHeading(char[] line, int start, int end) {
+    return headingNumberEnd(line, start, end) >= 0;
+  }
+
+  private static int headingNumberStart(char[] line, int start, int end) {
+    int pos = skipWhitespace(line, start + 2, end);
+    if (pos < end && line[pos] == '[') {
+      pos++;
+    }
+    return pos;
+  }
+
+  private static int headingNumberEnd(char[] line, int start, int end) {
+    if (end - start < 3 || line[start] != '#' || line[start + 1] != '#' || !isWhitespace(line[start + 2])) {
+      return -1;
+    }
+    int numberStart = headingNumberStart(line, start, end);
+    int pos = numberStart;
+    while (pos < end && isVersionChar(line[pos])) {
+      pos++;
+    }
+    if (pos == numberStart) {
+      return -1;
+    }
+    if (pos < end && line[pos] == '-') {
+      pos++;
+      while (pos < end && line[pos] != ']' && !isWhitespace(line[pos])) {
+        pos++;
+      }
+    }
+    int numberEnd = pos;
+    if (pos < end && line[pos] == ']') {
+      pos++;
+    }
+    if (end - pos != 3 + DATE_LENGTH || line[pos] != ' ' || line[pos + 1] != '-' || line[pos + 2] != ' ') {
+      return -1;
+    }
+    int dateStart = pos + 3;
+    if (line[dateStart + 4] != '-' || line[dateStart + 7] != '-') {
+      return -1;
+    }
+    return numberEnd;
+  }
+
+  /**
+   * Returns the start of the type name, if the line is a type heading, otherwise -1.
+   */
+  static int typeStart(char[] line, int start, int end) {
+    if (end - start < 4 || line[start] != '#' || line[start + 1] != '#' || line[start + 2] != '#' || !isWhitespace(line[start + 3])) {
+      return -1;
+    }
+    return skipWhitespace(line, start + 3, end);
+  }
+
+  /**
+   * Returns the start of the change description, if the line is a change, otherwise -1.
+   */
+  static int changeStart(char[] line, int start, int end) {
+    if (end - start < 2 || line[start] != '-' || !isWhitespace(line[start + 1])) {
+      return -1;
+    }
+    return skipWhitespace(line, start + 1, end);
+  }
+
+  /**
+   * Returns the parsed version link of the line or {@code null}, if the line is not a version link.
+   */
+  static Changelog.VersionLink link(char[] line, int start, int end) {
+    if (end - start < 2 || line[start] != '[') {
+      return null;
+    }
+    int pos = start + 1;
+    while (pos < end && isVersionChar(line[pos])) {
+      pos++;
+    }
+    if (pos == start + 1 || pos == end) {
+      return null;
+    }
+    int versionEnd;
+    if (line[pos] == ']') {
+      versionEnd = isLinkSeparator(line, pos, end) ? pos : -1;
+    } else if (line[pos] == '-') {
+      versionEnd = lastLinkSeparator(line, pos + 1, end);
+    } else {
+      versionEnd = -1;
+    }
+    if (versionEnd < 0) {
+      return null;
+    }
+    int linkStart = skipWhitespace(line, versionEnd + 2, end);
+    return new Changelog.VersionLink(
+      new String(line, start + 1, versionEnd - start - 1),
+      new String(line, linkStart, end - linkStart)
+    );
+  }
+
+  private static int lastLinkSeparator(char[] line, int from, int end) {
+    for (int pos = end - 3; pos >= from; pos--) {
+      if (isLinkSeparator(line, pos, end)) {
+        return pos;
+      }
+    }
+    return -1;
+  }
+
+  private static boolean isLinkSeparator(char[] line, int pos, int end) {
+    // the line is trimmed, so there is always a non whitespace character after the whitespace
+    return pos + 2 < end && line[pos] == ']' && line[pos + 1] == ':' && isWhitespace(line[pos + 2]);
+  }
+
+  private static Instant parseDate(char[] line, int start) {
+    int year = digits(line, start, 4);
+    int month = digits(line, start + 5, 2);
+    int day = digits(line, start + 8, 2);
+    if (year >= 0 && month >= 0 && day >= 0) {
+      try {
+        return toInstant(LocalDate.of(year, month, day));
+      } catch (DateTimeException e) {
+        // let the formatter decide, it resolves some dates (e.g. 2021-02-30) which are invalid for LocalDate.of
+      }
+    }
+    return toInstant(LocalDate.parse(CharBuffer.wrap(line, start, DATE_LENGTH), DATE_FORMAT));
+  }
+
+  private static Instant toInstant(LocalDate date) {
+    return date.atStartOfDay(ZoneOffset.UTC).toInstant();
+  }
+
+  private static int digits(char[] line, int start, int length) {
+    int value = 0;
+    for (int i = start; i < start + length; i++) {
+      char c = line[i];
+      if (c < '0' || c > '9') {
+        return -1;
+      }
+      value = value * 10 + (c - '0');
+    }
+    return value;
+  }
+
+  private static int skipWhitespace(char[] line, int pos, int end) {
+    while (pos < end && isWhitespace(line[pos])) {
+      pos++;
+    }
+    return pos;
+  }
+
+  private static boolean isVersionChar(char c) {
+    return (c >= '0' && c <= '9') || c == '.';
+  }
+
+  static boolean equals(String value, char[] line, int start, int end) {
+    if (value.length() != end - start) {
+      return false;
+    }
+    for (int i = 0; i < value.length(); i++) {
+      if (value.charAt(i) != line[start + i]) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  static boolean isWhitespace(char c) {
+    return c == ' ' || c == '\t' || c == '\n' || c == '\u000B' || c == '\f' || c == '\r';
+  }
+
+  static final class Heading {
+    private final String number;
+    private final Instant date;
+
+    private Heading(String number, Instant date) {
+      this.number = number;
+      this.date = date;
+    }
+
+    String getNumber() {
+      return number;
+    }
+
+    Instant getDate() {
+      return date;
+    }
+  }
+}
@@ -0,0 +1,132 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2020-present Cloudogu GmbH and Contributors
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package cloudogu.scm.changelog;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Exclusive lock for the update of a changelog, which works across threads and processes. The changelog itself is
+ * replaced on each update, so the lock is held on a separate lock file next to it. The lock file is not removed, because
+ * another process could be waiting for a lock on it. The lock is reentrant: a thread which already holds the lock
+ * can acquire it again, e.g. to replace the changelog during a locked update.
+ */
+final class ChangelogLock implements Closeable {
+
+  // file locks are held by the whole jvm, so threads have to be serialized separately
+  private static final Map<Path, ThreadLock> THREAD_LOCKS = new ConcurrentHashMap<>();
+
+  private final Path lockFile;
+  private final ThreadLock threadLock;
+  private final FileChannel channel;
+  private final FileLock fileLock;
+
+  private ChangelogLock(Path lockFile, ThreadLock threadLock, FileChannel channel, FileLock fileLock) {
+    this.lockFile = lockFile;
+    this.threadLock = threadLock;
+    this.channel = channel;
+    this.fileLock = fileLock;
+  }
+
+  static ChangelogLock acquire(Path changelogFile) throws IOException {
+    Path lockFile = lockFile(changelogFile);
+    ThreadLock threadLock = lockThread(lockFile);
+    if (threadLock.lock.getHoldCount() > 1) {
+      // the file lock is already held by this thread and can not be acquired twice by the same jvm
+      return new ChangelogLock(lockFile, threadLock, null, null);
+    }
+    FileChannel channel = null;
+    try {
+      channel = FileChannel.open(lockFile, StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+      return new ChangelogLock(lockFile, threadLock, channel, channel.lock());
+    } catch (IOException | RuntimeException e) {
+      if (channel != null) {
+        channel.close();
+      }
+      unlockThread(lockFile, threadLock);
+      throw e;
+    }
+  }
+
+  /**
+   * Acquires the lock only for the threads of this jvm, without creating the lock file. If the thread already holds
+   * the lock of {@link #acquire(Path)}, the lock is acquired again.
+   */
+  static ChangelogLock acquireInProcess(Path changelogFile) {
+    Path lockFile = lockFile(changelogFile);
+    return new ChangelogLock(lockFile, lockThread(lockFile), null, null);
+  }
+
+  private static Path lockFile(Path changelogFile) {
+    Path path = changelogFile.toAbsolutePath().normalize();
+    return path.resolveSibling("." + path.getFileName() + ".lock");
+  }
+
+  private static ThreadLock lockThread(Path lockFile) {
+    // the lock is registered before waiting for it, so that it is not removed while other threads wait
+    ThreadLock threadLock = THREAD_LOCKS.compute(lockFile, (path, existing) -> {
+      ThreadLock registered = existing != null ? existing : new ThreadLock();
+      registered.users++;
+      return registered;
+    });
+    threadLock.lock.lock();
+    return threadLock;
+  }
+
+  private static void unlockThread(Path lockFile, ThreadLock threadLock) {
+    threadLock.lock.unlock();
+    THREAD_LOCKS.computeIfPresent(lockFile, (path, existing) -> --existing.users == 0 ? null : existing);
+  }
+
+  static int registeredLocks() {
+    return THREAD_LOCKS.size();
+  }
+
+  @Override
+  public void close() throws IOException {
+    try {
+      if (fileLock != null) {
+        fileLock.release();
+        channel.close();
+      }
+    } finally {
+      unlockThread(lockFile, threadLock);
+    }
+  }
+
+  private static final class ThreadLock {
+
+    private final ReentrantLock lock = new ReentrantLock();
+    // threads which hold or wait for the lock, guarded by the map
+    private int users;
+  }
+}
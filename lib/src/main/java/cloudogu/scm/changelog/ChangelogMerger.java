@@ -0,0 +1,606 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2020-present Cloudogu GmbH and Contributors
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package cloudogu.scm.changelog;
+
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.io.StringWriter;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.Instant;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+
+/**
+ * Three-way merge of changelogs, e.g. of two branches which have both released a version. Versions are matched by
+ * their number, changes by their type and description, so the merge does not depend on the formatting of the file.
+ * Changes which were added on both sides are kept, changes which were removed on one side are removed. The merge is
+ * in conflict only, if both sides have changed the same part differently: e.g. the same entry was replaced by
+ * different entries, a version got different dates, or one side modified a version which the other side removed.
+ * <p>
+ * The merge can be used as git merge driver, by calling {@link #main(String[])} with the base, ours and theirs file:
+ *
+ * <pre>
+ * git config merge.changelog.driver "java -cp changelog-lib.jar:... cloudogu.scm.changelog.ChangelogMerger %O %A %B"
+ * echo "CHANGELOG.md merge=changelog" &gt;&gt; .gitattributes
+ * </pre>
+ */
+public final class ChangelogMerger {
+
+  static final String OURS_MARKER = "<<<<<<< ours";
+  static final String SEPARATOR_MARKER = "=======";
+  static final String THEIRS_MARKER = ">>>>>>> theirs";
+
+  private final List<String> conflicts = new ArrayList<>();
+  private final StringWriter content = new StringWriter();
+  private final PrintWriter out = new PrintWriter(content);
+
+  private final List<String> header = new ArrayList<>();
+  private final List<Changelog.Version> versions = new ArrayList<>();
+  private final List<Changelog.VersionLink> links = new ArrayList<>();
+
+  private Map<String, String> baseLinks;
+  private Map<String, String> oursLinks;
+  private Map<String, String> theirsLinks;
+
+  private ChangelogMerger() {
+  }
+
+  /**
+   * Merges the changes of ours and theirs since base.
+   */
+  public static Result merge(Changelog base, Changelog ours, Changelog theirs) {
+    ChangelogMerger merger = new ChangelogMerger();
+    Map<String, String> mergedLinks = merger.mergeLinks(base.getLinks(), ours.getLinks(), theirs.getLinks());
+    merger.mergeHeader(base.getHeader(), ours.getHeader(), theirs.getHeader());
+    merger.mergeVersions(base, ours, theirs, mergedLinks);
+    merger.writeLinks(mergedLinks);
+    merger.out.flush();
+    return new Result(
+      new Changelog(merger.header, merger.versions, merger.links), merger.content.toString(), merger.conflicts
+    );
+  }
+
+  /**
+   * Entry point for git, which passes the base, ours and theirs file ({@code %O %A %B}). The result is written to
+   * the ours file. The exit code is 0 for a clean merge, 1 if the result contains conflict markers and 2 if the files
+   * could not be merged, ours is unchanged in that case.
+   */
+  public static void main(String[] args) {
+    if (args.length != 3) {
+      System.err.println("usage: ChangelogMerger <base> <ours> <theirs>");
+      System.exit(2);
+    }
+    Path ours = Paths.get(args[1]);
+    try {
+      ChangelogParser parser = new ChangelogParser();
+      Result result = merge(parser.parse(Paths.get(args[0])), parser.parse(ours), parser.parse(Paths.get(args[2])));
+      Path tempFile = AtomicFiles.createTempFile(ours);
+      try {
+        Files.write(tempFile, result.getContent().getBytes(StandardCharsets.UTF_8));
+        // the file is created by git for the merge and is not written concurrently
+        AtomicFiles.replace(tempFile, ours, null);
+      } finally {
+        Files.deleteIfExists(tempFile);
+      }
+      result.getConflicts().forEach(conflict -> System.err.println(ours + ": " + conflict));
+      System.exit(result.hasConflicts() ? 1 : 0);
+    } catch (IOException | ChangelogException e) {
+      System.err.println("failed to merge " + ours + ": " + e.getMessage());
+      System.exit(2);
+    }
+  }
+
+  private void mergeHeader(List<String> base, List<String> ours, List<String> theirs) {
+    if (isConflict(base, ours, theirs)) {
+      conflicts.add("header was changed differently");
+      writeConflict(ours, theirs);
+      header.addAll(ours);
+    } else {
+      List<String> merged = pick(base, ours, theirs);
+      merged.forEach(out::println);
+      header.addAll(merged);
+    }
+  }
+
+  private void mergeVersions(Changelog base, Changelog ours, Changelog theirs, Map<String, String> mergedLinks) {
+    Map<String, Changelog.Version> baseVersions = byNumber(base.getVersions());
+    Map<String, Changelog.Version> ourVersions = byNumber(ours.getVersions());
+    Map<String, Changelog.Version> theirVersions = byNumber(theirs.getVersions());
+    for (String number : order(ourVersions, theirVersions)) {
+      mergeVersion(
+        baseVersions.get(number), ourVersions.get(number), theirVersions.get(number), mergedLinks.containsKey(number)
+      );
+    }
+  }
+
+  /**
+   * Orders the versions of both sides. The versions of ours keep their order; the versions which are only known by
+   * theirs are inserted before the same version as in theirs. Versions which were added on both sides between the
+   * same versions are ordered by date, latest first.
+   */
+  private static List<String> order(Map<String, Changelog.Version> ours, Map<String, Changelog.Version> theirs) {
+    Map<String, List<Changelog.Version>> theirsBefore = new HashMap<>();
+    List<Changelog.Version> pending = new ArrayList<>();
+    for (Changelog.Version version : theirs.values()) {
+      if (ours.containsKey(version.getNumber())) {
+        theirsBefore.put(version.getNumber(), pending);
+        pending = new ArrayList<>();
+      } else {
+        pending.add(version);
+      }
+    }
+    List<String> order = new ArrayList<>(ours.size() + theirs.size());
+    List<Changelog.Version> oursPending = new ArrayList<>();
+    for (Changelog.Version version : ours.values()) {
+      List<Changelog.Version> before = theirsBefore.get(version.getNumber());
+      if (before == null) {
+        oursPending.add(version);
+      } else {
+        mergeByDate(oursPending, before, order);
+        oursPending = new ArrayList<>();
+        order.add(version.getNumber());
+      }
+    }
+    mergeByDate(oursPending, pending, order);
+    return order;
+  }
+
+  private static void mergeByDate(List<Changelog.Version> ours, List<Changelog.Version> theirs, List<String> order) {
+    int i = 0;
+    int j = 0;
+    while (i < ours.size() || j < theirs.size()) {
+      if (j == theirs.size() || (i < ours.size() && !isBefore(ours.get(i), theirs.get(j)))) {
+        order.add(ours.get(i++).getNumber());
+      } else {
+        order.add(theirs.get(j++).getNumber());
+      }
+    }
+  }
+
+  private static boolean isBefore(Changelog.Version ours, Changelog.Version theirs) {
+    return ours.getDate() != null && theirs.getDate() != null && ours.getDate().isBefore(theirs.getDate());
+  }
+
+  private void mergeVersion(Changelog.Version base, Changelog.Version ours, Changelog.Version theirs, boolean link) {
+    if (ours == null || theirs == null) {
+      Changelog.Version remaining = ours != null ? ours : theirs;
+      if (base == null) {
+        // added by one side
+        writeVersion(remaining, link);
+        versions.add(remaining);
+      } else if (!isSame(base, remaining)) {
+        conflicts.add("version " + base.getNumber() + " was modified by " + (ours != null ? "ours" : "theirs")
+          + " and removed by " + (ours != null ? "theirs" : "ours"));
+        writeConflict(ours != null ? render(ours, link) : emptyList(), theirs != null ? render(theirs, link) : emptyList());
+        if (ours != null) {
+          versions.add(ours);
+        }
+      }
+      // otherwise removed by one side and unchanged by the other
+      return;
+    }
+    if (base == null) {
+      base = new Changelog.Version(ours.getNumber(), null, null);
+    }
+    Instant date = pick(base.getDate(), ours.getDate(), theirs.getDate());
+    boolean dateConflict = isConflict(base.getDate(), ours.getDate(), theirs.getDate());
+    Map<String, List<Item>> changes = mergeChanges(ours.getNumber(), base.getChanges(), ours.getChanges(), theirs.getChanges());
+    Changelog.Version merged = new Changelog.Version(ours.getNumber(), dateConflict ? ours.getDate() : date, resolve(changes));
+    versions.add(merged);
+    if (dateConflict) {
+      conflicts.add("version " + ours.getNumber() + " got different dates");
+      writeConflict(singletonList(heading(ours, link)), singletonList(heading(theirs, link)));
+    } else {
+      out.println(heading(merged, link));
+    }
+    writeChanges(changes);
+  }
+
+  private Map<String, List<Item>> mergeChanges(String number, Map<String, List<Changelog.Change>> base, Map<String, List<Changelog.Change>> ours, Map<String, List<Changelog.Change>> theirs) {
+    Map<String, String> names = new LinkedHashMap<>();
+    ours.keySet().forEach(type -> names.putIfAbsent(key(type), type));
+    theirs.keySet().forEach(type -> names.putIfAbsent(key(type), type));
+    Map<String, List<String>> baseByKey = byKey(base);
+    Map<String, List<String>> oursByKey = byKey(ours);
+    Map<String, List<String>> theirsByKey = byKey(theirs);
+    Map<String, List<Item>> merged = new LinkedHashMap<>();
+    names.forEach((key, type) -> {
+      List<Item> items = mergeEntries(
+        baseByKey.getOrDefault(key, emptyList()),
+        oursByKey.getOrDefault(key, emptyList()),
+        theirsByKey.getOrDefault(key, emptyList())
+      );
+      for (Item item : items) {
+        if (item.isConflict()) {
+          conflicts.add("version " + number + ", " + type + ": entry was changed differently");
+        }
+      }
+      if (!items.isEmpty()) {
+        merged.put(type, items);
+      }
+    });
+    return merged;
+  }
+
+  /**
+   * Merges the entries of a change type. An entry of base which is missing on a side was removed by that side, or
+   * replaced if the side has new entries at its position. New entries are placed before the next entry of base,
+   * which is kept by the side. It is a conflict, if both sides replaced the same entry by different entries.
+   */
+  static List<Item> mergeEntries(List<String> base, List<String> ours, List<String> theirs) {
+    int size = base.size();
+    Side oursSide = new Side(base, ours);
+    Side theirsSide = new Side(base, theirs);
+
+    // both sides replaced an entry: the new entries of both sides at the entry's position are in conflict
+    Map<Integer, Integer> conflictAnchors = new HashMap<>();
+    boolean[] consumedTheirs = new boolean[size + 1];
+    for (int i = 0; i < size; i++) {
+      if (oursSide.kept[i] || theirsSide.kept[i]) {
+        continue;
+      }
+      int oursAnchor = oursSide.nextKept[i];
+      int theirsAnchor = theirsSide.nextKept[i];
+      List<String> oursInserted = oursSide.inserted(oursAnchor);
+      List<String> theirsInserted = theirsSide.inserted(theirsAnchor);
+      if (!oursInserted.isEmpty() && !theirsInserted.isEmpty() && !oursInserted.equals(theirsInserted)
+        && !conflictAnchors.containsKey(oursAnchor) && !consumedTheirs[theirsAnchor]) {
+        conflictAnchors.put(oursAnchor, theirsAnchor);
+        consumedTheirs[theirsAnchor] = true;
+      }
+    }
+
+    // entries, which were added by both sides, are only added once
+    Map<String, Integer> addedByOurs = new HashMap<>();
+    for (int anchor = 0; anchor <= size; anchor++) {
+      if (!conflictAnchors.containsKey(anchor)) {
+        oursSide.inserted(anchor).forEach(entry -> addedByOurs.merge(entry, 1, Integer::sum));
+      }
+    }
+
+    List<Item> items = new ArrayList<>(Math.max(ours.size(), theirs.size()));
+    for (int anchor = 0; anchor <= size; anchor++) {
+      Integer theirsAnchor = conflictAnchors.get(anchor);
+      if (theirsAnchor != null) {
+        items.add(new Item(oursSide.inserted(anchor), theirsSide.inserted(theirsAnchor)));
+      } else {
+        oursSide.inserted(anchor).forEach(entry -> items.add(new Item(entry)));
+      }
+      if (!consumedTheirs[anchor]) {
+        for (String entry : theirsSide.inserted(anchor)) {
+          Integer count = addedByOurs.get(entry);
+          if (count == null || count == 0) {
+            items.add(new Item(entry));
+          } else {
+            addedByOurs.put(entry, count - 1);
+          }
+        }
+      }
+      if (anchor < size && oursSide.kept[anchor] && theirsSide.kept[anchor]) {
+        items.add(new Item(base.get(anchor)));
+      }
+    }
+    return items;
+  }
+
+  private Map<String, String> mergeLinks(List<Changelog.VersionLink> base, List<Changelog.VersionLink> ours, List<Changelog.VersionLink> theirs) {
+    baseLinks = linksByVersion(base);
+    oursLinks = linksByVersion(ours);
+    theirsLinks = linksByVersion(theirs);
+    Map<String, String> merged = new LinkedHashMap<>();
+    for (String version : linkVersions()) {
+      String link = isConflict(baseLinks.get(version), oursLinks.get(version), theirsLinks.get(version))
+        ? oursLinks.get(version)
+        : pick(baseLinks.get(version), oursLinks.get(version), theirsLinks.get(version));
+      if (link != null) {
+        merged.put(version, link);
+      }
+    }
+    return merged;
+  }
+
+  private void writeLinks(Map<String, String> merged) {
+    for (String version : linkVersions()) {
+      String ourLink = oursLinks.get(version);
+      String theirLink = theirsLinks.get(version);
+      if (isConflict(baseLinks.get(version), ourLink, theirLink)) {
+        conflicts.add("link of version " + version + " was changed differently");
+        writeConflict(linkLines(version, ourLink), linkLines(version, theirLink));
+      } else if (merged.containsKey(version)) {
+        new Changelog.VersionLink(version, merged.get(version)).write(out);
+      }
+      if (merged.containsKey(version)) {
+        links.add(new Changelog.VersionLink(version, merged.get(version)));
+      }
+    }
+  }
+
+  private Set<String> linkVersions() {
+    Set<String> versions = new LinkedHashSet<>(oursLinks.keySet());
+    versions.addAll(theirsLinks.keySet());
+    return versions;
+  }
+
+  private static List<String> linkLines(String version, String link) {
+    return link != null ? singletonList("[" + version + "]: " + link) : emptyList();
+  }
+
+  private void writeChanges(Map<String, List<Item>> changes) {
+    changes.forEach((type, items) -> {
+      out.println("### " + capitalize(type));
+      for (Item item : items) {
+        if (item.isConflict()) {
+          writeConflict(changeLines(item.ours), changeLines(item.theirs));
+        } else {
+          out.println("- " + item.change);
+        }
+      }
+      out.println();
+    });
+  }
+
+  private void writeConflict(List<String> ours, List<String> theirs) {
+    out.println(OURS_MARKER);
+    ours.forEach(out::println);
+    out.println(SEPARATOR_MARKER);
+    theirs.forEach(out::println);
+    out.println(THEIRS_MARKER);
+  }
+
+  private void writeVersion(Changelog.Version version, boolean link) {
+    if (link) {
+      version.writeWithLink(out);
+    } else {
+      version.write(out);
+    }
+  }
+
+  private static List<String> render(Changelog.Version version, boolean link) {
+    StringWriter rendered = new StringWriter();
+    PrintWriter writer = new PrintWriter(rendered);
+    if (link) {
+      version.writeWithLink(writer);
+    } else {
+      version.write(writer);
+    }
+    writer.flush();
+    List<String> lines = new ArrayList<>(Arrays.asList(rendered.toString().split("\\r?\\n", -1)));
+    // the blank line after the last type belongs to the version and not to the conflict
+    while (!lines.isEmpty() && lines.get(lines.size() - 1).isEmpty()) {
+      lines.remove(lines.size() - 1);
+    }
+    return lines;
+  }
+
+  private static String heading(Changelog.Version version, boolean link) {
+    String number = link ? "[" + version.getNumber() + "]" : version.getNumber();
+    return "## " + number + " - " + Changelog.DATE_FORMAT.format(version.getDate());
+  }
+
+  private static List<String> changeLines(List<String> changes) {
+    List<String> lines = new ArrayList<>(changes.size());
+    changes.forEach(change -> lines.add("- " + change));
+    return lines;
+  }
+
+  private static Map<String, List<Changelog.Change>> resolve(Map<String, List<Item>> changes) {
+    Map<String, List<Changelog.Change>> resolved = new LinkedHashMap<>();
+    changes.forEach((type, items) -> {
+      List<Changelog.Change> list = new ArrayList<>(items.size());
+      for (Item item : items) {
+        if (item.isConflict()) {
+          item.ours.forEach(change -> list.add(new Changelog.Change(change)));
+        } else {
+          list.add(new Changelog.Change(item.change));
+        }
+      }
+      resolved.put(type, list);
+    });
+    return resolved;
+  }
+
+  private static boolean isSame(Changelog.Version a, Changelog.Version b) {
+    return Objects.equals(a.getDate(), b.getDate()) && byKey(a.getChanges()).equals(byKey(b.getChanges()));
+  }
+
+  private static Map<String, Changelog.Version> byNumber(List<Changelog.Version> versions) {
+    Map<String, Changelog.Version> byNumber = new LinkedHashMap<>();
+    versions.forEach(version -> byNumber.putIfAbsent(version.getNumber(), version));
+    return byNumber;
+  }
+
+  private static Map<String, List<String>> byKey(Map<String, List<Changelog.Change>> changes) {
+    Map<String, List<String>> byKey = new HashMap<>();
+    changes.forEach((type, list) -> {
+      if (list != null && !list.isEmpty()) {
+        List<String> values = byKey.computeIfAbsent(key(type), k -> new ArrayList<>());
+        list.forEach(change -> values.add(change.getValue()));
+      }
+    });
+    return byKey;
+  }
+
+  private static Map<String, String> linksByVersion(List<Changelog.VersionLink> links) {
+    Map<String, String> byVersion = new LinkedHashMap<>();
+    links.forEach(link -> byVersion.putIfAbsent(link.getVersion(), link.getLink()));
+    return byVersion;
+  }
+
+  private static String key(String type) {
+    return type.toLowerCase(Locale.ENGLISH);
+  }
+
+  private static String capitalize(String type) {
+    return type.isEmpty() ? type : type.substring(0, 1).toUpperCase(Locale.ENGLISH) + type.substring(1);
+  }
+
+  /**
+   * Returns the value of the side which has changed it, or ours if none or both have changed it the same way.
+   */
+  private static <T> T pick(T base, T ours, T theirs) {
+    return Objects.equals(ours, base) ? theirs : ours;
+  }
+
+  private static <T> boolean isConflict(T base, T ours, T theirs) {
+    return !Objects.equals(ours, theirs) && !Objects.equals(ours, base) && !Objects.equals(theirs, base);
+  }
+
+  private static <T> List<T> emptyList() {
+    return Collections.emptyList();
+  }
+
+  private static <T> List<T> singletonList(T value) {
+    return Collections.singletonList(value);
+  }
+
+  /**
+   * The entries of one side in relation to the entries of base.
+   */
+  private static final class Side {
+
+    // whether the entry of base is still on this side
+    private final boolean[] kept;
+    // index of the next entry of base after the given one, which is kept on this side, or the size of base
+    private final int[] nextKept;
+    // entries of this side which are not in base, by the index of the next kept entry of base
+    private final Map<Integer, List<String>> inserted = new HashMap<>();
+
+    private Side(List<String> base, List<String> entries) {
+      int size = base.size();
+      kept = new boolean[size];
+      Map<String, Deque<Integer>> positions = new HashMap<>();
+      for (int i = 0; i < size; i++) {
+        positions.computeIfAbsent(base.get(i), k -> new ArrayDeque<>()).add(i);
+      }
+      List<String> pending = new ArrayList<>();
+      for (String entry : entries) {
+        Deque<Integer> candidates = positions.get(entry);
+        Integer index = candidates != null ? candidates.poll() : null;
+        if (index == null) {
+          pending.add(entry);
+        } else {
+          kept[index] = true;
+          if (!pending.isEmpty()) {
+            inserted.computeIfAbsent(index, k -> new ArrayList<>()).addAll(pending);
+            pending = new ArrayList<>();
+          }
+        }
+      }
+      if (!pending.isEmpty()) {
+        inserted.computeIfAbsent(size, k -> new ArrayList<>()).addAll(pending);
+      }
+      nextKept = new int[size];
+      int next = size;
+      for (int i = size - 1; i >= 0; i--) {
+        nextKept[i] = next;
+        if (kept[i]) {
+          next = i;
+        }
+      }
+    }
+
+    List<String> inserted(int anchor) {
+      return inserted.getOrDefault(anchor, Collections.emptyList());
+    }
+  }
+
+  /**
+   * A merged entry, or the entries of both sides if they are in conflict.
+   */
+  static final class Item {
+
+    private final String change;
+    private final List<String> ours;
+    private final List<String> theirs;
+
+    private Item(String change) {
+      this.change = change;
+      this.ours = null;
+      this.theirs = null;
+    }
+
+    private Item(List<String> ours, List<String> theirs) {
+      this.change = null;
+      this.ours = ours;
+      this.theirs = theirs;
+    }
+
+    boolean isConflict() {
+      return change == null;
+    }
+  }
+
+  public static final class Result {
+
+    private final Changelog changelog;
+    private final String content;
+    private final List<String> conflicts;
+
+    private Result(Changelog changelog, String content, List<String> conflicts) {
+      this.changelog = changelog;
+      this.content = content;
+      this.conflicts = Collections.unmodifiableList(conflicts);
+    }
+
+    /**
+     * The merged changelog, conflicts are resolved in favour of ours.
+     */
+    public Changelog getChangelog() {
+      return changelog;
+    }
+
+    /**
+     * The merged changelog as markdown, with git style conflict markers around the parts which are in conflict.
+     */
+    public String getContent() {
+      return content;
+    }
+
+    /**
+     * A description of each conflict, empty if the merge was clean.
+     */
+    public List<String> getConflicts() {
+      return conflicts;
+    }
+
+    public boolean hasConflicts() {
+      return !conflicts.isEmpty();
+    }
+  }
+}
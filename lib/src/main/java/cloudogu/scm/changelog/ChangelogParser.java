@@ -25,47 +25,176 @@
 package cloudogu.scm.changelog;
 
 import java.io.IOException;
-import java.nio.file.Files;
+import java.io.Reader;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
 import java.time.Instant;
-import java.time.LocalDate;
-import java.time.ZoneOffset;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
-
-import static cloudogu.scm.changelog.Changelog.DATE_FORMAT;
 
 public class ChangelogParser {
 
-  private static final Pattern VERSION_PATTERN = Pattern.compile("##\\s+\\[?([0-9.]+(?:-[^]\\s]*)?)]? - (....-..-..)");
-  private static final Pattern TYPE_PATTERN = Pattern.compile("###\\s+(.*)");
-  private static final Pattern CHANGE_PATTERN = Pattern.compile("-\\s+(.*)");
-  private static final Pattern LINK_PATTERN = Pattern.compile("\\[([0-9.]+(?:-.*)?)]:\\s+(.+)");
+  private static final int BUFFER_SIZE = 8192;
+
+  private boolean index;
+
+  /**
+   * Uses the sidecar index next to the changelog file (e.g. {@code .CHANGELOG.md.idx}) for {@link #parseLazily(Path)},
+   * so that the versions are known without scanning the file. A missing or stale index is rebuilt.
+   */
+  public ChangelogParser withIndex(boolean index) {
+    this.index = index;
+    return this;
+  }
 
   public Changelog parse(Path changelogFile) {
-    List<String> lines = readChangelogFile(changelogFile);
-    return parse(lines);
+    ChangelogParseEvent event = new ChangelogParseEvent();
+    event.begin();
+    try (FileChannel channel = FileChannel.open(changelogFile, StandardOpenOption.READ)) {
+      LineParser lineParser = parseLines(channel);
+      Changelog changelog = lineParser.get();
+      event.complete(changelogFile, lineParser.getLines(), channel.size(), changelog.getVersions().size());
+      return changelog;
+    } catch (IOException e) {
+      throw new ReadChangelogFileException(changelogFile, e);
+    }
+  }
+
+  /**
+   * Returns a changelog which is backed by the memory mapped file. In contrast to {@link #parse(Path)} the file is not
+   * parsed upfront: the versions are indexed as far as they are requested and the changes of a version are only
+   * decoded, if {@link Changelog.Version#getChanges()} is called. Reading the latest version of a large changelog
+   * therefore only touches the beginning of the file.
+   */
+  public Changelog parseLazily(Path changelogFile) {
+    if (index) {
+      return MappedChangelog.map(changelogFile, ChangelogIndex.of(changelogFile));
+    }
+    return MappedChangelog.map(changelogFile);
+  }
+
+  /**
+   * Parses the changelog together with its archive files, which were written by {@link ChangelogArchive}. The
+   * versions of the archives follow the versions of the changelog. The archives are read lazily, so that asking for
+   * the recent versions does not read the history.
+   */
+  public Changelog parseWithArchives(Path changelogFile) {
+    return new ArchivedChangelog(parse(changelogFile), ChangelogArchive.findArchiveFiles(changelogFile));
+  }
+
+  /**
+   * Parses the changelog from the given channel in a single pass. The channel is not closed.
+   */
+  public Changelog parse(ReadableByteChannel channel) throws IOException {
+    return parseLines(channel).get();
+  }
+
+  /**
+   * Parses all lines of the channel. The changelog is returned by {@link LineParser#get()}.
+   */
+  LineParser parseLines(ReadableByteChannel channel) throws IOException {
+    LineParser lineParser = new LineParser();
+    new LineReader(reader(channel)).forEachLine(lineParser);
+    return lineParser;
+  }
+
+  private static Reader reader(ReadableByteChannel channel) {
+    return Channels.newReader(
+      channel,
+      StandardCharsets.UTF_8.newDecoder()
+        .onMalformedInput(CodingErrorAction.REPORT)
+        .onUnmappableCharacter(CodingErrorAction.REPORT),
+      -1
+    );
+  }
+
+  /**
+   * Parses the changelog from the given reader in a single pass. The reader is not closed.
+   */
+  public Changelog parse(Reader reader) throws IOException {
+    LineParser lineParser = new LineParser();
+    new LineReader(reader).forEachLine(lineParser);
+    return lineParser.get();
   }
 
   Changelog parse(List<String> lines) {
     LineParser lineParser = new LineParser();
-    lines.stream().map(String::trim).forEach(lineParser::readLine);
+    lines.forEach(line -> lineParser.readLine(line.toCharArray(), 0, line.length()));
     return lineParser.get();
   }
 
-  private List<String> readChangelogFile(Path changelogFile) {
-    try {
-      return Files.readAllLines(changelogFile);
-    } catch (IOException e) {
-      throw new ReadChangelogFileException(changelogFile, e);
+  interface LineConsumer {
+    void readLine(char[] line, int start, int end);
+  }
+
+  /**
+   * Splits the content of a reader into lines, like {@link java.io.BufferedReader#readLine()} does, without creating
+   * a string for each line. The passed array is reused for the following lines.
+   */
+  static class LineReader {
+
+    private final Reader reader;
+
+    private char[] buffer = new char[BUFFER_SIZE];
+
+    LineReader(Reader reader) {
+      this.reader = reader;
+    }
+
+    void forEachLine(LineConsumer consumer) throws IOException {
+      int start = 0;
+      int limit = 0;
+      boolean skipLineFeed = false;
+      while (true) {
+        if (limit == buffer.length) {
+          if (start > 0) {
+            System.arraycopy(buffer, start, buffer, 0, limit - start);
+            limit -= start;
+            start = 0;
+          } else {
+            buffer = Arrays.copyOf(buffer, buffer.length * 2);
+          }
+        }
+        int read = reader.read(buffer, limit, buffer.length - limit);
+        if (read < 0) {
+          break;
+        }
+        int pos = limit;
+        limit += read;
+        for (; pos < limit; pos++) {
+          char c = buffer[pos];
+          if (skipLineFeed) {
+            skipLineFeed = false;
+            if (c == '\n') {
+              start = pos + 1;
+              continue;
+            }
+          }
+          if (c == '\n' || c == '\r') {
+            consumer.readLine(buffer, start, pos);
+            start = pos + 1;
+            skipLineFeed = c == '\r';
+          }
+        }
+      }
+      if (start < limit) {
+        consumer.readLine(buffer, start, limit);
+      }
     }
   }
 
-  private class LineParser {
+  static class LineParser implements LineConsumer {
+
+    private static final String[] COMMON_TYPES = {ChangeEntries.ADDED, ChangeEntries.FIXED, ChangeEntries.CHANGED};
+
     private boolean headerFinished = false;
 
     private final List<String> header = new ArrayList<>();
@@ -77,30 +206,73 @@ public class ChangelogParser {
     private String currentVersion;
     private Instant currentDate;
     private String currentType;
+    private int lines;
+
+    @Override
+    public void readLine(char[] line, int start, int end) {
+      lines++;
+      start = ChangelogLines.trimStart(line, start, end);
+      end = ChangelogLines.trimEnd(line, start, end);
+      char first = start < end ? line[start] : ' ';
+      if (first == '#' && readHeading(line, start, end)) {
+        return;
+      }
+      if (!headerFinished) {
+        header.add(new String(line, start, end - start));
+      } else if (first == '-') {
+        readChange(line, start, end);
+      } else if (first == '[') {
+        readLink(line, start, end);
+      }
+    }
 
-    void readLine(String line) {
-      Matcher versionMatcher = VERSION_PATTERN.matcher(line);
-      Matcher typeMatcher = TYPE_PATTERN.matcher(line);
-      Matcher changeMatcher = CHANGE_PATTERN.matcher(line);
-      Matcher linkMatcher = LINK_PATTERN.matcher(line);
-      if (versionMatcher.matches()) {
+    private boolean readHeading(char[] line, int start, int end) {
+      ChangelogLines.Heading heading = ChangelogLines.heading(line, start, end);
+      if (heading != null) {
         finishCurrentVersion();
-        currentVersion = versionMatcher.group(1);
-        currentDate = LocalDate.parse(versionMatcher.group(2), DATE_FORMAT).atStartOfDay(ZoneOffset.UTC).toInstant();
+        currentVersion = heading.getNumber();
+        currentDate = heading.getDate();
         headerFinished = true;
-      } else if (typeMatcher.matches()) {
+        return true;
+      }
+      int typeStart = ChangelogLines.typeStart(line, start, end);
+      if (typeStart >= 0) {
         finishCurrentType();
-        currentType = typeMatcher.group(1);
-      } else if (!headerFinished) {
-        header.add(line);
-      } else if (changeMatcher.matches()) {
+        currentType = type(line, typeStart, end);
+        return true;
+      }
+      return false;
+    }
+
+    private void readChange(char[] line, int start, int end) {
+      int changeStart = ChangelogLines.changeStart(line, start, end);
+      if (changeStart >= 0) {
         if (changes == null) {
           changes = new ArrayList<>();
         }
-        changes.add(new Changelog.Change(changeMatcher.group(1)));
-      } else if (linkMatcher.matches()) {
-        links.add(new Changelog.VersionLink(linkMatcher.group(1), linkMatcher.group(2)));
+        changes.add(new Changelog.Change(new String(line, changeStart, end - changeStart)));
+      }
+    }
+
+    private void readLink(char[] line, int start, int end) {
+      Changelog.VersionLink link = ChangelogLines.link(line, start, end);
+      if (link != null) {
+        links.add(link);
+      }
+    }
+
+    private String type(char[] line, int start, int end) {
+      // most changelogs use only a few types, so we reuse the common ones instead of creating a string per heading
+      for (String type : COMMON_TYPES) {
+        if (ChangelogLines.equals(type, line, start, end)) {
+          return type;
+        }
       }
+      return new String(line, start, end - start);
+    }
+
+    int getLines() {
+      return lines;
     }
 
     Changelog get() {
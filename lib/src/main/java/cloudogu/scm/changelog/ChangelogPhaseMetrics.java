@@ -0,0 +1,67 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2020-present Cloudogu GmbH and Contributors
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package cloudogu.scm.changelog;
+
+import java.time.Duration;
+
+/**
+ * Duration and counters of a single phase of a changelog update. The meaning of items and bytes depends on the phase,
+ * see {@link ChangelogUpdatePhase}.
+ */
+public final class ChangelogPhaseMetrics {
+
+  private final ChangelogUpdatePhase phase;
+  private final Duration duration;
+  private final long items;
+  private final long bytes;
+
+  public ChangelogPhaseMetrics(ChangelogUpdatePhase phase, Duration duration, long items, long bytes) {
+    this.phase = phase;
+    this.duration = duration;
+    this.items = items;
+    this.bytes = bytes;
+  }
+
+  public ChangelogUpdatePhase getPhase() {
+    return phase;
+  }
+
+  public Duration getDuration() {
+    return duration;
+  }
+
+  public long getItems() {
+    return items;
+  }
+
+  public long getBytes() {
+    return bytes;
+  }
+
+  @Override
+  public String toString() {
+    return phase + ": " + items + " items, " + bytes + " bytes in " + (duration.toNanos() / 1_000_000.0) + " ms";
+  }
+}
@@ -0,0 +1,60 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2020-present Cloudogu GmbH and Contributors
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package cloudogu.scm.changelog;
+
+/**
+ * Phases of a changelog update in the order in which they are executed. Each phase is reported with the number of
+ * items it has processed and the number of bytes it has read or written.
+ */
+public enum ChangelogUpdatePhase {
+
+  /**
+   * Finding the entry files. Items are the entry files found, bytes are not counted.
+   */
+  SCAN_ENTRIES,
+
+  /**
+   * Reading and parsing the entry files. Items are the entry files parsed, entries taken from the cache are not
+   * counted. Bytes are the bytes read from entry files.
+   */
+  PARSE_ENTRIES,
+
+  /**
+   * Reading the existing changelog. Items are the lines parsed, in splice mode only the lines up to the first version
+   * and at the end of the file. Bytes are the size of the changelog.
+   */
+  PARSE_CHANGELOG,
+
+  /**
+   * Computing the number of the new version. Items are the new changes, bytes are not counted.
+   */
+  COMPUTE_VERSION,
+
+  /**
+   * Writing and replacing the changelog. Items are the versions rendered, in splice mode only the new version. Bytes
+   * are the size of the new changelog.
+   */
+  WRITE_CHANGELOG
+}
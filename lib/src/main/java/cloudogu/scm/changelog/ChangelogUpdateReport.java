@@ -0,0 +1,105 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2020-present Cloudogu GmbH and Contributors
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package cloudogu.scm.changelog;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Collects the metrics of all phases of a changelog update, e.g. to write them as json report for build dashboards.
+ */
+public final class ChangelogUpdateReport implements ChangelogUpdateListener {
+
+  private final Path changelogFile;
+  private final List<ChangelogPhaseMetrics> phases = new ArrayList<>();
+
+  public ChangelogUpdateReport(Path changelogFile) {
+    this.changelogFile = changelogFile;
+  }
+
+  @Override
+  public synchronized void phaseCompleted(ChangelogPhaseMetrics metrics) {
+    phases.add(metrics);
+  }
+
+  public Path getChangelogFile() {
+    return changelogFile;
+  }
+
+  public synchronized List<ChangelogPhaseMetrics> getPhases() {
+    return Collections.unmodifiableList(new ArrayList<>(phases));
+  }
+
+  /**
+   * Writes the report as json object of the following form:
+   *
+   * <pre>
+   * {"changelog":"/path/CHANGELOG.md","phases":[{"phase":"scan_entries","durationMillis":1.2,"items":3,"bytes":0}]}
+   * </pre>
+   */
+  public void writeJson(Writer writer) throws IOException {
+    writer.write("{\"changelog\":");
+    writeString(writer, changelogFile.toAbsolutePath().toString());
+    writer.write(",\"phases\":[");
+    List<ChangelogPhaseMetrics> metrics = getPhases();
+    for (int i = 0; i < metrics.size(); i++) {
+      ChangelogPhaseMetrics phase = metrics.get(i);
+      if (i > 0) {
+        writer.write(',');
+      }
+      writer.write("{\"phase\":\"");
+      writer.write(phase.getPhase().name().toLowerCase(Locale.ENGLISH));
+      writer.write("\",\"durationMillis\":");
+      writer.write(String.format(Locale.ENGLISH, "%.3f", phase.getDuration().toNanos() / 1_000_000.0));
+      writer.write(",\"items\":");
+      writer.write(Long.toString(phase.getItems()));
+      writer.write(",\"bytes\":");
+      writer.write(Long.toString(phase.getBytes()));
+      writer.write('}');
+    }
+    writer.write("]}");
+  }
+
+  static void writeString(Writer writer, String value) throws IOException {
+    writer.write('"');
+    for (int i = 0; i < value.length(); i++) {
+      char c = value.charAt(i);
+      if (c == '"' || c == '\\') {
+        writer.write('\\');
+        writer.write(c);
+      } else if (c < ' ') {
+        writer.write(String.format("\\u%04x", (int) c));
+      } else {
+        writer.write(c);
+      }
+    }
+    writer.write('"');
+  }
+}
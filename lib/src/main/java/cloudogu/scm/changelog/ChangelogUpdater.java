@@ -25,23 +25,47 @@
 package cloudogu.scm.changelog;
 
 import com.google.common.base.Strings;
+import com.google.common.hash.Hasher;
+import com.google.common.hash.Hashing;
+import com.google.common.hash.HashingInputStream;
+import com.google.common.io.CountingInputStream;
 
 import java.io.IOException;
 import java.io.PrintWriter;
+import java.io.StringWriter;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributes;
 import java.text.MessageFormat;
 import java.time.Instant;
 import java.util.List;
 import java.util.Map;
+import java.util.function.Consumer;
+
+import static java.util.Collections.emptyList;
+import static java.util.Collections.singletonList;
 
 public final class ChangelogUpdater {
 
+  private static final int DEFAULT_RETRIES = 3;
+
   private final Path changelogFile;
   private final Path changelogsDirectory;
   private final Instant date;
   private String versionUrlPattern;
   private String version;
+  private boolean splice;
+  private Path cacheFile;
+  private boolean lock;
+  private int retries = DEFAULT_RETRIES;
+  private ChangelogArchive archive;
+  private boolean index;
+  private ChangelogUpdateListener listener = ChangelogUpdateListener.NOOP;
 
   public ChangelogUpdater(Path changelogFile, Path changelogsDirectory) {
     this(changelogFile, changelogsDirectory, Instant.now());
@@ -54,32 +78,226 @@ public final class ChangelogUpdater {
   }
 
   public void update() throws IOException {
-    Map<String, List<Changelog.Change>> newEntries = new ChangeEntries().from(changelogsDirectory);
+    update(readEntries());
+  }
+
+  Path getChangelogFile() {
+    return changelogFile;
+  }
+
+  Map<String, List<Changelog.Change>> readEntries() {
+    return new ChangeEntries().withCache(cacheFile).withListener(listener).from(changelogsDirectory);
+  }
+
+  /**
+   * Writes the entries as new version into the changelog.
+   *
+   * @return number of the new version or {@code null}, if there are no entries
+   */
+  String update(Map<String, List<Changelog.Change>> newEntries) throws IOException {
     if (newEntries.isEmpty()) {
-      return;
-    }
-    Changelog oldChangelog = new ChangelogParser().parse(changelogFile);
-    String nextVersionNumber = determineNextVersionNumber(newEntries, oldChangelog);
-    Changelog.Version newVersion = new Changelog.Version(nextVersionNumber, date, newEntries);
-    try (PrintWriter out = new PrintWriter(Files.newBufferedWriter(changelogFile))) {
-      oldChangelog.getHeader().forEach(out::println);
-      writeVersion(newVersion, out);
-      oldChangelog.getVersions().forEach(v -> writeVersion(v, out));
-      oldChangelog.getLinks().forEach(link -> link.write(out));
-      if (shouldWriteLinks()) {
-        new Changelog.VersionLink(nextVersionNumber, MessageFormat.format(versionUrlPattern, nextVersionNumber)).write(out);
+      return null;
+    }
+    try (ChangelogLock ignored = lock ? ChangelogLock.acquire(changelogFile) : null) {
+      String number = retrying(() -> splice ? splice(newEntries) : rewrite(newEntries));
+      int archived = archive != null ? retrying(archive::archive) : 0;
+      if (index && (!splice || archived > 0)) {
+        // rebuilds the index, which is stale after the update; a splice has already written the new index
+        ChangelogIndex.of(changelogFile);
+      }
+      return number;
+    }
+  }
+
+  private <T> T retrying(Attempt<T> attempt) throws IOException {
+    for (int count = 0; ; count++) {
+      try {
+        return attempt.run();
+      } catch (ConcurrentChangelogModificationException e) {
+        if (count >= retries) {
+          throw e;
+        }
+      }
+    }
+  }
+
+  private String rewrite(Map<String, List<Changelog.Change>> newEntries) throws IOException {
+    Path tempFile = AtomicFiles.createTempFile(changelogFile);
+    try {
+      PhaseCounter parsing = PhaseCounter.start(ChangelogUpdatePhase.PARSE_CHANGELOG);
+      ChangelogParseEvent parseEvent = new ChangelogParseEvent();
+      parseEvent.begin();
+      Changelog oldChangelog;
+      String hash;
+      try (CountingInputStream counting = new CountingInputStream(Files.newInputStream(changelogFile));
+           HashingInputStream input = new HashingInputStream(Hashing.sha256(), counting)) {
+        ChangelogParser.LineParser lineParser = new ChangelogParser().parseLines(Channels.newChannel(input));
+        oldChangelog = lineParser.get();
+        hash = input.hash().toString();
+        parsing.add(lineParser.getLines(), counting.getCount());
+        parseEvent.complete(changelogFile, lineParser.getLines(), counting.getCount(), oldChangelog.getVersions().size());
+      } catch (IOException e) {
+        throw new ReadChangelogFileException(changelogFile, e);
+      }
+      parsing.complete(listener);
+
+      String nextVersionNumber = determineNextVersionNumber(newEntries, oldChangelog);
+      Changelog.Version newVersion = new Changelog.Version(nextVersionNumber, date, newEntries);
+      PhaseCounter writing = PhaseCounter.start(ChangelogUpdatePhase.WRITE_CHANGELOG);
+      ChangelogWriteEvent writeEvent = new ChangelogWriteEvent();
+      writeEvent.begin();
+      AtomicFiles.write(tempFile, out -> {
+        oldChangelog.getHeader().forEach(out::println);
+        writeVersion(newVersion, out);
+        oldChangelog.getVersions().forEach(v -> writeVersion(v, out));
+        oldChangelog.getLinks().forEach(link -> link.write(out));
+        if (shouldWriteLinks()) {
+          new Changelog.VersionLink(nextVersionNumber, MessageFormat.format(versionUrlPattern, nextVersionNumber)).write(out);
+        }
+      });
+      int versions = 1 + oldChangelog.getVersions().size();
+      long size = Files.size(tempFile);
+      writing.add(versions, size);
+      AtomicFiles.replace(tempFile, changelogFile, hash);
+      writing.complete(listener);
+      writeEvent.complete(changelogFile, nextVersionNumber, countChanges(newEntries), versions, size, false);
+      return nextVersionNumber;
+    } finally {
+      Files.deleteIfExists(tempFile);
+    }
+  }
+
+  private String splice(Map<String, List<Changelog.Change>> newEntries) throws IOException {
+    Path tempFile = AtomicFiles.createTempFile(changelogFile);
+    try {
+      String nextVersionNumber;
+      String hash;
+      PhaseCounter writing;
+      ChangelogWriteEvent writeEvent = new ChangelogWriteEvent();
+      long size;
+      IndexUpdate indexUpdate = null;
+      try (FileChannel source = FileChannel.open(changelogFile, StandardOpenOption.READ);
+           FileChannel target = FileChannel.open(tempFile, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+        PhaseCounter parsing = PhaseCounter.start(ChangelogUpdatePhase.PARSE_CHANGELOG);
+        ChangelogParseEvent parseEvent = new ChangelogParseEvent();
+        parseEvent.begin();
+        hash = AtomicFiles.hash(source);
+        ChangelogIndex oldIndex = index(hash);
+        ChangelogLayout layout = oldIndex != null ? ChangelogLayout.of(oldIndex) : ChangelogLayout.scan(source);
+        parsing.add(layout.getScannedLines(), layout.getSize());
+        parsing.complete(listener);
+        parseEvent.complete(changelogFile, layout.getScannedLines(), layout.getSize(), -1);
+
+        Changelog.Version firstVersion = layout.getFirstVersion();
+        Changelog latest = new Changelog(emptyList(), firstVersion == null ? emptyList() : singletonList(firstVersion), emptyList());
+        String number = determineNextVersionNumber(newEntries, latest);
+        Changelog.Version newVersion = new Changelog.Version(number, date, newEntries);
+        nextVersionNumber = number;
+
+        writing = PhaseCounter.start(ChangelogUpdatePhase.WRITE_CHANGELOG);
+        writeEvent.begin();
+
+        // the new index is derived from the old one, which requires a version to splice in front of
+        boolean derivedIndex = oldIndex != null && !oldIndex.getEntries().isEmpty();
+        SpliceTarget out = new SpliceTarget(target, derivedIndex);
+        long headerEnd = layout.getFirstVersionOffset();
+        out.copy(source, 0, headerEnd);
+        if (headerEnd > 0 && !endsWithLineBreak(source, headerEnd)) {
+          out.write(render(PrintWriter::println));
+        }
+        long versionOffset = out.getPosition();
+        byte[] version = render(writer -> writeVersion(newVersion, writer));
+        out.write(version);
+        long linkOffset = -1;
+        long linkEnd = -1;
+        if (shouldWriteLinks()) {
+          if (derivedIndex) {
+            List<ChangelogIndex.Entry> entries = oldIndex.getEntries();
+            out.startSection(entries.get(entries.size() - 1).getOffset() + out.getPosition() - headerEnd);
+          }
+          out.copy(source, headerEnd, layout.getContentEnd());
+          out.write(render(writer -> {
+            if (layout.getContentEnd() > headerEnd) {
+              writer.println();
+              if (!layout.isEndsWithLink()) {
+                writer.println();
+              }
+            }
+          }));
+          linkOffset = out.getPosition();
+          byte[] link = render(new Changelog.VersionLink(number, MessageFormat.format(versionUrlPattern, number))::write);
+          out.write(link);
+          linkEnd = linkOffset + link.length - System.lineSeparator().length();
+        } else {
+          out.copy(source, headerEnd, layout.getSize());
+        }
+        target.force(true);
+        size = target.size();
+        writing.add(1, size);
+        if (derivedIndex) {
+          indexUpdate = new IndexUpdate(
+            oldIndex, out.hash(), newVersion, versionOffset, version, linkOffset, linkEnd, out.sectionHash()
+          );
+        }
+      }
+      AtomicFiles.replace(tempFile, changelogFile, hash);
+      writing.complete(listener);
+      writeEvent.complete(changelogFile, nextVersionNumber, countChanges(newEntries), 1, size, true);
+      if (indexUpdate != null) {
+        indexUpdate.store();
+      } else if (index) {
+        ChangelogIndex.of(changelogFile);
+      }
+      return nextVersionNumber;
+    } finally {
+      Files.deleteIfExists(tempFile);
+    }
+  }
+
+  /**
+   * Returns the index of the changelog, if the index is enabled and matches the content of the changelog.
+   */
+  private ChangelogIndex index(String hash) {
+    if (index) {
+      ChangelogIndex changelogIndex = ChangelogIndex.of(changelogFile);
+      // size and modification time could miss an edit, the hash of the content can not
+      if (changelogIndex.getHash().equals(hash)) {
+        return changelogIndex;
       }
     }
+    return null;
+  }
+
+  private static boolean endsWithLineBreak(FileChannel channel, long end) throws IOException {
+    ByteBuffer buffer = ByteBuffer.allocate(1);
+    channel.read(buffer, end - 1);
+    return ByteLines.isLineBreak(buffer.get(0));
+  }
+
+  private static byte[] render(Consumer<PrintWriter> writing) {
+    StringWriter buffer = new StringWriter();
+    try (PrintWriter out = new PrintWriter(buffer)) {
+      writing.accept(out);
+    }
+    return buffer.toString().getBytes(StandardCharsets.UTF_8);
   }
 
   private String determineNextVersionNumber(Map<String, List<Changelog.Change>> newEntries, Changelog oldChangelog) {
+    PhaseCounter computing = PhaseCounter.start(ChangelogUpdatePhase.COMPUTE_VERSION);
+    String nextVersionNumber;
     if (Strings.isNullOrEmpty(version)) {
-      String nextVersionNumber = new VersionComputer().computeNextVersionNumber(newEntries, oldChangelog);
-      System.out.println("Using next version " + nextVersionNumber);
-      return nextVersionNumber;
+      nextVersionNumber = new VersionComputer().computeNextVersionNumber(newEntries, oldChangelog);
+      listener.versionComputed(nextVersionNumber);
     } else {
-      return version;
+      nextVersionNumber = version;
     }
+    computing.add(countChanges(newEntries), 0);
+    computing.complete(listener);
+    return nextVersionNumber;
+  }
+
+  private static int countChanges(Map<String, List<Changelog.Change>> entries) {
+    return entries.values().stream().mapToInt(List::size).sum();
   }
 
   private void writeVersion(Changelog.Version v, PrintWriter out) {
@@ -103,4 +321,201 @@ public final class ChangelogUpdater {
     this.version = version;
     return this;
   }
+
+  /**
+   * Enables the splice mode. Instead of rendering the whole changelog again, the new version is inserted in front of
+   * the first existing version and the new link is appended. All other bytes are copied unchanged, so the costs of an
+   * update depend only on the size of the new entries and not on the size of the history.
+   */
+  public ChangelogUpdater withSplice(boolean splice) {
+    this.splice = splice;
+    return this;
+  }
+
+  /**
+   * Caches the parsed changelog entries in the given file. On the next update only entry files which were added or
+   * modified in the meantime are parsed.
+   */
+  public ChangelogUpdater withCache(Path cacheFile) {
+    this.cacheFile = cacheFile;
+    return this;
+  }
+
+  /**
+   * Holds an exclusive lock on a lock file next to the changelog during the update. Concurrent updates of the same
+   * changelog from other threads or processes, which use the lock too, wait until the update is finished. Without
+   * it, no lock file is created and the comparison and replacement of the changelog are only atomic for the threads
+   * of the same jvm, see {@link #withRetries(int)}.
+   */
+  public ChangelogUpdater withLock(boolean lock) {
+    this.lock = lock;
+    return this;
+  }
+
+  /**
+   * The changelog is only replaced, if its content has not changed since it was read. If a concurrent change is
+   * detected, the update is repeated with the new content up to the given number of times, before a
+   * {@link ConcurrentChangelogModificationException} is thrown. The default is {@value #DEFAULT_RETRIES}.
+   */
+  public ChangelogUpdater withRetries(int retries) {
+    this.retries = retries;
+    return this;
+  }
+
+  /**
+   * Moves old versions into archive files after the update, so that the changelog stays small. The changelog is
+   * only rewritten, if a version has to be archived.
+   *
+   * @throws IllegalArgumentException if the archive belongs to another changelog file
+   */
+  public ChangelogUpdater withArchive(ChangelogArchive archive) {
+    if (archive != null && !archive.getChangelogFile().equals(changelogFile)) {
+      throw new IllegalArgumentException("archive of " + archive.getChangelogFile() + " can not be used for " + changelogFile);
+    }
+    this.archive = archive;
+    return this;
+  }
+
+  /**
+   * Uses the sidecar index next to the changelog (e.g. {@code .CHANGELOG.md.idx}) to find the sections for the splice
+   * mode without scanning the file, and rebuilds the index after the update.
+   */
+  public ChangelogUpdater withIndex(boolean index) {
+    this.index = index;
+    return this;
+  }
+
+  /**
+   * Reports the duration and the counters of each phase of the update to the given listener, e.g. a
+   * {@link ChangelogUpdateReport}.
+   */
+  public ChangelogUpdater withListener(ChangelogUpdateListener listener) {
+    this.listener = listener;
+    return this;
+  }
+
+  private interface Attempt<T> {
+    T run() throws IOException;
+  }
+
+  /**
+   * Target of a splice, which counts the written bytes. If the target is hashed, the parts of the old changelog are
+   * read and hashed while they are copied, instead of being transferred, so that the hash of the new changelog is
+   * known without reading it again.
+   */
+  private static final class SpliceTarget {
+
+    private static final int BUFFER_SIZE = 8192;
+
+    private final FileChannel channel;
+    private final Hasher hasher;
+    private Hasher sectionHasher;
+    private long sectionStart;
+    private long position;
+
+    private SpliceTarget(FileChannel channel, boolean hashed) {
+      this.channel = channel;
+      this.hasher = hashed ? Hashing.sha256().newHasher() : null;
+    }
+
+    long getPosition() {
+      return position;
+    }
+
+    /**
+     * Hashes all bytes from the given offset of the target to the end separately.
+     */
+    void startSection(long offset) {
+      sectionHasher = Hashing.sha256().newHasher();
+      sectionStart = offset;
+    }
+
+    void copy(FileChannel source, long start, long end) throws IOException {
+      if (hasher == null) {
+        long offset = start;
+        while (offset < end) {
+          offset += source.transferTo(offset, end - offset, channel);
+        }
+        position += Math.max(0, end - start);
+        return;
+      }
+      ByteBuffer buffer = ByteBuffer.allocate(BUFFER_SIZE);
+      long offset = start;
+      while (offset < end) {
+        buffer.clear().limit((int) Math.min(BUFFER_SIZE, end - offset));
+        int read = source.read(buffer, offset);
+        if (read < 0) {
+          throw new IOException("changelog was truncated while it was copied");
+        }
+        write(buffer.array(), read);
+        offset += read;
+      }
+    }
+
+    void write(byte[] bytes) throws IOException {
+      write(bytes, bytes.length);
+    }
+
+    private void write(byte[] bytes, int length) throws IOException {
+      if (hasher != null) {
+        hasher.putBytes(bytes, 0, length);
+        if (sectionHasher != null && position + length > sectionStart) {
+          int from = (int) Math.max(0, sectionStart - position);
+          sectionHasher.putBytes(bytes, from, length - from);
+        }
+      }
+      ByteBuffer buffer = ByteBuffer.wrap(bytes, 0, length);
+      while (buffer.hasRemaining()) {
+        channel.write(buffer);
+      }
+      position += length;
+    }
+
+    String hash() {
+      return hasher.hash().toString();
+    }
+
+    String sectionHash() {
+      return sectionHasher != null ? sectionHasher.hash().toString() : null;
+    }
+  }
+
+  /**
+   * The new index after a splice, which is derived from the index of the old changelog.
+   */
+  private final class IndexUpdate {
+
+    private final ChangelogIndex oldIndex;
+    private final String hash;
+    private final Changelog.Version version;
+    private final long versionOffset;
+    private final byte[] versionBytes;
+    private final long linkOffset;
+    private final long linkEnd;
+    private final String lastSectionHash;
+
+    private IndexUpdate(ChangelogIndex oldIndex, String hash, Changelog.Version version, long versionOffset, byte[] versionBytes, long linkOffset, long linkEnd, String lastSectionHash) {
+      this.oldIndex = oldIndex;
+      this.hash = hash;
+      this.version = version;
+      this.versionOffset = versionOffset;
+      this.versionBytes = versionBytes;
+      this.linkOffset = linkOffset;
+      this.linkEnd = linkEnd;
+      this.lastSectionHash = lastSectionHash;
+    }
+
+    void store() {
+      try {
+        // the attributes are read after the replacement, the index is only valid for the new changelog
+        BasicFileAttributes attributes = Files.readAttributes(changelogFile, BasicFileAttributes.class);
+        oldIndex.splice(
+          attributes, hash, version, versionOffset, versionBytes.length,
+          Hashing.sha256().hashBytes(versionBytes).toString(), linkOffset, linkEnd, lastSectionHash
+        ).store(ChangelogIndex.indexFile(changelogFile));
+      } catch (IOException e) {
+        // the index is only an optimization, the next reader rebuilds it
+      }
+    }
+  }
 }
@@ -0,0 +1,69 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2020-present Cloudogu GmbH and Contributors
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package cloudogu.scm.changelog;
+
+import java.nio.file.Path;
+
+/**
+ * An error in a changelog entry file or in the changelog, which was found by the {@link ChangelogValidator}.
+ */
+public final class ChangelogValidationError {
+
+  private final Path file;
+  private final int line;
+  private final String message;
+
+  ChangelogValidationError(Path file, int line, String message) {
+    this.file = file;
+    this.line = line;
+    this.message = message;
+  }
+
+  public Path getFile() {
+    return file;
+  }
+
+  /**
+   * The line of the error, starting at 1, or 0 if the error does not belong to a line (e.g. the file can not be read).
+   */
+  public int getLine() {
+    return line;
+  }
+
+  public String getMessage() {
+    return message;
+  }
+
+  /**
+   * Formats the error like a compiler does ({@code file:line: message}), so that editors and IDEs can link it.
+   */
+  @Override
+  public String toString() {
+    if (line > 0) {
+      return file + ":" + line + ": " + message;
+    }
+    return file + ": " + message;
+  }
+}
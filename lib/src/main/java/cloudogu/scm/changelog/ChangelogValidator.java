@@ -0,0 +1,392 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2020-present Cloudogu GmbH and Contributors
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package cloudogu.scm.changelog;
+
+import org.yaml.snakeyaml.Yaml;
+import org.yaml.snakeyaml.error.Mark;
+import org.yaml.snakeyaml.error.MarkedYAMLException;
+import org.yaml.snakeyaml.error.YAMLException;
+import org.yaml.snakeyaml.nodes.MappingNode;
+import org.yaml.snakeyaml.nodes.Node;
+import org.yaml.snakeyaml.nodes.NodeTuple;
+import org.yaml.snakeyaml.nodes.ScalarNode;
+import org.yaml.snakeyaml.nodes.SequenceNode;
+import org.yaml.snakeyaml.nodes.Tag;
+import org.yaml.snakeyaml.reader.UnicodeReader;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.DateTimeException;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+import static java.util.Arrays.asList;
+import static java.util.Collections.emptyList;
+import static java.util.Collections.singletonList;
+
+/**
+ * Checks the changelog entry files and the changelog, without modifying them. In contrast to an update, which stops
+ * at the first invalid file, the validator reports every error with its file and line, so that it can be used as a
+ * check of pull requests or in a pre-commit hook.
+ *
+ * <p>The files are validated in parallel. Entry files in the documented format are read by the fast reader of the
+ * update, only invalid files are read again by SnakeYAML to find the lines of their errors.</p>
+ */
+public class ChangelogValidator {
+
+  static final List<String> TYPES = asList("added", "changed", "deprecated", "removed", "fixed", "security");
+
+  private static final String TYPE = "type";
+  private static final String DESCRIPTION = "description";
+
+  // yaml instances are not thread safe
+  private static final ThreadLocal<Yaml> YAML = ThreadLocal.withInitial(Yaml::new);
+
+  private final int parallelism;
+
+  public ChangelogValidator() {
+    this(Runtime.getRuntime().availableProcessors());
+  }
+
+  /**
+   * @param parallelism maximum number of files which are validated (and opened) at the same time
+   */
+  public ChangelogValidator(int parallelism) {
+    this.parallelism = Math.max(1, parallelism);
+  }
+
+  /**
+   * Validates the changelog and all entry files of the directory, including the entries of its pack
+   * ({@code .changelog.pack}). A changelog or directory which does not exist is skipped.
+   *
+   * @return all errors, the errors of the changelog first followed by the errors of the entry files in the order of
+   * their names, or an empty list if everything is valid
+   */
+  public List<ChangelogValidationError> validate(Path changelogFile, Path directory) {
+    List<Path> files = new ArrayList<>();
+    if (Files.exists(changelogFile)) {
+      files.add(changelogFile);
+    }
+    List<Path> entryFiles = Files.exists(directory) ? ChangeEntries.findFiles(directory) : emptyList();
+    files.addAll(entryFiles);
+    List<ChangelogValidationError> errors = ChangeEntries.parseAll(
+        files, parallelism, file -> file.equals(changelogFile) ? validateChangelog(file) : validateEntries(file)
+      )
+      .stream()
+      .flatMap(List::stream)
+      .collect(Collectors.toList());
+    if (Files.isDirectory(directory)) {
+      errors.addAll(validatePack(directory, entryFiles));
+    }
+    return errors;
+  }
+
+  static List<ChangelogValidationError> validateEntries(Path file) {
+    byte[] content;
+    try {
+      content = Files.readAllBytes(file);
+    } catch (IOException e) {
+      return singletonList(new ChangelogValidationError(file, 0, "failed to read file, " + e.getMessage()));
+    }
+    if (isValid(content)) {
+      return emptyList();
+    }
+    return new EntryCheck(file).check(content);
+  }
+
+  private static boolean isValid(byte[] content) {
+    List<ChangeEntries.ChangelogEntry> entries;
+    try {
+      entries = FragmentReader.read(content);
+    } catch (IllegalArgumentException e) {
+      return false;
+    }
+    if (entries == null || entries.isEmpty()) {
+      return false;
+    }
+    for (ChangeEntries.ChangelogEntry entry : entries) {
+      if (!isKnownType(entry.getType()) || isBlank(entry.getDescription())) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  /**
+   * Validates the entries of the pack, which are not replaced by a loose file. The pack does not know the lines of
+   * its entries, so the errors name the packed file instead.
+   */
+  private static List<ChangelogValidationError> validatePack(Path directory, List<Path> entryFiles) {
+    FragmentPack pack = new FragmentPack(directory);
+    if (!Files.exists(pack.getFile())) {
+      return emptyList();
+    }
+    Map<String, List<ChangeEntries.ChangelogEntry>> packed;
+    try {
+      packed = pack.read();
+    } catch (ChangelogException | IllegalArgumentException e) {
+      return singletonList(new ChangelogValidationError(pack.getFile(), 0, e.getMessage()));
+    }
+    Set<String> loose = entryFiles.stream()
+      .map(file -> ChangeEntries.relativeName(directory, file))
+      .collect(Collectors.toSet());
+    List<ChangelogValidationError> errors = new ArrayList<>();
+    packed.forEach((name, entries) -> {
+      if (loose.contains(name)) {
+        return;
+      }
+      for (ChangeEntries.ChangelogEntry entry : entries) {
+        if (!isKnownType(entry.getType())) {
+          errors.add(new ChangelogValidationError(pack.getFile(), 0, "entry " + name + ": " + unknownType(entry.getType())));
+        }
+        if (isBlank(entry.getDescription())) {
+          errors.add(new ChangelogValidationError(pack.getFile(), 0, "entry " + name + ": change without description"));
+        }
+      }
+    });
+    return errors;
+  }
+
+  static List<ChangelogValidationError> validateChangelog(Path file) {
+    ChangelogCheck check = new ChangelogCheck(file);
+    try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+      ByteLines.forEachLine(channel, 0, check);
+    } catch (IOException e) {
+      return singletonList(new ChangelogValidationError(file, 0, "failed to read file, " + e.getMessage()));
+    }
+    return check.errors;
+  }
+
+  private static boolean isKnownType(String type) {
+    for (String known : TYPES) {
+      if (known.equalsIgnoreCase(type)) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  private static String unknownType(String type) {
+    return "unknown type '" + type + "', expected one of " + String.join(", ", TYPES);
+  }
+
+  private static boolean isBlank(String value) {
+    return value == null || value.trim().isEmpty();
+  }
+
+  /**
+   * Finds the errors of an entry file on the node graph of SnakeYAML, which knows the position of each node.
+   */
+  private static class EntryCheck {
+
+    private final Path file;
+    private final List<ChangelogValidationError> errors = new ArrayList<>();
+
+    private EntryCheck(Path file) {
+      this.file = file;
+    }
+
+    List<ChangelogValidationError> check(byte[] content) {
+      Node root;
+      try {
+        root = YAML.get().compose(new UnicodeReader(new ByteArrayInputStream(content)));
+      } catch (MarkedYAMLException e) {
+        Mark mark = e.getProblemMark() != null ? e.getProblemMark() : e.getContextMark();
+        return singletonList(new ChangelogValidationError(file, line(mark), "invalid yaml, " + e.getProblem()));
+      } catch (YAMLException e) {
+        return singletonList(new ChangelogValidationError(file, 0, "invalid yaml, " + e.getMessage()));
+      }
+      if (root == null) {
+        error(1, "file contains no changes");
+      } else if (!(root instanceof SequenceNode)) {
+        error(root, "expected a list of changes");
+      } else if (((SequenceNode) root).getValue().isEmpty()) {
+        error(root, "file contains no changes");
+      } else {
+        ((SequenceNode) root).getValue().forEach(this::checkChange);
+      }
+      return errors;
+    }
+
+    private void checkChange(Node change) {
+      if (!(change instanceof MappingNode)) {
+        error(change, "expected a change with type and description");
+        return;
+      }
+      Node type = null;
+      Node description = null;
+      for (NodeTuple tuple : ((MappingNode) change).getValue()) {
+        Node key = tuple.getKeyNode();
+        if (key instanceof ScalarNode && TYPE.equals(((ScalarNode) key).getValue())) {
+          type = tuple.getValueNode();
+        } else if (key instanceof ScalarNode && DESCRIPTION.equals(((ScalarNode) key).getValue())) {
+          description = tuple.getValueNode();
+        }
+      }
+      if (type == null) {
+        error(change, "change without type");
+      } else {
+        String value = text(type, TYPE);
+        if (value != null && !isKnownType(value)) {
+          error(type, unknownType(value));
+        }
+      }
+      if (description == null) {
+        error(change, "change without description");
+      } else {
+        text(description, DESCRIPTION);
+      }
+    }
+
+    /**
+     * Returns the text of the node or {@code null}, if the node is not a non blank string.
+     */
+    private String text(Node node, String name) {
+      if (Tag.NULL.equals(node.getTag())) {
+        error(node, "empty " + name);
+        return null;
+      }
+      if (!(node instanceof ScalarNode) || !Tag.STR.equals(node.getTag())) {
+        // e.g. "1.0" or "yes" are read as number or boolean, which can not be written to the changelog
+        error(node, name + " is not a text, quote it to use it as text");
+        return null;
+      }
+      String value = ((ScalarNode) node).getValue();
+      if (isBlank(value)) {
+        error(node, "empty " + name);
+        return null;
+      }
+      return value;
+    }
+
+    private void error(Node node, String message) {
+      error(line(node.getStartMark()), message);
+    }
+
+    private void error(int line, String message) {
+      errors.add(new ChangelogValidationError(file, line, message));
+    }
+
+    private static int line(Mark mark) {
+      return mark != null ? mark.getLine() + 1 : 0;
+    }
+  }
+
+  /**
+   * Checks the lines of the changelog with the rules of the parser, for lines which the parser would reject or
+   * silently ignore.
+   */
+  private static class ChangelogCheck implements ByteLines.LineVisitor {
+
+    private final Path file;
+    private final ByteLines lines = new ByteLines();
+    private final Set<String> versions = new HashSet<>();
+    private final List<ChangelogValidationError> errors = new ArrayList<>();
+
+    private int line;
+    private boolean inVersion;
+    private boolean inType;
+
+    private ChangelogCheck(Path file) {
+      this.file = file;
+    }
+
+    @Override
+    public boolean visit(ByteBuffer buffer, int start, int end, long lineOffset, long nextOffset) {
+      line++;
+      int length;
+      try {
+        length = lines.decode(buffer, start, end);
+      } catch (IOException e) {
+        error("invalid utf-8 encoding");
+        return true;
+      }
+      char[] chars = lines.chars();
+      int trimmedStart = ChangelogLines.trimStart(chars, 0, length);
+      int trimmedEnd = ChangelogLines.trimEnd(chars, trimmedStart, length);
+      if (trimmedStart == trimmedEnd) {
+        return true;
+      }
+      char first = chars[trimmedStart];
+      if (first == '#') {
+        checkHeading(chars, trimmedStart, trimmedEnd);
+      } else if (first == '-' && inVersion && !inType && ChangelogLines.changeStart(chars, trimmedStart, trimmedEnd) >= 0) {
+        // the parser drops changes without a type
+        error("change without type heading");
+      }
+      return true;
+    }
+
+    private void checkHeading(char[] chars, int start, int end) {
+      if (ChangelogLines.isHeading(chars, start, end)) {
+        inVersion = true;
+        inType = false;
+        try {
+          String number = ChangelogLines.heading(chars, start, end).getNumber();
+          if (!versions.add(number)) {
+            error("duplicate version " + number);
+          }
+        } catch (DateTimeException e) {
+          error("invalid date in version heading");
+        }
+        return;
+      }
+      int typeStart = ChangelogLines.typeStart(chars, start, end);
+      if (typeStart >= 0) {
+        inType = true;
+      } else if (isVersionLike(chars, start, end)) {
+        error("invalid version heading, expected '## <version> - <yyyy-mm-dd>'");
+      }
+    }
+
+    /**
+     * Returns {@code true} for second level headings which start with a digit, e.g. {@code ## 1.0.0} or
+     * {@code ## [1.0.0] 2020-01-01}, but not for other headings like {@code ## [Unreleased]}.
+     */
+    private static boolean isVersionLike(char[] chars, int start, int end) {
+      if (end - start < 3 || chars[start + 1] != '#' || !ChangelogLines.isWhitespace(chars[start + 2])) {
+        return false;
+      }
+      int pos = ChangelogLines.trimStart(chars, start + 2, end);
+      if (pos < end && chars[pos] == '[') {
+        pos++;
+      }
+      return pos < end && chars[pos] >= '0' && chars[pos] <= '9';
+    }
+
+    private void error(String message) {
+      errors.add(new ChangelogValidationError(file, line, message));
+    }
+  }
+}
@@ -0,0 +1,159 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2020-present Cloudogu GmbH and Contributors
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package cloudogu.scm.changelog;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.FileVisitOption;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+/**
+ * Keeps an {@link UnreleasedPreview} up to date, by watching the entry directory for created, modified and deleted
+ * files. Only the changed files are parsed again. Editors often produce several events for a single save, so events
+ * which arrive shortly after each other are collected and the preview is written once.
+ */
+public final class ChangelogWatcher implements Closeable {
+
+  private static final long SETTLE_MILLIS = 20;
+
+  private final UnreleasedPreview preview;
+  private final WatchService watchService;
+  private final Map<WatchKey, Path> directories = new HashMap<>();
+
+  private Runnable updateListener = () -> {
+  };
+
+  public ChangelogWatcher(UnreleasedPreview preview) throws IOException {
+    this.preview = preview;
+    this.watchService = preview.getEntryDirectory().getFileSystem().newWatchService();
+  }
+
+  /**
+   * Is called after the preview file has been written.
+   */
+  public ChangelogWatcher withUpdateListener(Runnable updateListener) {
+    this.updateListener = updateListener;
+    return this;
+  }
+
+  /**
+   * Writes the preview and updates it on every change of the entries, until the watcher is closed or the thread is
+   * interrupted. The entry directory is created, if it does not exist.
+   */
+  public void run() throws IOException {
+    Path root = preview.getEntryDirectory();
+    Files.createDirectories(root);
+    registerAll(root);
+    preview.load();
+    writePreview();
+    try {
+      while (true) {
+        Set<Path> changed = new LinkedHashSet<>();
+        boolean overflow = false;
+        WatchKey key = watchService.take();
+        while (key != null) {
+          overflow |= collect(key, changed);
+          key = watchService.poll(SETTLE_MILLIS, TimeUnit.MILLISECONDS);
+        }
+        if (apply(overflow, changed)) {
+          writePreview();
+        }
+      }
+    } catch (ClosedWatchServiceException e) {
+      // the watcher was closed
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+  }
+
+  private boolean collect(WatchKey key, Set<Path> changed) throws IOException {
+    Path directory = directories.get(key);
+    boolean overflow = false;
+    for (WatchEvent<?> event : key.pollEvents()) {
+      if (event.kind() == StandardWatchEventKinds.OVERFLOW || directory == null) {
+        overflow = true;
+        continue;
+      }
+      Path path = directory.resolve((Path) event.context());
+      if (event.kind() == StandardWatchEventKinds.ENTRY_CREATE && Files.isDirectory(path)) {
+        registerAll(path);
+      }
+      changed.add(path);
+    }
+    if (!key.reset()) {
+      directories.remove(key);
+    }
+    return overflow;
+  }
+
+  private boolean apply(boolean overflow, Set<Path> changed) {
+    if (overflow) {
+      // events were lost, so we have to start over
+      preview.load();
+      return true;
+    }
+    boolean modified = false;
+    for (Path path : changed) {
+      modified |= preview.update(path);
+    }
+    return modified;
+  }
+
+  private void writePreview() {
+    preview.write();
+    updateListener.run();
+  }
+
+  private void registerAll(Path directory) throws IOException {
+    try (Stream<Path> paths = Files.walk(directory, FileVisitOption.FOLLOW_LINKS)) {
+      for (Path path : (Iterable<Path>) paths.filter(Files::isDirectory)::iterator) {
+        WatchKey key = path.register(
+          watchService,
+          StandardWatchEventKinds.ENTRY_CREATE,
+          StandardWatchEventKinds.ENTRY_MODIFY,
+          StandardWatchEventKinds.ENTRY_DELETE
+        );
+        directories.put(key, path);
+      }
+    }
+  }
+
+  @Override
+  public void close() throws IOException {
+    watchService.close();
+  }
+}
@@ -0,0 +1,78 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2020-present Cloudogu GmbH and Contributors
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package cloudogu.scm.changelog;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+import java.nio.file.Path;
+
+/**
+ * Flight recorder event for writing a new version into a changelog file.
+ */
+@Name("cloudogu.changelog.ChangelogWrite")
+@Label("Changelog Write")
+@Category("Changelog")
+@Description("Writing of a new version into a changelog file")
+final class ChangelogWriteEvent extends Event {
+
+  @Label("Path")
+  String path;
+
+  @Label("Version")
+  String version;
+
+  @Label("Entries")
+  @Description("Number of changes of the new version")
+  int entries;
+
+  @Label("Versions Written")
+  @Description("Number of versions which were rendered, in splice mode only the new version")
+  int versions;
+
+  @Label("Size")
+  @DataAmount
+  long bytes;
+
+  @Label("Splice")
+  boolean splice;
+
+  void complete(Path changelogFile, String version, int entries, int versions, long bytes, boolean splice) {
+    end();
+    if (shouldCommit()) {
+      this.path = changelogFile.toString();
+      this.version = version;
+      this.entries = entries;
+      this.versions = versions;
+      this.bytes = bytes;
+      this.splice = splice;
+      commit();
+    }
+  }
+}
@@ -0,0 +1,224 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2020-present Cloudogu GmbH and Contributors
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package cloudogu.scm.changelog;
+
+import com.google.common.hash.Hashing;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * On-disk cache of parsed changelog entry files. A file is only parsed again, if its size or modification time has
+ * changed and the hash of its content differs from the cached one. The cache is bound to the absolute path of the
+ * entry directory; a cache which was written for another directory, or with another format, is ignored.
+ */
+final class FragmentCache {
+
+  private static final int MAGIC = 0x434c4643;
+  private static final int FORMAT_VERSION = 1;
+
+  /**
+   * Modification times which are this close to the time the cache was written, are not trusted. The file could have
+   * been changed again within the resolution of the file system timestamps, without changing its size.
+   */
+  private static final long RACY_INTERVAL = 2000;
+  private static final int MAX_STRING_LENGTH = 16 * 1024 * 1024;
+
+  private final Path cacheFile;
+  private final String root;
+  private final long writtenAt;
+  private final Map<String, Fragment> cached;
+  private final Map<String, Fragment> current = new ConcurrentHashMap<>();
+  private volatile boolean modified;
+
+  private FragmentCache(Path cacheFile, String root, long writtenAt, Map<String, Fragment> cached) {
+    this.cacheFile = cacheFile;
+    this.root = root;
+    this.writtenAt = writtenAt;
+    this.cached = cached;
+  }
+
+  static FragmentCache load(Path cacheFile, Path entryDirectory) {
+    String root = entryDirectory.toAbsolutePath().normalize().toString();
+    if (Files.exists(cacheFile)) {
+      try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(cacheFile)))) {
+        if (in.readInt() == MAGIC && in.readInt() == FORMAT_VERSION && root.equals(in.readUTF())) {
+          long writtenAt = in.readLong();
+          return new FragmentCache(cacheFile, root, writtenAt, readFragments(in));
+        }
+      } catch (NoSuchFileException e) {
+        // removed concurrently, we start with an empty cache
+      } catch (IOException e) {
+        // the cache is only an optimization, an unreadable cache is rebuilt from scratch
+      }
+    }
+    return new FragmentCache(cacheFile, root, 0, Collections.emptyMap());
+  }
+
+  private static Map<String, Fragment> readFragments(DataInputStream in) throws IOException {
+    int count = in.readInt();
+    Map<String, Fragment> fragments = new HashMap<>(count * 2);
+    for (int i = 0; i < count; i++) {
+      String name = readString(in);
+      long size = in.readLong();
+      long lastModified = in.readLong();
+      String hash = readString(in);
+      int entryCount = in.readInt();
+      List<ChangeEntries.ChangelogEntry> entries = new ArrayList<>(entryCount);
+      for (int j = 0; j < entryCount; j++) {
+        String type = readString(in);
+        String description = in.readBoolean() ? readString(in) : null;
+        entries.add(new ChangeEntries.ChangelogEntry(type, description));
+      }
+      fragments.put(name, new Fragment(size, lastModified, hash, entries));
+    }
+    return fragments;
+  }
+
+  /**
+   * Returns the entries of the given file, either from the cache or by parsing the file.
+   *
+   * @param name    relative path of the file in the entry directory
+   * @param counter counts the files which are parsed and the bytes which are read
+   */
+  List<ChangeEntries.ChangelogEntry> get(String name, Path file, PhaseCounter counter) {
+    try {
+      BasicFileAttributes attributes = Files.readAttributes(file, BasicFileAttributes.class);
+      long size = attributes.size();
+      long lastModified = attributes.lastModifiedTime().toMillis();
+      Fragment fragment = cached.get(name);
+      if (fragment != null && fragment.size == size && fragment.lastModified == lastModified
+        && lastModified + RACY_INTERVAL < writtenAt) {
+        current.put(name, fragment);
+        return fragment.entries;
+      }
+      byte[] content = Files.readAllBytes(file);
+      counter.add(0, content.length);
+      String hash = Hashing.sha256().hashBytes(content).toString();
+      if (fragment != null && fragment.hash.equals(hash)) {
+        fragment = new Fragment(content.length, lastModified, hash, fragment.entries);
+      } else {
+        counter.add(1, 0);
+        fragment = new Fragment(content.length, lastModified, hash, ChangeEntries.parse(file, content));
+      }
+      current.put(name, fragment);
+      modified = true;
+      return fragment.entries;
+    } catch (IOException e) {
+      throw new ChangelogException("failed to parse changelog entry " + file, e);
+    }
+  }
+
+  /**
+   * Writes the cache, if files were added, changed or removed since it was loaded. Only the files which were requested
+   * by {@link #get(String, Path, PhaseCounter)} are written.
+   */
+  void store() {
+    if (!modified && current.keySet().equals(cached.keySet())) {
+      return;
+    }
+    try {
+      Path tempFile = AtomicFiles.createTempFile(cacheFile);
+      try {
+        write(tempFile, System.currentTimeMillis());
+        AtomicFiles.replace(tempFile, cacheFile, null);
+      } finally {
+        Files.deleteIfExists(tempFile);
+      }
+    } catch (IOException e) {
+      throw new ChangelogException("failed to write changelog entry cache " + cacheFile, e);
+    }
+  }
+
+  private void write(Path file, long now) throws IOException {
+    try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(file)))) {
+      out.writeInt(MAGIC);
+      out.writeInt(FORMAT_VERSION);
+      out.writeUTF(root);
+      out.writeLong(now);
+      out.writeInt(current.size());
+      for (Map.Entry<String, Fragment> e : current.entrySet()) {
+        Fragment fragment = e.getValue();
+        writeString(out, e.getKey());
+        out.writeLong(fragment.size);
+        out.writeLong(fragment.lastModified);
+        writeString(out, fragment.hash);
+        out.writeInt(fragment.entries.size());
+        for (ChangeEntries.ChangelogEntry entry : fragment.entries) {
+          writeString(out, entry.getType());
+          out.writeBoolean(entry.getDescription() != null);
+          if (entry.getDescription() != null) {
+            writeString(out, entry.getDescription());
+          }
+        }
+      }
+    }
+  }
+
+  // DataOutput#writeUTF is limited to 64k, which could be too short for a description
+  private static void writeString(DataOutputStream out, String value) throws IOException {
+    byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+    out.writeInt(bytes.length);
+    out.write(bytes);
+  }
+
+  private static String readString(DataInputStream in) throws IOException {
+    int length = in.readInt();
+    if (length < 0 || length > MAX_STRING_LENGTH) {
+      throw new IOException("corrupt cache entry");
+    }
+    byte[] bytes = new byte[length];
+    in.readFully(bytes);
+    return new String(bytes, StandardCharsets.UTF_8);
+  }
+
+  private static final class Fragment {
+    private final long size;
+    private final long lastModified;
+    private final String hash;
+    private final List<ChangeEntries.ChangelogEntry> entries;
+
+    private Fragment(long size, long lastModified, String hash, List<ChangeEntries.ChangelogEntry> entries) {
+      this.size = size;
+      this.lastModified = lastModified;
+      this.hash = hash;
+      this.entries = entries;
+    }
+  }
+}
@@ -0,0 +1,289 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2020-present Cloudogu GmbH and Contributors
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package cloudogu.scm.changelog;
+
+import com.google.common.io.CountingInputStream;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Pack file, which replaces many small changelog entry files by a single file in the entry directory. The pack holds
+ * the parsed entries of each packed file together with its relative name, so reading the pack requires neither a file
+ * per entry nor a yaml parser.
+ * <p>
+ * The pack is append only: packing appends a record for each loose file, a later record replaces an earlier one with
+ * the same name and a tombstone record removes it. Reading a directory with a pack gives the same entries in the same
+ * order as reading all files loose, a loose file takes precedence over a packed one with the same name.
+ */
+public final class FragmentPack {
+
+  public static final String FILE_NAME = ".changelog.pack";
+
+  private static final int MAGIC = 0x434c504b;
+  // version 2 stores strings as length prefixed utf-8, because writeUTF is limited to 64 KB
+  private static final int FORMAT_VERSION = 2;
+  private static final byte TOMBSTONE = 0;
+  private static final byte ENTRIES = 1;
+
+  private final Path directory;
+
+  public FragmentPack(Path directory) {
+    this.directory = directory;
+  }
+
+  public Path getFile() {
+    return directory.resolve(FILE_NAME);
+  }
+
+  /**
+   * Returns {@code true} if the file is a pack file or a temporary file of a pack, which must not be read as a loose
+   * entry file.
+   */
+  static boolean isPackFile(Path file) {
+    String name = file.getFileName().toString();
+    return name.equals(FILE_NAME) || name.startsWith("." + FILE_NAME);
+  }
+
+  /**
+   * Moves all loose entry files into the pack. The files are parsed before the pack is modified, so an invalid file
+   * fails the packing without changing anything. The loose files are deleted after the pack was written to disk. If
+   * the pack consists mostly of replaced or removed records, it is rewritten with the live records only.
+   *
+   * @return number of packed files
+   */
+  public int pack() throws IOException {
+    List<Path> files = ChangeEntries.findFiles(directory);
+    if (files.isEmpty()) {
+      return 0;
+    }
+    Map<String, List<ChangeEntries.ChangelogEntry>> loose = new TreeMap<>();
+    for (Path file : files) {
+      loose.put(ChangeEntries.relativeName(directory, file), ChangeEntries.parse(file));
+    }
+    Contents contents = read(getFile());
+    if (contents.records - contents.entries.size() > contents.entries.size()) {
+      Map<String, List<ChangeEntries.ChangelogEntry>> live = new TreeMap<>(contents.entries);
+      live.putAll(loose);
+      rewrite(live);
+    } else {
+      append(contents.length, loose, ENTRIES);
+    }
+    for (Path file : files) {
+      Files.deleteIfExists(file);
+    }
+    return files.size();
+  }
+
+  /**
+   * Removes the entry file with the given relative name, whether it is packed or loose.
+   *
+   * @return {@code true} if there was an entry file with the name
+   */
+  public boolean remove(String name) throws IOException {
+    boolean removed = Files.deleteIfExists(directory.resolve(name));
+    Contents contents = read(getFile());
+    if (contents.entries.containsKey(name)) {
+      append(contents.length, Collections.singletonMap(name, Collections.emptyList()), TOMBSTONE);
+      removed = true;
+    }
+    return removed;
+  }
+
+  /**
+   * Returns the live entries of the pack by the relative names of their files, ordered by name.
+   */
+  Map<String, List<ChangeEntries.ChangelogEntry>> read() {
+    try {
+      return read(getFile()).entries;
+    } catch (IOException e) {
+      throw new ChangelogException("failed to read changelog entry pack " + getFile(), e);
+    }
+  }
+
+  private static Contents read(Path packFile) throws IOException {
+    if (!Files.exists(packFile)) {
+      return new Contents(new TreeMap<>(), 0, 0);
+    }
+    Map<String, List<ChangeEntries.ChangelogEntry>> entries = new TreeMap<>();
+    int records = 0;
+    long length;
+    try (CountingInputStream counting = new CountingInputStream(new BufferedInputStream(Files.newInputStream(packFile)));
+         DataInputStream in = new DataInputStream(counting)) {
+      if (!readHeader(in)) {
+        // the first append was interrupted
+        return new Contents(entries, 0, 0);
+      }
+      length = counting.getCount();
+      while (true) {
+        try {
+          readRecord(in, entries);
+        } catch (EOFException e) {
+          // a record, which was not completely appended, is ignored; its loose file was not deleted
+          break;
+        }
+        records++;
+        length = counting.getCount();
+      }
+    }
+    return new Contents(entries, records, length);
+  }
+
+  private static boolean readHeader(DataInputStream in) throws IOException {
+    int magic;
+    int version;
+    try {
+      magic = in.readInt();
+      version = in.readInt();
+    } catch (EOFException e) {
+      return false;
+    }
+    if (magic != MAGIC || version != FORMAT_VERSION) {
+      throw new IOException("unsupported pack format");
+    }
+    return true;
+  }
+
+  private static void readRecord(DataInputStream in, Map<String, List<ChangeEntries.ChangelogEntry>> entries) throws IOException {
+    byte kind = in.readByte();
+    String name = readString(in);
+    if (kind == TOMBSTONE) {
+      entries.remove(name);
+      return;
+    }
+    int count = in.readInt();
+    ChangeEntries.ChangelogEntry[] fileEntries = new ChangeEntries.ChangelogEntry[count];
+    for (int i = 0; i < count; i++) {
+      String type = readString(in);
+      fileEntries[i] = new ChangeEntries.ChangelogEntry(type, in.readBoolean() ? readString(in) : null);
+    }
+    entries.put(name, Arrays.asList(fileEntries));
+  }
+
+  private static String readString(DataInputStream in) throws IOException {
+    int length = in.readInt();
+    if (length < 0) {
+      throw new IOException("invalid string length in pack");
+    }
+    byte[] bytes = new byte[length];
+    in.readFully(bytes);
+    return new String(bytes, StandardCharsets.UTF_8);
+  }
+
+  /**
+   * Appends the records at the end of the last complete record, so that an incomplete record is overwritten.
+   */
+  private void append(long length, Map<String, List<ChangeEntries.ChangelogEntry>> records, byte kind) throws IOException {
+    ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    try (DataOutputStream out = new DataOutputStream(bytes)) {
+      if (length == 0) {
+        writeHeader(out);
+      }
+      writeRecords(out, records, kind);
+    }
+    try (FileChannel channel = FileChannel.open(getFile(), StandardOpenOption.CREATE, StandardOpenOption.WRITE)) {
+      long position = length;
+      channel.truncate(position);
+      ByteBuffer buffer = ByteBuffer.wrap(bytes.toByteArray());
+      while (buffer.hasRemaining()) {
+        position += channel.write(buffer, position);
+      }
+      channel.force(true);
+    }
+  }
+
+  private void rewrite(Map<String, List<ChangeEntries.ChangelogEntry>> records) throws IOException {
+    Path tempFile = AtomicFiles.createTempFile(getFile());
+    try {
+      try (DataOutputStream out = new DataOutputStream(Files.newOutputStream(tempFile))) {
+        writeHeader(out);
+        writeRecords(out, records, ENTRIES);
+      }
+      try (FileChannel channel = FileChannel.open(tempFile, StandardOpenOption.WRITE)) {
+        channel.force(true);
+      }
+      AtomicFiles.replace(tempFile, getFile(), null);
+    } finally {
+      Files.deleteIfExists(tempFile);
+    }
+  }
+
+  private static void writeHeader(DataOutputStream out) throws IOException {
+    out.writeInt(MAGIC);
+    out.writeInt(FORMAT_VERSION);
+  }
+
+  private static void writeRecords(DataOutputStream out, Map<String, List<ChangeEntries.ChangelogEntry>> records, byte kind) throws IOException {
+    for (Map.Entry<String, List<ChangeEntries.ChangelogEntry>> record : records.entrySet()) {
+      out.writeByte(kind);
+      writeString(out, record.getKey());
+      if (kind == ENTRIES) {
+        out.writeInt(record.getValue().size());
+        for (ChangeEntries.ChangelogEntry entry : record.getValue()) {
+          writeString(out, entry.getType());
+          // the description is optional in the yaml format
+          out.writeBoolean(entry.getDescription() != null);
+          if (entry.getDescription() != null) {
+            writeString(out, entry.getDescription());
+          }
+        }
+      }
+    }
+  }
+
+  private static void writeString(DataOutputStream out, String value) throws IOException {
+    byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+    out.writeInt(bytes.length);
+    out.write(bytes);
+  }
+
+  private static final class Contents {
+
+    private final Map<String, List<ChangeEntries.ChangelogEntry>> entries;
+    private final int records;
+    private final long length;
+
+    private Contents(Map<String, List<ChangeEntries.ChangelogEntry>> entries, int records, long length) {
+      this.entries = entries;
+      this.records = records;
+      this.length = length;
+    }
+  }
+}
@@ -0,0 +1,305 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2020-present Cloudogu GmbH and Contributors
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package cloudogu.scm.changelog;
+
+import org.yaml.snakeyaml.nodes.NodeId;
+import org.yaml.snakeyaml.nodes.Tag;
+import org.yaml.snakeyaml.resolver.Resolver;
+
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.charset.CharacterCodingException;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Reader for the documented shape of changelog entry files, a block sequence of mappings with the scalar keys
+ * {@code type} and {@code description}:
+ *
+ * <pre>
+ * - type: added
+ *   description: Awesome feature
+ * </pre>
+ *
+ * The reader does not build a node graph and only handles single line plain and quoted scalars, blank lines and
+ * comments. As soon as it encounters anything else (e.g. anchors, tags, block scalars, flow collections, escape
+ * sequences, multi line scalars or unknown keys) it gives up and returns {@code null}, so that the file can be read
+ * by SnakeYAML. The reader never returns a result, which differs from the result of SnakeYAML.
+ */
+final class FragmentReader {
+
+  private static final String TYPE = "type";
+  private static final String DESCRIPTION = "description";
+
+  // plain scalars are resolved like SnakeYAML does, e.g. "true" or "1.0" are not strings
+  private static final PlainScalarResolver RESOLVER = new PlainScalarResolver();
+
+  private final char[] chars;
+  private final int length;
+  private int pos;
+
+  private FragmentReader(char[] chars, int length) {
+    this.chars = chars;
+    this.length = length;
+  }
+
+  /**
+   * Returns the entries of the file or {@code null}, if the content has to be read by SnakeYAML.
+   */
+  static List<ChangeEntries.ChangelogEntry> read(byte[] content) {
+    char[] chars = new char[content.length];
+    for (int i = 0; i < content.length; i++) {
+      if (content[i] < 0) {
+        return readUtf8(content);
+      }
+      chars[i] = (char) content[i];
+    }
+    return new FragmentReader(chars, chars.length).read();
+  }
+
+  private static List<ChangeEntries.ChangelogEntry> readUtf8(byte[] content) {
+    CharBuffer decoded;
+    try {
+      decoded = StandardCharsets.UTF_8.newDecoder()
+        .onMalformedInput(CodingErrorAction.REPORT)
+        .onUnmappableCharacter(CodingErrorAction.REPORT)
+        .decode(ByteBuffer.wrap(content));
+    } catch (CharacterCodingException e) {
+      return null;
+    }
+    return new FragmentReader(decoded.array(), decoded.limit()).read();
+  }
+
+  private List<ChangeEntries.ChangelogEntry> read() {
+    if (!isPrintable()) {
+      return null;
+    }
+    List<ChangeEntries.ChangelogEntry> entries = new ArrayList<>();
+    int sequenceIndent = -1;
+    int keyIndent = -1;
+    String type = null;
+    String description = null;
+    while (pos < length) {
+      int lineEnd = lineEnd(pos);
+      int start = skipSpaces(pos, lineEnd);
+      int next = nextLine(lineEnd);
+      if (start == lineEnd || chars[start] == '#') {
+        // blank line or comment
+        pos = next;
+        continue;
+      }
+      int indent = start - pos;
+      int keyStart;
+      if (chars[start] == '-' && start + 1 < lineEnd && chars[start + 1] == ' ') {
+        if (sequenceIndent < 0) {
+          sequenceIndent = indent;
+        } else if (indent != sequenceIndent || type == null || description == null) {
+          return null;
+        } else {
+          entries.add(new ChangeEntries.ChangelogEntry(type, description));
+          type = null;
+          description = null;
+        }
+        keyStart = skipSpaces(start + 1, lineEnd);
+        keyIndent = keyStart - pos;
+      } else if (indent == keyIndent) {
+        keyStart = start;
+      } else {
+        return null;
+      }
+      pos = next;
+
+      int colon = keyEnd(keyStart, lineEnd);
+      if (colon < 0) {
+        return null;
+      }
+      String value = value(skipSpaces(colon + 1, lineEnd), lineEnd);
+      if (value == null) {
+        return null;
+      }
+      if (isKey(TYPE, keyStart, colon) && type == null) {
+        type = value;
+      } else if (isKey(DESCRIPTION, keyStart, colon) && description == null) {
+        description = value;
+      } else {
+        return null;
+      }
+    }
+    if (type == null || description == null) {
+      return null;
+    }
+    entries.add(new ChangeEntries.ChangelogEntry(type, description));
+    return entries;
+  }
+
+  /**
+   * Returns the index of the colon, if the line starts with a simple key followed by a colon and a space.
+   */
+  private int keyEnd(int start, int lineEnd) {
+    int i = start;
+    while (i < lineEnd && chars[i] >= 'a' && chars[i] <= 'z') {
+      i++;
+    }
+    if (i == start || i + 1 >= lineEnd || chars[i] != ':' || chars[i + 1] != ' ') {
+      return -1;
+    }
+    return i;
+  }
+
+  private boolean isKey(String key, int start, int end) {
+    return ChangelogLines.equals(key, chars, start, end);
+  }
+
+  private String value(int start, int lineEnd) {
+    if (start == lineEnd) {
+      return null;
+    }
+    char first = chars[start];
+    if (first == '\'') {
+      return singleQuoted(start + 1, lineEnd);
+    }
+    if (first == '"') {
+      return doubleQuoted(start + 1, lineEnd);
+    }
+    return plain(start, lineEnd);
+  }
+
+  private String plain(int start, int lineEnd) {
+    if ("-?:,[]{}#&*!|>%@`".indexOf(chars[start]) >= 0) {
+      return null;
+    }
+    int end = start;
+    for (int i = start; i < lineEnd; i++) {
+      char c = chars[i];
+      if (c == '#' && chars[i - 1] == ' ') {
+        break;
+      }
+      if (c == ':' && (i + 1 == lineEnd || chars[i + 1] == ' ')) {
+        return null;
+      }
+      if (c != ' ') {
+        end = i + 1;
+      }
+    }
+    String value = new String(chars, start, end - start);
+    if (!RESOLVER.isString(value)) {
+      return null;
+    }
+    return value;
+  }
+
+  private String singleQuoted(int start, int lineEnd) {
+    StringBuilder value = new StringBuilder();
+    for (int i = start; i < lineEnd; i++) {
+      char c = chars[i];
+      if (c == '\'') {
+        if (i + 1 < lineEnd && chars[i + 1] == '\'') {
+          value.append('\'');
+          i++;
+        } else {
+          return isEndOfValue(i + 1, lineEnd) ? value.toString() : null;
+        }
+      } else {
+        value.append(c);
+      }
+    }
+    return null;
+  }
+
+  private String doubleQuoted(int start, int lineEnd) {
+    for (int i = start; i < lineEnd; i++) {
+      char c = chars[i];
+      if (c == '\\') {
+        return null;
+      }
+      if (c == '"') {
+        return isEndOfValue(i + 1, lineEnd) ? new String(chars, start, i - start) : null;
+      }
+    }
+    return null;
+  }
+
+  private boolean isEndOfValue(int start, int lineEnd) {
+    int i = skipSpaces(start, lineEnd);
+    return i == lineEnd || (i > start && chars[i] == '#');
+  }
+
+  /**
+   * Returns {@code false} if the content contains characters which need special treatment, like tabs, byte order
+   * marks, unicode line breaks or characters which are not allowed in yaml.
+   */
+  private boolean isPrintable() {
+    for (int i = 0; i < length; i++) {
+      char c = chars[i];
+      if (c >= ' ' && c <= '~' || c == '\n' || c == '\r') {
+        continue;
+      }
+      if (Character.isHighSurrogate(c) && i + 1 < length && Character.isLowSurrogate(chars[i + 1])) {
+        i++;
+        continue;
+      }
+      if (c < '\u00A0' || c == '\u2028' || c == '\u2029' || c == '\uFEFF' || Character.isSurrogate(c) || c > '\uFFFD') {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  private int lineEnd(int start) {
+    int i = start;
+    while (i < length && chars[i] != '\n' && chars[i] != '\r') {
+      i++;
+    }
+    return i;
+  }
+
+  private int nextLine(int lineEnd) {
+    if (lineEnd + 1 < length && chars[lineEnd] == '\r' && chars[lineEnd + 1] == '\n') {
+      return lineEnd + 2;
+    }
+    return lineEnd + 1;
+  }
+
+  private int skipSpaces(int start, int end) {
+    int i = start;
+    while (i < end && chars[i] == ' ') {
+      i++;
+    }
+    return i;
+  }
+
+  private static final class PlainScalarResolver extends Resolver {
+
+    boolean isString(String value) {
+      // most descriptions start with a character for which no implicit type is registered
+      if (!yamlImplicitResolvers.containsKey(value.charAt(0)) && !yamlImplicitResolvers.containsKey(null)) {
+        return true;
+      }
+      return Tag.STR.equals(resolve(NodeId.scalar, value, true));
+    }
+  }
+}
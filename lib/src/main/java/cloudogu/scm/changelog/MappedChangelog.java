@@ -0,0 +1,289 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2020-present Cloudogu GmbH and Contributors
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package cloudogu.scm.changelog;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+import static java.util.Collections.emptyList;
+
+/**
+ * Changelog backed by a memory mapped file. The file is indexed on demand: asking for the first version only reads
+ * the file up to its heading, the changes of a version are decoded when {@link Version#getChanges()} is called.
+ * Only the offsets of the version headings and version links are kept on the heap.
+ */
+final class MappedChangelog extends Changelog {
+
+  private final Path path;
+  private final ByteBuffer buffer;
+  private final int size;
+
+  private int[] versionOffsets = new int[16];
+  private int versionCount;
+  private int[] linkOffsets = new int[16];
+  private int linkCount;
+  private int scanPosition;
+  private boolean complete;
+
+  private final Versions versions = new Versions();
+  private List<String> header;
+  private List<VersionLink> links;
+
+  private MappedChangelog(Path path, ByteBuffer buffer) {
+    super(emptyList(), emptyList(), emptyList());
+    this.path = path;
+    this.buffer = buffer;
+    this.size = buffer.limit();
+  }
+
+  static MappedChangelog map(Path path) {
+    try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+      long size = channel.size();
+      if (size > Integer.MAX_VALUE) {
+        throw new ChangelogException("changelog file " + path + " is too large to be mapped");
+      }
+      return new MappedChangelog(path, channel.map(FileChannel.MapMode.READ_ONLY, 0, size));
+    } catch (IOException e) {
+      throw new ReadChangelogFileException(path, e);
+    }
+  }
+
+  /**
+   * Maps the file and takes the offsets, numbers and dates of the versions from the index, so that the file does not
+   * have to be scanned. The index is ignored, if it does not match the size of the mapped file.
+   */
+  static MappedChangelog map(Path path, ChangelogIndex index) {
+    MappedChangelog changelog = map(path);
+    if (index.getSize() == changelog.size) {
+      changelog.useIndex(index);
+    }
+    return changelog;
+  }
+
+  private synchronized void useIndex(ChangelogIndex index) {
+    List<ChangelogIndex.Entry> entries = index.getEntries();
+    versionCount = entries.size();
+    versionOffsets = new int[Math.max(1, versionCount)];
+    versions.cache = new MappedVersion[versionCount];
+    for (int i = 0; i < versionCount; i++) {
+      ChangelogIndex.Entry entry = entries.get(i);
+      versionOffsets[i] = (int) entry.getOffset();
+      versions.cache[i] = new MappedVersion(i, entry.getNumber(), entry.getDate());
+    }
+    long[] indexedLinks = index.getLinkOffsets();
+    linkCount = indexedLinks.length;
+    linkOffsets = new int[Math.max(1, linkCount)];
+    for (int i = 0; i < linkCount; i++) {
+      linkOffsets[i] = (int) indexedLinks[i];
+    }
+    scanPosition = size;
+    complete = true;
+  }
+
+  @Override
+  public synchronized List<String> getHeader() {
+    if (header == null) {
+      ensureVersions(1);
+      int end = versionCount > 0 ? versionOffsets[0] : size;
+      ChangelogParser.LineParser parser = new ChangelogParser.LineParser();
+      decode(0, end, parser);
+      header = Collections.unmodifiableList(parser.get().getHeader());
+    }
+    return header;
+  }
+
+  @Override
+  public List<Version> getVersions() {
+    return versions;
+  }
+
+  @Override
+  public synchronized List<VersionLink> getLinks() {
+    if (links == null) {
+      scanAll();
+      List<VersionLink> result = new ArrayList<>(linkCount);
+      ByteLines lines = new ByteLines();
+      for (int i = 0; i < linkCount; i++) {
+        int start = linkOffsets[i];
+        int length = decodeLine(lines, start, ByteLines.lineEnd(buffer, start, size));
+        char[] chars = lines.chars();
+        int trimmedStart = ChangelogLines.trimStart(chars, 0, length);
+        VersionLink link = ChangelogLines.link(chars, trimmedStart, ChangelogLines.trimEnd(chars, trimmedStart, length));
+        if (link != null) {
+          result.add(link);
+        }
+      }
+      links = Collections.unmodifiableList(result);
+    }
+    return links;
+  }
+
+  private synchronized int versionCount() {
+    scanAll();
+    return versionCount;
+  }
+
+  private synchronized boolean hasVersions() {
+    ensureVersions(1);
+    return versionCount > 0;
+  }
+
+  private synchronized int versionStart(int index) {
+    ensureVersions(index + 1);
+    if (index >= versionCount) {
+      throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + versionCount());
+    }
+    return versionOffsets[index];
+  }
+
+  private synchronized int versionEnd(int index) {
+    ensureVersions(index + 2);
+    return index + 1 < versionCount ? versionOffsets[index + 1] : size;
+  }
+
+  private void scanAll() {
+    ensureVersions(Integer.MAX_VALUE);
+  }
+
+  /**
+   * Scans the file until the given number of version headings are found or the end of the file is reached.
+   */
+  private void ensureVersions(int count) {
+    ByteLines lines = null;
+    while (!complete && versionCount < count) {
+      if (scanPosition >= size) {
+        complete = true;
+        return;
+      }
+      int start = scanPosition;
+      int end = ByteLines.lineEnd(buffer, start, size);
+      scanPosition = ByteLines.nextLine(buffer, end, size);
+      char first = ByteLines.firstCharacter(buffer, start, end);
+      if (first == '#') {
+        if (lines == null) {
+          lines = new ByteLines();
+        }
+        int length = decodeLine(lines, start, end);
+        char[] chars = lines.chars();
+        int trimmedStart = ChangelogLines.trimStart(chars, 0, length);
+        if (ChangelogLines.isHeading(chars, trimmedStart, ChangelogLines.trimEnd(chars, trimmedStart, length))) {
+          versionOffsets = add(versionOffsets, versionCount++, start);
+        }
+      } else if (first == '[' && versionCount > 0) {
+        linkOffsets = add(linkOffsets, linkCount++, start);
+      }
+    }
+  }
+
+  private static int[] add(int[] offsets, int index, int offset) {
+    int[] target = index < offsets.length ? offsets : Arrays.copyOf(offsets, offsets.length * 2);
+    target[index] = offset;
+    return target;
+  }
+
+  private int decodeLine(ByteLines lines, int start, int end) {
+    try {
+      return lines.decode(buffer, start, end);
+    } catch (IOException e) {
+      throw new ReadChangelogFileException(path, e);
+    }
+  }
+
+  private void decode(int start, int end, ChangelogParser.LineConsumer consumer) {
+    try {
+      new ByteLines().decodeLines(buffer, start, end, consumer);
+    } catch (IOException e) {
+      throw new ReadChangelogFileException(path, e);
+    }
+  }
+
+  private Changelog parse(int start, int end) {
+    ChangelogParser.LineParser parser = new ChangelogParser.LineParser();
+    decode(start, end, parser);
+    return parser.get();
+  }
+
+  private class Versions extends AbstractList<Version> {
+
+    private MappedVersion[] cache = new MappedVersion[0];
+
+    @Override
+    public boolean isEmpty() {
+      return !hasVersions();
+    }
+
+    @Override
+    public int size() {
+      return versionCount();
+    }
+
+    @Override
+    public Version get(int index) {
+      int start = versionStart(index);
+      synchronized (MappedChangelog.this) {
+        if (index >= cache.length) {
+          cache = Arrays.copyOf(cache, Math.max(index + 1, cache.length * 2));
+        }
+        if (cache[index] == null) {
+          int end = ByteLines.lineEnd(buffer, start, size);
+          Version heading = parse(start, end).getVersions().get(0);
+          cache[index] = new MappedVersion(index, heading.getNumber(), heading.getDate());
+        }
+        return cache[index];
+      }
+    }
+  }
+
+  private class MappedVersion extends Version {
+
+    private final int index;
+    private Map<String, List<Change>> changes;
+
+    private MappedVersion(int index, String number, Instant date) {
+      super(number, date, null);
+      this.index = index;
+    }
+
+    @Override
+    public Map<String, List<Change>> getChanges() {
+      synchronized (MappedChangelog.this) {
+        if (changes == null) {
+          changes = parse(versionStart(index), versionEnd(index)).getVersions().get(0).getChanges();
+        }
+        return changes;
+      }
+    }
+  }
+}
@@ -0,0 +1,58 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2020-present Cloudogu GmbH and Contributors
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package cloudogu.scm.changelog;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Measures a phase of a changelog update. The counters may be increased by several threads.
+ */
+final class PhaseCounter {
+
+  private final ChangelogUpdatePhase phase;
+  private final long start = System.nanoTime();
+  private final LongAdder items = new LongAdder();
+  private final LongAdder bytes = new LongAdder();
+
+  private PhaseCounter(ChangelogUpdatePhase phase) {
+    this.phase = phase;
+  }
+
+  static PhaseCounter start(ChangelogUpdatePhase phase) {
+    return new PhaseCounter(phase);
+  }
+
+  void add(long items, long bytes) {
+    this.items.add(items);
+    this.bytes.add(bytes);
+  }
+
+  void complete(ChangelogUpdateListener listener) {
+    listener.phaseCompleted(
+      new ChangelogPhaseMetrics(phase, Duration.ofNanos(System.nanoTime() - start), items.sum(), bytes.sum())
+    );
+  }
+}
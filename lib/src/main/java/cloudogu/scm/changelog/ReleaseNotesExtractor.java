@@ -0,0 +1,300 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2020-present Cloudogu GmbH and Contributors
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package cloudogu.scm.changelog;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.Writer;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.function.Predicate;
+
+/**
+ * Extracts the section of a single version from a changelog file, e.g. for the body of a git tag or a release
+ * announcement. The section is found by scanning the version headings from the beginning of the file, which stops at
+ * the heading after the requested version, or by the sidecar index of the file ({@code .CHANGELOG.md.idx}). Only the
+ * section itself is read and decoded, so the extraction of a recent version does not depend on the length of the
+ * history.
+ * <p>
+ * Versions are found by their semantic version, so {@code 2.3} finds the version {@code 2.3.0}. If no number is
+ * given, the first version of the file is extracted.
+ */
+public class ReleaseNotesExtractor {
+
+  private final Path changelogFile;
+
+  private boolean index;
+  private boolean heading;
+
+  public ReleaseNotesExtractor(Path changelogFile) {
+    this.changelogFile = changelogFile;
+  }
+
+  /**
+   * Finds the section with the sidecar index instead of scanning the file. A missing or stale index is rebuilt.
+   */
+  public ReleaseNotesExtractor withIndex(boolean index) {
+    this.index = index;
+    return this;
+  }
+
+  /**
+   * Includes the version heading (e.g. {@code ## 1.0.0 - 2020-12-07}) in the markdown, which is omitted by default.
+   */
+  public ReleaseNotesExtractor withHeading(boolean heading) {
+    this.heading = heading;
+    return this;
+  }
+
+  /**
+   * Returns the version with its changes or an empty optional, if the changelog does not contain the version.
+   *
+   * @param number number of the version or {@code null} for the first version of the file
+   */
+  public Optional<Changelog.Version> extract(String number) {
+    Section section = read(number);
+    if (section == null) {
+      return Optional.empty();
+    }
+    ChangelogParser.LineParser parser = new ChangelogParser.LineParser();
+    try {
+      new ByteLines().decodeLines(section.buffer, section.headingStart, section.end, parser);
+    } catch (IOException e) {
+      throw new ReadChangelogFileException(changelogFile, e);
+    }
+    return Optional.of(parser.get().getVersions().get(0));
+  }
+
+  /**
+   * Writes the markdown of the version, as it is written in the changelog without the version links and trailing
+   * blank lines. The bytes are copied from the file without decoding them.
+   *
+   * @param number number of the version or {@code null} for the first version of the file
+   * @return {@code false} if the changelog does not contain the version, nothing is written in that case
+   */
+  public boolean extractMarkdown(String number, OutputStream out) throws IOException {
+    Section section = read(number);
+    if (section == null) {
+      return false;
+    }
+    int start = heading ? section.headingStart : section.bodyStart;
+    out.write(section.buffer.array(), start, section.end - start);
+    if (section.end > start) {
+      out.write('\n');
+    }
+    out.flush();
+    return true;
+  }
+
+  /**
+   * Writes the version as json object of the following form:
+   *
+   * <pre>
+   * {"version":"1.0.0","date":"2020-12-07","changes":{"Added":["Awesome feature"],"Fixed":["Bug"]}}
+   * </pre>
+   *
+   * @param number number of the version or {@code null} for the first version of the file
+   * @return {@code false} if the changelog does not contain the version, nothing is written in that case
+   */
+  public boolean extractJson(String number, Writer writer) throws IOException {
+    Optional<Changelog.Version> extracted = extract(number);
+    if (!extracted.isPresent()) {
+      return false;
+    }
+    Changelog.Version version = extracted.get();
+    writer.write("{\"version\":");
+    ChangelogUpdateReport.writeString(writer, version.getNumber());
+    writer.write(",\"date\":");
+    ChangelogUpdateReport.writeString(writer, Changelog.DATE_FORMAT.format(version.getDate()));
+    writer.write(",\"changes\":{");
+    boolean firstType = true;
+    for (Map.Entry<String, List<Changelog.Change>> type : version.getChanges().entrySet()) {
+      if (!firstType) {
+        writer.write(',');
+      }
+      firstType = false;
+      ChangelogUpdateReport.writeString(writer, type.getKey());
+      writer.write(":[");
+      List<Changelog.Change> changes = type.getValue();
+      for (int i = 0; changes != null && i < changes.size(); i++) {
+        if (i > 0) {
+          writer.write(',');
+        }
+        ChangelogUpdateReport.writeString(writer, changes.get(i).getValue());
+      }
+      writer.write(']');
+    }
+    writer.write("}}");
+    writer.flush();
+    return true;
+  }
+
+  private Section read(String number) {
+    Predicate<String> matcher = number == null ? candidate -> true : VersionIndex.sameVersion(number);
+    try (FileChannel channel = FileChannel.open(changelogFile, StandardOpenOption.READ)) {
+      long[] range = index ? findWithIndex(channel, matcher) : find(channel, matcher);
+      if (range == null) {
+        return null;
+      }
+      long length = range[1] - range[0];
+      if (length > Integer.MAX_VALUE) {
+        throw new ChangelogException("version section of " + changelogFile + " is too large to be extracted");
+      }
+      ByteBuffer buffer = ByteBuffer.allocate((int) length);
+      while (buffer.hasRemaining() && channel.read(buffer, range[0] + buffer.position()) >= 0) {
+        // read until the buffer is full, the file may have been truncated in between
+      }
+      return Section.of(buffer.array(), buffer.position());
+    } catch (IOException e) {
+      throw new ReadChangelogFileException(changelogFile, e);
+    }
+  }
+
+  private static long[] find(FileChannel channel, Predicate<String> matcher) throws IOException {
+    SectionFinder finder = new SectionFinder(matcher);
+    ByteLines.forEachLine(channel, 0, finder);
+    if (finder.start < 0) {
+      return null;
+    }
+    return new long[]{finder.start, finder.end >= 0 ? finder.end : channel.size()};
+  }
+
+  private long[] findWithIndex(FileChannel channel, Predicate<String> matcher) throws IOException {
+    ChangelogIndex changelogIndex = ChangelogIndex.of(changelogFile);
+    if (changelogIndex.getSize() != channel.size()) {
+      // modified after the index was built
+      return find(channel, matcher);
+    }
+    for (ChangelogIndex.Entry entry : changelogIndex.getEntries()) {
+      if (matcher.test(entry.getNumber())) {
+        // the section of the last version contains the version links, they are cut by the section
+        return new long[]{entry.getOffset(), entry.getOffset() + entry.getLength()};
+      }
+    }
+    return null;
+  }
+
+  /**
+   * The bytes of a version section, from its heading up to the last non blank line before the next version heading
+   * or the version links.
+   */
+  private static final class Section {
+
+    private final ByteBuffer buffer;
+    private final int headingStart;
+    private final int bodyStart;
+    private final int end;
+
+    private Section(ByteBuffer buffer, int headingStart, int bodyStart, int end) {
+      this.buffer = buffer;
+      this.headingStart = headingStart;
+      this.bodyStart = bodyStart;
+      this.end = end;
+    }
+
+    static Section of(byte[] bytes, int length) throws IOException {
+      ByteBuffer buffer = ByteBuffer.wrap(bytes, 0, length);
+      ByteLines lines = new ByteLines();
+      int headingEnd = ByteLines.lineEnd(buffer, 0, length);
+      int bodyStart = ByteLines.nextLine(buffer, headingEnd, length);
+      int end = headingEnd;
+      int start = bodyStart;
+      while (start < length) {
+        int lineEnd = ByteLines.lineEnd(buffer, start, length);
+        char first = ByteLines.firstCharacter(buffer, start, lineEnd);
+        if (first == '[' && isLink(lines, buffer, start, lineEnd)) {
+          break;
+        }
+        if (first != ' ') {
+          end = lineEnd;
+        }
+        start = ByteLines.nextLine(buffer, lineEnd, length);
+      }
+      // skip the blank lines between heading and first change
+      int firstLine = bodyStart;
+      while (firstLine < end) {
+        int lineEnd = ByteLines.lineEnd(buffer, firstLine, end);
+        if (ByteLines.firstCharacter(buffer, firstLine, lineEnd) != ' ') {
+          break;
+        }
+        firstLine = ByteLines.nextLine(buffer, lineEnd, end);
+      }
+      return new Section(buffer, 0, Math.min(firstLine, end), end);
+    }
+
+    private static boolean isLink(ByteLines lines, ByteBuffer buffer, int start, int end) throws IOException {
+      int length = lines.decode(buffer, start, end);
+      char[] chars = lines.chars();
+      int trimmedStart = ChangelogLines.trimStart(chars, 0, length);
+      return ChangelogLines.link(chars, trimmedStart, ChangelogLines.trimEnd(chars, trimmedStart, length)) != null;
+    }
+  }
+
+  /**
+   * Finds the offsets of the requested version heading and of the line after its section, without decoding any
+   * line which is neither a heading nor a link.
+   */
+  private static class SectionFinder implements ByteLines.LineVisitor {
+
+    private final Predicate<String> matcher;
+    private final ByteLines lines = new ByteLines();
+
+    private long start = -1;
+    private long end = -1;
+
+    private SectionFinder(Predicate<String> matcher) {
+      this.matcher = matcher;
+    }
+
+    @Override
+    public boolean visit(ByteBuffer buffer, int start, int end, long lineOffset, long nextOffset) throws IOException {
+      char first = ByteLines.firstCharacter(buffer, start, end);
+      if (first == '#') {
+        int length = lines.decode(buffer, start, end);
+        char[] chars = lines.chars();
+        int trimmedStart = ChangelogLines.trimStart(chars, 0, length);
+        int trimmedEnd = ChangelogLines.trimEnd(chars, trimmedStart, length);
+        if (this.start >= 0 && ChangelogLines.isHeading(chars, trimmedStart, trimmedEnd)) {
+          // the next heading is not parsed, it does not belong to the section
+          this.end = lineOffset;
+          return false;
+        }
+        ChangelogLines.Heading heading = ChangelogLines.heading(chars, trimmedStart, trimmedEnd);
+        if (heading != null && matcher.test(heading.getNumber())) {
+          this.start = lineOffset;
+        }
+      } else if (first == '[' && this.start >= 0 && Section.isLink(lines, buffer, start, end)) {
+        this.end = lineOffset;
+        return false;
+      }
+      return true;
+    }
+  }
+}
@@ -0,0 +1,165 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2020-present Cloudogu GmbH and Contributors
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package cloudogu.scm.changelog;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.function.Consumer;
+
+/**
+ * Preview of the next version, which is built from the current changelog entries. The parsed entries are kept in
+ * memory per file, so that after a change only the modified file has to be parsed again. The preview is written as
+ * markdown with an {@code Unreleased} heading, the changes are ordered like they are in the changelog.
+ */
+public final class UnreleasedPreview {
+
+  private final Path entryDirectory;
+  private final Path previewFile;
+  private final Map<String, List<ChangeEntries.ChangelogEntry>> entries = new TreeMap<>();
+  private final Map<String, List<ChangeEntries.ChangelogEntry>> packed = new TreeMap<>();
+
+  private Consumer<? super ChangelogException> errorHandler = e -> {
+    throw e;
+  };
+
+  public UnreleasedPreview(Path entryDirectory, Path previewFile) {
+    this.entryDirectory = entryDirectory;
+    this.previewFile = previewFile;
+  }
+
+  /**
+   * Handles entry files which could not be parsed. The entries of such a file stay in the preview as they were before
+   * the file became invalid. By default the exception is thrown.
+   */
+  public UnreleasedPreview withErrorHandler(Consumer<? super ChangelogException> errorHandler) {
+    this.errorHandler = errorHandler;
+    return this;
+  }
+
+  public Path getEntryDirectory() {
+    return entryDirectory;
+  }
+
+  public Path getPreviewFile() {
+    return previewFile;
+  }
+
+  /**
+   * Parses all entry files and reads the entry pack of the directory (see {@link FragmentPack}).
+   */
+  public synchronized void load() {
+    entries.clear();
+    packed.clear();
+    if (Files.isDirectory(entryDirectory)) {
+      readPack();
+      ChangeEntries.findFiles(entryDirectory).forEach(this::parse);
+    }
+  }
+
+  /**
+   * Updates the entries of the given file or directory, which was created, modified or deleted.
+   *
+   * @return {@code true} if the entries have been changed
+   */
+  public synchronized boolean update(Path path) {
+    String name = ChangeEntries.relativeName(entryDirectory, path);
+    if (FragmentPack.isPackFile(path)) {
+      // temporary files of the pack are ignored, the pack itself is replaced by them
+      return name.equals(FragmentPack.FILE_NAME) && readPack();
+    }
+    if (Files.isDirectory(path)) {
+      boolean changed = false;
+      for (Path file : ChangeEntries.findFiles(path)) {
+        changed |= parse(file);
+      }
+      return changed;
+    }
+    if (Files.exists(path)) {
+      return parse(path);
+    }
+    // the path could have been a file or a whole directory
+    boolean removed = entries.remove(name) != null;
+    return entries.keySet().removeIf(key -> key.startsWith(name + "/")) || removed;
+  }
+
+  private boolean readPack() {
+    try {
+      Map<String, List<ChangeEntries.ChangelogEntry>> current = new FragmentPack(entryDirectory).read();
+      packed.clear();
+      packed.putAll(current);
+      return true;
+    } catch (ChangelogException e) {
+      errorHandler.accept(e);
+      return false;
+    }
+  }
+
+  private boolean parse(Path file) {
+    try {
+      entries.put(ChangeEntries.relativeName(entryDirectory, file), ChangeEntries.parse(file));
+      return true;
+    } catch (ChangelogException e) {
+      errorHandler.accept(e);
+      return false;
+    }
+  }
+
+  public synchronized Map<String, List<Changelog.Change>> getChanges() {
+    // loose files replace packed files with the same name, like they do for the update
+    Map<String, List<ChangeEntries.ChangelogEntry>> files = new TreeMap<>(packed);
+    files.putAll(entries);
+    List<ChangeEntries.ChangelogEntry> all = new ArrayList<>();
+    files.values().forEach(all::addAll);
+    return ChangeEntries.group(all);
+  }
+
+  /**
+   * Writes the preview file. The file is replaced atomically, so that an editor which shows the preview never reads a
+   * partially written file.
+   */
+  public void write() {
+    Map<String, List<Changelog.Change>> changes = getChanges();
+    try {
+      Path tempFile = AtomicFiles.createTempFile(previewFile);
+      try {
+        AtomicFiles.write(tempFile, out -> {
+          out.println("## Unreleased");
+          new Changelog.Version("Unreleased", null, changes).writeChanges(out);
+        });
+        AtomicFiles.replace(tempFile, previewFile, null);
+      } finally {
+        Files.deleteIfExists(tempFile);
+      }
+    } catch (IOException e) {
+      throw new UncheckedIOException("failed to write preview " + previewFile, e);
+    }
+  }
+}
@@ -0,0 +1,187 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2020-present Cloudogu GmbH and Contributors
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package cloudogu.scm.changelog;
+
+import com.vdurmont.semver4j.Semver;
+import com.vdurmont.semver4j.SemverException;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.function.Predicate;
+
+/**
+ * Versions of a changelog sorted by their semantic version, so that lookups and range queries are binary searches
+ * instead of scans over the versions in the order of the file. Versions whose number is not a semantic version are not
+ * part of the index. If a version is listed more than once, the first one wins.
+ */
+final class VersionIndex {
+
+  private final Semver[] numbers;
+  private final Changelog.Version[] versions;
+
+  private VersionIndex(Semver[] numbers, Changelog.Version[] versions) {
+    this.numbers = numbers;
+    this.versions = versions;
+  }
+
+  static VersionIndex of(List<Changelog.Version> versions) {
+    List<Entry> entries = new ArrayList<>(versions.size());
+    for (Changelog.Version version : versions) {
+      Semver number = tryParse(version.getNumber());
+      if (number != null) {
+        entries.add(new Entry(number, version));
+      }
+    }
+    // the sort is stable, so the first of two equal versions stays in front
+    entries.sort((a, b) -> a.number.compareTo(b.number));
+
+    Semver[] numbers = new Semver[entries.size()];
+    Changelog.Version[] sorted = new Changelog.Version[entries.size()];
+    int size = 0;
+    for (Entry entry : entries) {
+      if (size == 0 || numbers[size - 1].compareTo(entry.number) != 0) {
+        numbers[size] = entry.number;
+        sorted[size] = entry.version;
+        size++;
+      }
+    }
+    return new VersionIndex(Arrays.copyOf(numbers, size), Arrays.copyOf(sorted, size));
+  }
+
+  Changelog.Version find(String number) {
+    int index = Arrays.binarySearch(numbers, parse(number));
+    return index >= 0 ? versions[index] : null;
+  }
+
+  /**
+   * Returns a predicate which accepts the numbers of the same semantic version as the given number, e.g. {@code 2.3}
+   * for {@code 2.3.0}. A number which is not a semantic version only accepts itself.
+   */
+  static Predicate<String> sameVersion(String number) {
+    Semver semver = tryParse(number);
+    return candidate -> {
+      if (candidate.equals(number)) {
+        return true;
+      }
+      if (semver == null) {
+        return false;
+      }
+      Semver other = tryParse(candidate);
+      return other != null && other.compareTo(semver) == 0;
+    };
+  }
+
+  Changelog.Version latest() {
+    return versions.length > 0 ? versions[versions.length - 1] : null;
+  }
+
+  /**
+   * Returns the versions which are greater than {@code from} and less than or equal to {@code to}, latest first.
+   * Either bound may be {@code null} to leave the range open.
+   */
+  List<Changelog.Version> range(String from, String to) {
+    int start = from == null ? 0 : upperBound(parse(from));
+    int end = to == null ? versions.length : upperBound(parse(to));
+    if (start >= end) {
+      return Collections.emptyList();
+    }
+    List<Changelog.Version> result = new ArrayList<>(end - start);
+    for (int i = end - 1; i >= start; i--) {
+      result.add(versions[i]);
+    }
+    return Collections.unmodifiableList(result);
+  }
+
+  /**
+   * Returns the index of the first version which is greater than the given one.
+   */
+  private int upperBound(Semver number) {
+    int low = 0;
+    int high = numbers.length;
+    while (low < high) {
+      int mid = (low + high) >>> 1;
+      if (numbers[mid].compareTo(number) <= 0) {
+        low = mid + 1;
+      } else {
+        high = mid;
+      }
+    }
+    return low;
+  }
+
+  private static Semver parse(String number) {
+    Semver semver = tryParse(number);
+    if (semver == null) {
+      throw new IllegalArgumentException("version " + number + " is not a semantic version");
+    }
+    return semver;
+  }
+
+  private static Semver tryParse(String number) {
+    if (number == null) {
+      return null;
+    }
+    try {
+      return new Semver(complete(number), Semver.SemverType.LOOSE);
+    } catch (SemverException e) {
+      return null;
+    }
+  }
+
+  /**
+   * Adds missing minor and patch numbers, because semver4j treats them as lower than zero, which would sort 2.3 before
+   * 2.3.0.
+   */
+  private static String complete(String number) {
+    int suffix = number.indexOf('-');
+    int end = suffix >= 0 ? suffix : number.length();
+    int dots = 0;
+    for (int i = 0; i < end; i++) {
+      if (number.charAt(i) == '.') {
+        dots++;
+      }
+    }
+    if (dots >= 2) {
+      return number;
+    }
+    StringBuilder completed = new StringBuilder(number.length() + 4).append(number, 0, end);
+    for (int i = dots; i < 2; i++) {
+      completed.append(".0");
+    }
+    return completed.append(number, end, number.length()).toString();
+  }
+
+  private static class Entry {
+    private final Semver number;
+    private final Changelog.Version version;
+
+    private Entry(Semver number, Changelog.Version version) {
+      this.number = number;
+      this.version = version;
+    }
+  }
+}
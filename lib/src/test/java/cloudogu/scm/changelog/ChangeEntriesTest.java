@@ -0,0 +1,143 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2020-present Cloudogu GmbH and Contributors
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package cloudogu.scm.changelog;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.List;
+import java.util.Map;
+
+import static java.util.stream.Collectors.toList;
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ChangeEntriesTest {
+
+  @Test
+  void shouldReturnEntriesOrderedByPath(@TempDir Path directory) throws IOException {
+    write(directory.resolve("c.yaml"), "Added", "c");
+    write(directory.resolve("a.yaml"), "Added", "a");
+    write(directory.resolve("b/a.yaml"), "Added", "b/a");
+    write(directory.resolve("b/b.yaml"), "Fixed", "b/b");
+
+    Map<String, List<Changelog.Change>> entries = new ChangeEntries().from(directory);
+
+    assertThat(entries).containsOnlyKeys(ChangeEntries.ADDED, ChangeEntries.FIXED);
+    assertThat(descriptions(entries.get(ChangeEntries.ADDED))).containsExactly("a", "b/a", "c");
+    assertThat(descriptions(entries.get(ChangeEntries.FIXED))).containsExactly("b/b");
+  }
+
+  @Test
+  void shouldReturnSameEntriesRegardlessOfParallelism(@TempDir Path directory) throws IOException {
+    for (int i = 0; i < 100; i++) {
+      write(directory.resolve("dir" + (i % 7)).resolve("entry" + i + ".yaml"), i % 3 == 0 ? "Fixed" : "Added", "change " + i);
+    }
+
+    Map<String, List<Changelog.Change>> sequential = new ChangeEntries(1).from(directory);
+
+    for (int parallelism = 2; parallelism <= 16; parallelism *= 2) {
+      Map<String, List<Changelog.Change>> parallel = new ChangeEntries(parallelism).from(directory);
+      assertThat(parallel.keySet()).containsExactlyElementsOf(sequential.keySet());
+      for (Map.Entry<String, List<Changelog.Change>> entry : sequential.entrySet()) {
+        assertThat(descriptions(parallel.get(entry.getKey()))).containsExactlyElementsOf(descriptions(entry.getValue()));
+      }
+    }
+  }
+
+  @Test
+  void shouldReadSingleFile(@TempDir Path directory) throws IOException {
+    Path file = directory.resolve("entry.yaml");
+    write(file, "changed", "single");
+
+    Map<String, List<Changelog.Change>> entries = new ChangeEntries().from(file);
+
+    assertThat(descriptions(entries.get(ChangeEntries.CHANGED))).containsExactly("single");
+  }
+
+  @Test
+  void shouldReuseCachedEntries(@TempDir Path temp) throws IOException {
+    Path directory = Files.createDirectory(temp.resolve("entries"));
+    Path cacheFile = temp.resolve("entries.cache");
+    Path file = directory.resolve("a.yaml");
+    write(file, "Added", "aaa");
+    FileTime lastModified = FileTime.from(Instant.now().minus(1, ChronoUnit.HOURS));
+    Files.setLastModifiedTime(file, lastModified);
+
+    new ChangeEntries().withCache(cacheFile).from(directory);
+    assertThat(cacheFile).exists();
+
+    // same size and modification time, so the file should not be parsed again
+    write(file, "Added", "bbb");
+    Files.setLastModifiedTime(file, lastModified);
+    Map<String, List<Changelog.Change>> entries = new ChangeEntries().withCache(cacheFile).from(directory);
+
+    assertThat(descriptions(entries.get(ChangeEntries.ADDED))).containsExactly("aaa");
+  }
+
+  @Test
+  void shouldInvalidateModifiedEntries(@TempDir Path temp) throws IOException {
+    Path directory = Files.createDirectory(temp.resolve("entries"));
+    Path cacheFile = temp.resolve("entries.cache");
+    write(directory.resolve("a.yaml"), "Added", "a");
+    write(directory.resolve("b.yaml"), "Fixed", "b");
+    new ChangeEntries().withCache(cacheFile).from(directory);
+
+    write(directory.resolve("a.yaml"), "Added", "modified a");
+    Files.delete(directory.resolve("b.yaml"));
+    write(directory.resolve("c.yaml"), "Changed", "c");
+    Map<String, List<Changelog.Change>> entries = new ChangeEntries().withCache(cacheFile).from(directory);
+
+    assertThat(entries).containsOnlyKeys(ChangeEntries.ADDED, ChangeEntries.CHANGED);
+    assertThat(descriptions(entries.get(ChangeEntries.ADDED))).containsExactly("modified a");
+    assertThat(descriptions(entries.get(ChangeEntries.CHANGED))).containsExactly("c");
+  }
+
+  @Test
+  void shouldIgnoreCorruptCache(@TempDir Path temp) throws IOException {
+    Path directory = Files.createDirectory(temp.resolve("entries"));
+    Path cacheFile = temp.resolve("entries.cache");
+    Files.write(cacheFile, new byte[]{1, 2, 3});
+    write(directory.resolve("a.yaml"), "Added", "a");
+
+    Map<String, List<Changelog.Change>> entries = new ChangeEntries().withCache(cacheFile).from(directory);
+
+    assertThat(descriptions(entries.get(ChangeEntries.ADDED))).containsExactly("a");
+  }
+
+  private void write(Path file, String type, String description) throws IOException {
+    Files.createDirectories(file.getParent());
+    Files.write(file, ("- type: " + type + "\n  description: " + description + "\n").getBytes());
+  }
+
+  private List<String> descriptions(List<Changelog.Change> changes) {
+    return changes.stream().map(Changelog.Change::getValue).collect(toList());
+  }
+}
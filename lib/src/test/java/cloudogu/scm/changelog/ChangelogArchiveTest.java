@@ -0,0 +1,318 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2020-present Cloudogu GmbH and Contributors
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package cloudogu.scm.changelog;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.time.Period;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class ChangelogArchiveTest {
+
+  private static final Instant DATE = Instant.parse("2021-06-01T10:15:30.00Z");
+
+  @Test
+  void shouldMoveOlderMajorsIntoArchives(@TempDir Path folder) throws IOException {
+    Path changelogFile = write(folder.resolve("CHANGELOG.md"),
+      "# Changelog",
+      "",
+      "## [3.1.0] - 2021-05-01",
+      "### Added",
+      "- Feature 3.1",
+      "",
+      "## [3.0.0] - 2021-04-01",
+      "### Changed",
+      "- Breaking 3.0",
+      "",
+      "## [2.1.0] - 2021-03-01",
+      "### Fixed",
+      "- Bug 2.1",
+      "",
+      "## 2.0.0 - 2021-02-01",
+      "### Added",
+      "- Feature 2.0",
+      "",
+      "## [1.0.0] - 2021-01-01",
+      "### Added",
+      "- Feature 1.0",
+      "",
+      "[3.1.0]: https://example.com/3.1.0",
+      "[3.0.0]: https://example.com/3.0.0",
+      "[2.1.0]: https://example.com/2.1.0",
+      "[1.0.0]: https://example.com/1.0.0"
+    );
+
+    int archived = new ChangelogArchive(changelogFile, DATE).withMajorsToKeep(1).archive();
+
+    assertThat(archived).isEqualTo(3);
+    assertThat(Files.readAllLines(changelogFile)).containsExactly(
+      "# Changelog",
+      "",
+      "## [3.1.0] - 2021-05-01",
+      "### Added",
+      "- Feature 3.1",
+      "",
+      "## [3.0.0] - 2021-04-01",
+      "### Changed",
+      "- Breaking 3.0",
+      "",
+      "[3.1.0]: https://example.com/3.1.0",
+      "[3.0.0]: https://example.com/3.0.0"
+    );
+    assertThat(Files.readAllLines(folder.resolve("CHANGELOG-2.x.md"))).containsExactly(
+      "# Changelog 2.x",
+      "",
+      "## [2.1.0] - 2021-03-01",
+      "### Fixed",
+      "- Bug 2.1",
+      "",
+      "## 2.0.0 - 2021-02-01",
+      "### Added",
+      "- Feature 2.0",
+      "",
+      "[2.1.0]: https://example.com/2.1.0"
+    );
+    assertThat(Files.readAllLines(folder.resolve("CHANGELOG-1.x.md")))
+      .containsSubsequence("# Changelog 1.x", "## [1.0.0] - 2021-01-01", "[1.0.0]: https://example.com/1.0.0");
+    assertThat(ChangelogArchive.findArchiveFiles(changelogFile))
+      .containsExactly(folder.resolve("CHANGELOG-2.x.md"), folder.resolve("CHANGELOG-1.x.md"));
+  }
+
+  @Test
+  void shouldAddVersionsInFrontOfExistingArchive(@TempDir Path folder) throws IOException {
+    Path changelogFile = write(folder.resolve("CHANGELOG.md"),
+      "# Changelog",
+      "## 2.0.0 - 2021-03-01",
+      "### Added",
+      "- Feature 2.0",
+      "",
+      "## 1.1.0 - 2021-02-01",
+      "### Added",
+      "- Feature 1.1"
+    );
+    write(folder.resolve("CHANGELOG-1.x.md"),
+      "# Old versions",
+      "## 1.0.0 - 2021-01-01",
+      "### Added",
+      "- Feature 1.0"
+    );
+
+    new ChangelogArchive(changelogFile, DATE).withMajorsToKeep(1).archive();
+
+    assertThat(Files.readAllLines(folder.resolve("CHANGELOG-1.x.md"))).containsExactly(
+      "# Old versions",
+      "## 1.1.0 - 2021-02-01",
+      "### Added",
+      "- Feature 1.1",
+      "",
+      "## 1.0.0 - 2021-01-01",
+      "### Added",
+      "- Feature 1.0",
+      ""
+    );
+  }
+
+  @Test
+  void shouldNotDuplicateVersionsWhichAreAlreadyArchived(@TempDir Path folder) throws IOException {
+    String[] changelog = {
+      "# Changelog",
+      "## [2.0.0] - 2021-03-01",
+      "### Added",
+      "- Feature 2.0",
+      "",
+      "## [1.0.0] - 2021-01-01",
+      "### Added",
+      "- Feature 1.0",
+      "",
+      "[2.0.0]: https://example.com/2.0.0",
+      "[1.0.0]: https://example.com/1.0.0"
+    };
+    Path changelogFile = write(folder.resolve("CHANGELOG.md"), changelog);
+    new ChangelogArchive(changelogFile, DATE).withMajorsToKeep(1).archive();
+    // the changelog still contains the archived version, e.g. because a retry read it before it was rewritten
+    write(changelogFile, changelog);
+
+    new ChangelogArchive(changelogFile, DATE).withMajorsToKeep(1).archive();
+
+    assertThat(Files.readAllLines(folder.resolve("CHANGELOG-1.x.md"))).containsExactly(
+      "# Changelog 1.x",
+      "",
+      "## [1.0.0] - 2021-01-01",
+      "### Added",
+      "- Feature 1.0",
+      "",
+      "[1.0.0]: https://example.com/1.0.0"
+    );
+    assertThat(new ChangelogParser().parse(changelogFile).getVersions())
+      .extracting("number")
+      .containsExactly("2.0.0");
+  }
+
+  @Test
+  void shouldArchiveByAgeButKeepLatestVersion(@TempDir Path folder) throws IOException {
+    Path changelogFile = write(folder.resolve("CHANGELOG.md"),
+      "# Changelog",
+      "## 1.2.0 - 2019-03-01",
+      "### Added",
+      "- Feature 1.2",
+      "",
+      "## 1.1.0 - 2019-02-01",
+      "### Added",
+      "- Feature 1.1"
+    );
+    ChangelogArchive archive = new ChangelogArchive(changelogFile, DATE).withMaxAge(Period.ofYears(1));
+
+    assertThat(archive.archive()).isEqualTo(1);
+    assertThat(archive.archive()).isZero();
+
+    assertThat(new ChangelogParser().parse(changelogFile).getVersions())
+      .extracting("number")
+      .containsExactly("1.2.0");
+    assertThat(new ChangelogParser().parse(folder.resolve("CHANGELOG-1.x.md")).getVersions())
+      .extracting("number")
+      .containsExactly("1.1.0");
+  }
+
+  @Test
+  void shouldNotRewriteChangelogWithoutArchivedVersions(@TempDir Path folder) throws IOException {
+    Path changelogFile = write(folder.resolve("CHANGELOG.md"),
+      "# Changelog",
+      "## 2.0.0 - 2021-03-01",
+      "### Added",
+      "- Feature 2.0"
+    );
+
+    assertThat(new ChangelogArchive(changelogFile, DATE).withMajorsToKeep(1).archive()).isZero();
+    assertThat(new ChangelogArchive(changelogFile, DATE).archive()).isZero();
+
+    assertThat(Files.readAllLines(changelogFile)).hasSize(4);
+    assertThat(ChangelogArchive.findArchiveFiles(changelogFile)).isEmpty();
+  }
+
+  @Test
+  void shouldReadChangelogTogetherWithArchives(@TempDir Path folder) throws IOException {
+    Path changelogFile = write(folder.resolve("CHANGELOG.md"),
+      "# Changelog",
+      "## [3.0.0] - 2021-04-01",
+      "### Added",
+      "- Feature 3.0",
+      "",
+      "## [2.0.0] - 2021-03-01",
+      "### Added",
+      "- Feature 2.0",
+      "",
+      "## [1.1.0] - 2021-02-01",
+      "### Fixed",
+      "- Bug 1.1",
+      "",
+      "## [1.0.0] - 2021-01-01",
+      "### Added",
+      "- Feature 1.0",
+      "",
+      "[3.0.0]: https://example.com/3.0.0",
+      "[2.0.0]: https://example.com/2.0.0",
+      "[1.1.0]: https://example.com/1.1.0",
+      "[1.0.0]: https://example.com/1.0.0"
+    );
+    new ChangelogArchive(changelogFile, DATE).withMajorsToKeep(1).archive();
+
+    Changelog changelog = new ChangelogParser().parseWithArchives(changelogFile);
+
+    assertThat(changelog.getHeader()).containsExactly("# Changelog");
+    assertThat(changelog.getVersions()).extracting("number").containsExactly("3.0.0", "2.0.0", "1.1.0", "1.0.0");
+    assertThat(changelog.getVersions().get(2).getChanges().get("Fixed")).extracting("value").containsExactly("Bug 1.1");
+    assertThat(changelog.getLinks()).extracting("version").containsExactly("3.0.0", "2.0.0", "1.1.0", "1.0.0");
+    assertThat(changelog.getVersionsBetween("1.0.0", "2.0.0")).extracting("number").containsExactly("2.0.0", "1.1.0");
+  }
+
+  @Test
+  void shouldReadArchivesLazily(@TempDir Path folder) throws IOException {
+    Path changelogFile = write(folder.resolve("CHANGELOG.md"),
+      "# Changelog",
+      "## 2.0.0 - 2021-03-01",
+      "### Added",
+      "- Feature 2.0"
+    );
+    Path archiveFile = write(folder.resolve("CHANGELOG-1.x.md"),
+      "# Changelog 1.x",
+      "## 1.0.0 - 2021-01-01",
+      "### Added",
+      "- Feature 1.0"
+    );
+
+    Changelog changelog = new ChangelogParser().parseWithArchives(changelogFile);
+    Files.delete(archiveFile);
+
+    assertThat(changelog.getVersions().get(0).getNumber()).isEqualTo("2.0.0");
+    assertThat(changelog.getVersions().isEmpty()).isFalse();
+    assertThatThrownBy(() -> changelog.getVersions().size()).isInstanceOf(ReadChangelogFileException.class);
+  }
+
+  @Test
+  void shouldArchiveAfterUpdate(@TempDir Path folder) throws IOException {
+    Path changelogFile = write(folder.resolve("CHANGELOG.md"),
+      "# Changelog",
+      "## 1.0.0 - 2021-01-01",
+      "### Added",
+      "- Feature 1.0"
+    );
+    Path entries = folder.resolve("entries");
+    Files.createDirectories(entries);
+    write(entries.resolve("feature.yaml"), "- type: added", "  description: Feature 2.0");
+
+    new ChangelogUpdater(changelogFile, entries, DATE)
+      .withVersion("2.0.0")
+      .withSplice(true)
+      .withArchive(new ChangelogArchive(changelogFile, DATE).withMajorsToKeep(1))
+      .update();
+
+    assertThat(new ChangelogParser().parse(changelogFile).getVersions()).extracting("number").containsExactly("2.0.0");
+    assertThat(new ChangelogParser().parseWithArchives(changelogFile).getVersions())
+      .extracting("number")
+      .containsExactly("2.0.0", "1.0.0");
+  }
+
+  @Test
+  void shouldNotAcceptArchiveOfOtherChangelog(@TempDir Path folder) {
+    ChangelogUpdater updater = new ChangelogUpdater(folder.resolve("CHANGELOG.md"), folder);
+    ChangelogArchive archive = new ChangelogArchive(folder.resolve("OTHER.md"));
+
+    assertThatThrownBy(() -> updater.withArchive(archive)).isInstanceOf(IllegalArgumentException.class);
+  }
+
+  private static Path write(Path file, String... lines) throws IOException {
+    List<String> content = Arrays.asList(lines);
+    return Files.write(file, content);
+  }
+}
@@ -0,0 +1,95 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2020-present Cloudogu GmbH and Contributors
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package cloudogu.scm.changelog;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.assertj.core.api.Assertions.tuple;
+
+class ChangelogBatchTest {
+
+  private static final Instant DATE = Instant.parse("2020-12-15T10:15:30.00Z");
+  private static final String CHANGELOG = "## 1.0.0 - 2020-12-07\n### Added\n- Awesome feature\n";
+
+  @Test
+  void shouldUpdateAllChangelogs(@TempDir Path directory) throws IOException {
+    ChangelogUpdater a = project(directory, "a", "- type: fixed\n  description: Bug a\n");
+    ChangelogUpdater b = project(directory, "b", "- type: added\n  description: Feature b\n- type: fixed\n  description: Bug b\n");
+    ChangelogUpdater c = project(directory, "c", null);
+
+    List<ChangelogBatch.Result> results = new ChangelogBatch(2).add(a).add(b).add(c).update();
+
+    assertThat(results)
+      .extracting("changelogFile", "version", "changes", "updated")
+      .containsExactly(
+        tuple(a.getChangelogFile(), "1.0.1", 1, true),
+        tuple(b.getChangelogFile(), "1.1.0", 2, true),
+        tuple(c.getChangelogFile(), null, 0, false)
+      );
+    assertThat(read(a.getChangelogFile())).contains("## 1.0.1 - 2020-12-15", "- Bug a");
+    assertThat(read(b.getChangelogFile())).contains("## 1.1.0 - 2020-12-15", "- Feature b", "- Bug b");
+    assertThat(read(c.getChangelogFile())).isEqualTo(CHANGELOG);
+  }
+
+  @Test
+  void shouldNotModifyAnyChangelogIfEntriesAreInvalid(@TempDir Path directory) throws IOException {
+    ChangelogUpdater a = project(directory, "a", "- type: fixed\n  description: Bug a\n");
+    ChangelogUpdater b = project(directory, "b", "- type: added\n  description: [unclosed\n");
+
+    ChangelogBatch batch = new ChangelogBatch().add(a).add(b);
+
+    assertThatThrownBy(batch::update)
+      .isInstanceOf(ChangelogBatchException.class)
+      .hasMessageContaining(b.getChangelogFile().toString())
+      .satisfies(e -> assertThat(e.getSuppressed()).hasSize(1));
+    assertThat(read(a.getChangelogFile())).isEqualTo(CHANGELOG);
+    assertThat(read(b.getChangelogFile())).isEqualTo(CHANGELOG);
+  }
+
+  private ChangelogUpdater project(Path root, String name, String entry) throws IOException {
+    Path project = Files.createDirectories(root.resolve(name));
+    Path entries = Files.createDirectories(project.resolve("changelog"));
+    if (entry != null) {
+      Files.write(entries.resolve("entry.yaml"), entry.getBytes(StandardCharsets.UTF_8));
+    }
+    Path changelog = project.resolve("CHANGELOG.md");
+    Files.write(changelog, CHANGELOG.getBytes(StandardCharsets.UTF_8));
+    return new ChangelogUpdater(changelog, entries, DATE);
+  }
+
+  private String read(Path file) throws IOException {
+    return new String(Files.readAllBytes(file), StandardCharsets.UTF_8);
+  }
+}
@@ -0,0 +1,138 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2020-present Cloudogu GmbH and Contributors
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package cloudogu.scm.changelog;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.PrintWriter;
+import java.io.StringWriter;
+import java.util.Arrays;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.tuple;
+
+class ChangelogDiffTest {
+
+  private final ChangelogParser parser = new ChangelogParser();
+
+  @Test
+  void shouldFindNoDifferenceInFormatting() {
+    Changelog from = parser.parse(Arrays.asList(
+      "## 1.0.0 - 2020-12-07",
+      "### added",
+      "- Feature",
+      "- Other feature",
+      "### fixed",
+      "- Bug"
+    ));
+    Changelog to = parser.parse(Arrays.asList(
+      "# Changelog",
+      "",
+      "## [1.0.0] - 2020-12-07",
+      "",
+      "### Fixed",
+      "- Bug",
+      "",
+      "### Added",
+      "- Other feature",
+      "- Feature",
+      "",
+      "[1.0.0]: https://example.com/1.0.0"
+    ));
+
+    assertThat(ChangelogDiff.between(from, to).isEmpty()).isTrue();
+  }
+
+  @Test
+  void shouldReportAddedRemovedAndModifiedVersions() {
+    Changelog from = parser.parse(Arrays.asList(
+      "## 1.1.0 - 2020-12-08",
+      "### Fixed",
+      "- Bug",
+      "- Bug",
+      "- Old bug",
+      "## 1.0.0 - 2020-12-07",
+      "### Added",
+      "- Feature",
+      "## 0.9.0 - 2020-12-01",
+      "### Added",
+      "- Prototype"
+    ));
+    Changelog to = parser.parse(Arrays.asList(
+      "## 2.0.0 - 2020-12-09",
+      "### Added",
+      "- Awesome feature",
+      "## 1.1.0 - 2020-12-08",
+      "### Fixed",
+      "- Bug",
+      "- New bug",
+      "## 1.0.0 - 2020-12-06",
+      "### Added",
+      "- Feature"
+    ));
+
+    ChangelogDiff diff = ChangelogDiff.between(from, to);
+
+    assertThat(diff.getVersions())
+      .extracting(ChangelogDiff.VersionDiff::getNumber, ChangelogDiff.VersionDiff::getStatus, ChangelogDiff.VersionDiff::isDateChanged)
+      .containsExactly(
+        tuple("2.0.0", ChangelogDiff.Status.ADDED, false),
+        tuple("1.1.0", ChangelogDiff.Status.MODIFIED, false),
+        tuple("1.0.0", ChangelogDiff.Status.MODIFIED, true),
+        tuple("0.9.0", ChangelogDiff.Status.REMOVED, false)
+      );
+    ChangelogDiff.VersionDiff modified = diff.getVersions().get(1);
+    assertThat(modified.getAddedChanges()).extracting("type", "description").containsExactly(tuple("Fixed", "New bug"));
+    assertThat(modified.getRemovedChanges()).extracting("type", "description")
+      .containsExactly(tuple("Fixed", "Bug"), tuple("Fixed", "Old bug"));
+    assertThat(diff.getVersions(ChangelogDiff.Status.REMOVED).get(0).getRemovedChanges())
+      .extracting("description").containsExactly("Prototype");
+  }
+
+  @Test
+  void shouldWriteDifferences() {
+    Changelog from = parser.parse(Arrays.asList(
+      "## 1.0.0 - 2020-12-07",
+      "### Fixed",
+      "- Old bug"
+    ));
+    Changelog to = parser.parse(Arrays.asList(
+      "## 2.0.0 - 2020-12-08",
+      "### Added",
+      "- Awesome feature",
+      "## 1.0.0 - 2020-12-07"
+    ));
+    StringWriter out = new StringWriter();
+
+    ChangelogDiff.between(from, to).write(new PrintWriter(out));
+
+    assertThat(out.toString()).isEqualToNormalizingNewlines(
+      "+ 2.0.0 - 2020-12-08\n" +
+        "  + Added: Awesome feature\n" +
+        "~ 1.0.0 - 2020-12-07\n" +
+        "  - Fixed: Old bug\n"
+    );
+  }
+}
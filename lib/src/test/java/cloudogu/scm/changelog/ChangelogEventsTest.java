@@ -0,0 +1,99 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2020-present Cloudogu GmbH and Contributors
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package cloudogu.scm.changelog;
+
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.util.List;
+
+import static java.util.stream.Collectors.toList;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.tuple;
+
+class ChangelogEventsTest {
+
+  @Test
+  void shouldRecordEventsOfUpdate(@TempDir Path directory) throws IOException {
+    Path entries = directory.resolve("entries");
+    Files.createDirectories(entries);
+    Files.write(entries.resolve("a.yml"), "- type: added\n  description: Feature a\n".getBytes(StandardCharsets.UTF_8));
+    Files.write(entries.resolve("b.yml"), "- {type: fixed, description: Bug b}\n".getBytes(StandardCharsets.UTF_8));
+    Path changelogFile = directory.resolve("CHANGELOG.md");
+    Files.write(changelogFile, "# Changelog\n\n## 1.0.0 - 2020-12-07\n".getBytes(StandardCharsets.UTF_8));
+
+    List<RecordedEvent> events = record(directory, () -> {
+      new ChangelogUpdater(changelogFile, entries, Instant.parse("2020-12-15T10:15:30.00Z")).update();
+      new ChangelogParser().parse(changelogFile);
+    });
+
+    assertThat(events)
+      .filteredOn(event -> event.getEventType().getName().equals("cloudogu.changelog.FragmentParse"))
+      .extracting(e -> e.getString("path"), e -> e.getInt("entries"), e -> e.getBoolean("yaml"))
+      .containsExactlyInAnyOrder(
+        tuple(entries.resolve("a.yml").toString(), 1, false),
+        tuple(entries.resolve("b.yml").toString(), 1, true)
+      );
+    assertThat(events)
+      .filteredOn(event -> event.getEventType().getName().equals("cloudogu.changelog.ChangelogParse"))
+      .extracting(e -> e.getString("path"), e -> e.getInt("lines"), e -> e.getInt("versions"))
+      .containsExactly(
+        tuple(changelogFile.toString(), 3, 1),
+        tuple(changelogFile.toString(), 10, 2)
+      );
+    assertThat(events)
+      .filteredOn(event -> event.getEventType().getName().equals("cloudogu.changelog.ChangelogWrite"))
+      .extracting(e -> e.getString("version"), e -> e.getInt("entries"), e -> e.getLong("bytes"))
+      .containsExactly(tuple("1.1.0", 2, Files.size(changelogFile)));
+  }
+
+  private List<RecordedEvent> record(Path directory, Action action) throws IOException {
+    Path file = directory.resolve("recording.jfr");
+    try (Recording recording = new Recording()) {
+      recording.enable(ChangelogParseEvent.class);
+      recording.enable(FragmentParseEvent.class);
+      recording.enable(ChangelogWriteEvent.class);
+      recording.start();
+      action.run();
+      recording.stop();
+      recording.dump(file);
+    }
+    return RecordingFile.readAllEvents(file).stream()
+      .filter(event -> event.getEventType().getName().startsWith("cloudogu.changelog."))
+      .collect(toList());
+  }
+
+  private interface Action {
+    void run() throws IOException;
+  }
+}
@@ -0,0 +1,127 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2020-present Cloudogu GmbH and Contributors
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package cloudogu.scm.changelog;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.io.StringWriter;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Stream;
+
+import static java.util.Arrays.asList;
+import static java.util.Collections.singletonList;
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ChangelogHtmlRendererTest {
+
+  private static final List<String> CHANGELOG = asList(
+    "# Changelog",
+    "All notable changes to this project will be documented in this file.",
+    "",
+    "## [2.11.1] - 2020-12-07",
+    "### Fixed",
+    "- Initialization of `master` ([#1467](https://github.com/scm-manager/scm-manager/issues/1467))",
+    "",
+    "## [2.11.0] - 2020-12-04",
+    "### Added",
+    "- Tags can now be *deleted* <script>alert(1)</script>",
+    "",
+    "[2.11.0]: https://www.scm-manager.org/download/2.11.0",
+    "[2.11.1]: https://www.scm-manager.org/download/2.11.1"
+  );
+
+  @Test
+  void shouldRenderChangelog() throws IOException {
+    String html = render(new ChangelogHtmlRenderer(), new ChangelogParser().parse(CHANGELOG));
+
+    assertThat(html)
+      .startsWith("<h1>Changelog</h1>\n<p>All notable changes to this project will be documented in this file.</p>\n")
+      .contains(
+        "<section id=\"2.11.1\">\n<h2><a href=\"https://www.scm-manager.org/download/2.11.1\">2.11.1</a> - 2020-12-07</h2>\n",
+        "<h3>Fixed</h3>\n<ul>\n<li>Initialization of <code>master</code> (<a rel=\"nofollow\" href=\"https://github.com/scm-manager/scm-manager/issues/1467\">#1467</a>)</li>\n</ul>\n</section>\n",
+        "<li>Tags can now be <em>deleted</em> &lt;script&gt;alert(1)&lt;/script&gt;</li>"
+      )
+      .doesNotContain("<p>Initialization", "<script>");
+  }
+
+  @Test
+  void shouldRenderOnlyChangedVersionsAgain(@TempDir Path directory) throws IOException {
+    Changelog changelog = new ChangelogParser().parse(CHANGELOG);
+    String html = render(new ChangelogHtmlRenderer().withCache(directory), changelog);
+    assertThat(cachedFiles(directory)).hasSize(2);
+
+    Path[] cached = cachedFiles(directory);
+    for (Path file : cached) {
+      Files.write(file, Files.readAllLines(file).get(0).concat("\n<!-- cached -->\n").getBytes());
+    }
+    assertThat(render(new ChangelogHtmlRenderer().withCache(directory), changelog))
+      .isNotEqualTo(html)
+      .contains("<!-- cached -->");
+
+    Changelog.Version version = changelog.getVersions().get(1);
+    Map<String, List<Changelog.Change>> changes = new LinkedHashMap<>(version.getChanges());
+    changes.put("fixed", singletonList(new Changelog.Change("Another bug")));
+    Changelog modified = new Changelog(
+      changelog.getHeader(),
+      asList(changelog.getVersions().get(0), new Changelog.Version(version.getNumber(), version.getDate(), changes)),
+      changelog.getLinks()
+    );
+    String modifiedHtml = render(new ChangelogHtmlRenderer().withCache(directory), modified);
+    assertThat(modifiedHtml).contains("<li>Another bug</li>");
+    assertThat(cachedFiles(directory)).hasSize(3);
+  }
+
+  @Test
+  void shouldRenderVersionWithoutLink() throws IOException {
+    Changelog changelog = new Changelog(
+      Collections.emptyList(),
+      singletonList(new Changelog.Version("1.0.0", Instant.parse("2020-12-15T00:00:00Z"), Collections.emptyMap())),
+      Collections.emptyList()
+    );
+
+    assertThat(render(new ChangelogHtmlRenderer(), changelog))
+      .isEqualTo("<section id=\"1.0.0\">\n<h2>1.0.0 - 2020-12-15</h2>\n</section>\n");
+  }
+
+  private String render(ChangelogHtmlRenderer renderer, Changelog changelog) throws IOException {
+    StringWriter writer = new StringWriter();
+    renderer.render(changelog, writer);
+    return writer.toString();
+  }
+
+  private Path[] cachedFiles(Path directory) throws IOException {
+    try (Stream<Path> files = Files.list(directory)) {
+      return files.toArray(Path[]::new);
+    }
+  }
+}
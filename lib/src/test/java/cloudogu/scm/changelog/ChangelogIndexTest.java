@@ -0,0 +1,218 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2020-present Cloudogu GmbH and Contributors
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package cloudogu.scm.changelog;
+
+import com.google.common.io.Resources;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.nio.file.attribute.FileTime;
+import java.time.Instant;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.tuple;
+
+class ChangelogIndexTest {
+
+  private static final Instant DATE = Instant.parse("2020-12-15T10:15:30.00Z");
+
+  @Test
+  void shouldIndexVersionsAndLinks(@TempDir Path folder) throws IOException {
+    Path changelogFile = copy("changelog_with_links.md", folder);
+    byte[] content = Files.readAllBytes(changelogFile);
+
+    ChangelogIndex index = ChangelogIndex.build(changelogFile);
+
+    List<Changelog.Version> versions = new ChangelogParser().parse(changelogFile).getVersions();
+    assertThat(index.getEntries()).extracting("number", "date").containsExactlyElementsOf(
+      versions.stream().map(v -> tuple(v.getNumber(), v.getDate())).collect(Collectors.toList())
+    );
+    for (ChangelogIndex.Entry entry : index.getEntries()) {
+      String section = new String(content, (int) entry.getOffset(), (int) entry.getLength(), StandardCharsets.UTF_8);
+      assertThat(section).startsWith("## [" + entry.getNumber() + "]");
+    }
+    assertThat(index.getLinkOffsets()).hasSize(2);
+    assertThat(index.getHash()).isEqualTo(AtomicFiles.hash(changelogFile));
+
+    try (FileChannel channel = FileChannel.open(changelogFile, StandardOpenOption.READ)) {
+      ChangelogLayout scanned = ChangelogLayout.scan(channel);
+      ChangelogLayout indexed = ChangelogLayout.of(index);
+      assertThat(indexed.getFirstVersionOffset()).isEqualTo(scanned.getFirstVersionOffset());
+      assertThat(indexed.getContentEnd()).isEqualTo(scanned.getContentEnd());
+      assertThat(indexed.isEndsWithLink()).isEqualTo(scanned.isEndsWithLink());
+      assertThat(indexed.getFirstVersion().getNumber()).isEqualTo(scanned.getFirstVersion().getNumber());
+    }
+  }
+
+  @Test
+  void shouldStoreIndexAndRebuildItIfStale(@TempDir Path folder) throws IOException {
+    Path changelogFile = copy("changelog.md", folder);
+
+    ChangelogIndex index = ChangelogIndex.of(changelogFile);
+    assertThat(folder.resolve(".CHANGELOG.md.idx")).exists();
+    assertThat(ChangelogIndex.of(changelogFile).getHash()).isEqualTo(index.getHash());
+
+    Files.write(changelogFile, "## 0.1.0 - 2020-01-01\n".getBytes(StandardCharsets.UTF_8), StandardOpenOption.APPEND);
+
+    ChangelogIndex rebuilt = ChangelogIndex.of(changelogFile);
+    assertThat(rebuilt.getHash()).isEqualTo(AtomicFiles.hash(changelogFile));
+    assertThat(rebuilt.getEntries()).hasSize(index.getEntries().size() + 1);
+  }
+
+  @Test
+  void shouldRebuildCorruptIndex(@TempDir Path folder) throws IOException {
+    Path changelogFile = copy("changelog.md", folder);
+    Files.write(folder.resolve(".CHANGELOG.md.idx"), new byte[]{1, 2, 3});
+
+    ChangelogIndex index = ChangelogIndex.of(changelogFile);
+
+    assertThat(index.getEntries()).extracting("number").containsExactly("2.11.1", "2.11.0");
+  }
+
+  @Test
+  void shouldParseLazilyWithIndex(@TempDir Path folder) throws IOException {
+    Path changelogFile = copy("changelog_with_links.md", folder);
+    Changelog expected = new ChangelogParser().parse(changelogFile);
+    // the index is built by the first run and used by the second one
+    new ChangelogParser().withIndex(true).parseLazily(changelogFile);
+
+    Changelog changelog = new ChangelogParser().withIndex(true).parseLazily(changelogFile);
+
+    assertThat(changelog.getHeader()).isEqualTo(expected.getHeader());
+    assertThat(changelog.getVersions()).extracting("number", "date").containsExactlyElementsOf(
+      expected.getVersions().stream().map(v -> tuple(v.getNumber(), v.getDate())).collect(Collectors.toList())
+    );
+    assertThat(changelog.getVersions().get(1).getChanges().get("Fixed")).extracting("value").containsExactlyElementsOf(
+      expected.getVersions().get(1).getChanges().get("Fixed").stream().map(Changelog.Change::getValue).collect(Collectors.toList())
+    );
+    assertThat(changelog.getLinks()).extracting("version", "link").containsExactlyElementsOf(
+      expected.getLinks().stream().map(l -> tuple(l.getVersion(), l.getLink())).collect(Collectors.toList())
+    );
+  }
+
+  @Test
+  void shouldSpliceWithIndex(@TempDir Path folder) throws IOException {
+    Path withIndex = copy("changelog_with_links.md", folder.resolve("indexed"));
+    Path withoutIndex = copy("changelog_with_links.md", folder.resolve("scanned"));
+    ChangelogIndex.of(withIndex);
+
+    splice(withIndex, true);
+    splice(withoutIndex, false);
+
+    assertThat(Files.readAllLines(withIndex)).isEqualTo(Files.readAllLines(withoutIndex));
+    ChangelogIndex index = ChangelogIndex.of(withIndex);
+    assertThat(index.getHash()).isEqualTo(AtomicFiles.hash(withIndex));
+    assertThat(index.getEntries().get(0).getNumber()).isEqualTo("2.12.0");
+  }
+
+  @Test
+  void shouldDeriveIndexOfSplicedChangelog(@TempDir Path folder) throws IOException {
+    for (String resource : new String[]{"changelog.md", "changelog_with_links.md"}) {
+      for (boolean links : new boolean[]{true, false}) {
+        Path changelogFile = copy(resource, folder.resolve(resource + "-" + links));
+        ChangelogIndex.of(changelogFile);
+
+        ChangelogUpdater updater = new ChangelogUpdater(changelogFile, resource("multiple"), DATE)
+          .withVersion("2.12.0")
+          .withSplice(true)
+          .withIndex(true);
+        if (links) {
+          updater.withVersionUrls("https://www.scm-manager.org/download/{0}");
+        }
+        updater.update();
+
+        // the index was written by the splice and is not rebuilt
+        ChangelogIndex stored = ChangelogIndex.load(ChangelogIndex.indexFile(changelogFile));
+        assertThat(stored.isValidFor(Files.readAttributes(changelogFile, BasicFileAttributes.class))).isTrue();
+        assertSameIndex(stored, ChangelogIndex.build(changelogFile));
+      }
+    }
+  }
+
+  @Test
+  void shouldNotSpliceWithIndexOfModifiedContent(@TempDir Path folder) throws IOException {
+    Path changelogFile = copy("changelog_with_links.md", folder.resolve("indexed"));
+    Path expected = copy("changelog_with_links.md", folder.resolve("scanned"));
+    ChangelogIndex.of(changelogFile);
+
+    // same size and modification time, but the first version heading moved by one line
+    FileTime modified = Files.getLastModifiedTime(changelogFile);
+    String content = new String(Files.readAllBytes(changelogFile), StandardCharsets.UTF_8);
+    content = content.replaceFirst("\n\n## ", "\n## ") + "\n";
+    Files.write(changelogFile, content.getBytes(StandardCharsets.UTF_8));
+    Files.write(expected, content.getBytes(StandardCharsets.UTF_8));
+    Files.setLastModifiedTime(changelogFile, modified);
+
+    splice(changelogFile, true);
+    splice(expected, false);
+
+    assertThat(Files.readAllLines(changelogFile)).isEqualTo(Files.readAllLines(expected));
+  }
+
+  private static void assertSameIndex(ChangelogIndex actual, ChangelogIndex expected) {
+    assertThat(actual.getSize()).isEqualTo(expected.getSize());
+    assertThat(actual.getHash()).isEqualTo(expected.getHash());
+    assertThat(actual.getFirstVersionOffset()).isEqualTo(expected.getFirstVersionOffset());
+    assertThat(actual.getContentEnd()).isEqualTo(expected.getContentEnd());
+    assertThat(actual.isEndsWithLink()).isEqualTo(expected.isEndsWithLink());
+    assertThat(actual.getLinkOffsets()).containsExactly(expected.getLinkOffsets());
+    assertThat(actual.getEntries())
+      .extracting(
+        ChangelogIndex.Entry::getOffset, ChangelogIndex.Entry::getLength, ChangelogIndex.Entry::getNumber,
+        ChangelogIndex.Entry::getDate, ChangelogIndex.Entry::getHash
+      )
+      .containsExactlyElementsOf(expected.getEntries().stream()
+        .map(e -> tuple(e.getOffset(), e.getLength(), e.getNumber(), e.getDate(), e.getHash()))
+        .collect(Collectors.toList()));
+  }
+
+  private void splice(Path changelogFile, boolean index) throws IOException {
+    new ChangelogUpdater(changelogFile, resource("multiple"), DATE)
+      .withVersion("2.12.0")
+      .withVersionUrls("https://www.scm-manager.org/download/{0}")
+      .withSplice(true)
+      .withIndex(index)
+      .update();
+  }
+
+  private static Path copy(String resource, Path folder) throws IOException {
+    Files.createDirectories(folder);
+    return Files.copy(resource(resource), folder.resolve("CHANGELOG.md"));
+  }
+
+  private static Path resource(String path) {
+    return Paths.get(Resources.getResource(path).getFile());
+  }
+}
@@ -0,0 +1,236 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2020-present Cloudogu GmbH and Contributors
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package cloudogu.scm.changelog;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ChangelogMergerTest {
+
+  private final ChangelogParser parser = new ChangelogParser();
+
+  private final Changelog base = parser.parse(Arrays.asList(
+    "# Changelog",
+    "",
+    "## [1.0.0] - 2020-12-07",
+    "### Added",
+    "- Feature",
+    "### Fixed",
+    "- Bug",
+    "- Other bug",
+    "",
+    "[1.0.0]: https://example.com/1.0.0"
+  ));
+
+  @Test
+  void shouldMergeVersionsAndChangesOfBothSides() {
+    Changelog ours = parser.parse(Arrays.asList(
+      "# Changelog",
+      "",
+      "## [1.1.0] - 2020-12-10",
+      "### Added",
+      "- Our feature",
+      "",
+      "## [1.0.0] - 2020-12-07",
+      "### Added",
+      "- Feature",
+      "### Fixed",
+      "- Bug",
+      "- Other bug",
+      "- Late fix",
+      "",
+      "[1.1.0]: https://example.com/1.1.0",
+      "[1.0.0]: https://example.com/1.0.0"
+    ));
+    Changelog theirs = parser.parse(Arrays.asList(
+      "# Changelog",
+      "",
+      "## 1.0.1 - 2020-12-08",
+      "### fixed",
+      "- Their fix",
+      "",
+      "## [1.0.0] - 2020-12-07",
+      "### Added",
+      "- Feature",
+      "### Fixed",
+      "- Bug",
+      "### Changed",
+      "- Something",
+      "",
+      "[1.0.0]: https://example.com/1.0.0"
+    ));
+
+    ChangelogMerger.Result result = ChangelogMerger.merge(base, ours, theirs);
+
+    assertThat(result.hasConflicts()).isFalse();
+    assertThat(result.getContent()).isEqualTo(String.join(System.lineSeparator(),
+      "# Changelog",
+      "",
+      "## [1.1.0] - 2020-12-10",
+      "### Added",
+      "- Our feature",
+      "",
+      "## 1.0.1 - 2020-12-08",
+      "### Fixed",
+      "- Their fix",
+      "",
+      "## [1.0.0] - 2020-12-07",
+      "### Added",
+      "- Feature",
+      "",
+      "### Fixed",
+      "- Bug",
+      "- Late fix",
+      "",
+      "### Changed",
+      "- Something",
+      "",
+      "[1.1.0]: https://example.com/1.1.0",
+      "[1.0.0]: https://example.com/1.0.0",
+      ""
+    ));
+    assertThat(result.getChangelog().getVersions())
+      .extracting(Changelog.Version::getNumber)
+      .containsExactly("1.1.0", "1.0.1", "1.0.0");
+  }
+
+  @Test
+  void shouldNotConflictOnSameChange() {
+    Changelog ours = parser.parse(Arrays.asList(
+      "# Changelog",
+      "",
+      "## [1.0.0] - 2020-12-07",
+      "### Added",
+      "- Feature",
+      "- Both",
+      "### Fixed",
+      "- Fixed bug",
+      "- Other bug",
+      "",
+      "[1.0.0]: https://example.com/1.0.0"
+    ));
+
+    ChangelogMerger.Result result = ChangelogMerger.merge(base, ours, ours);
+
+    assertThat(result.hasConflicts()).isFalse();
+    assertThat(result.getChangelog().getVersions().get(0).getChanges().get("Added"))
+      .extracting(Changelog.Change::getValue)
+      .containsExactly("Feature", "Both");
+    assertThat(result.getChangelog().getVersions().get(0).getChanges().get("Fixed"))
+      .extracting(Changelog.Change::getValue)
+      .containsExactly("Fixed bug", "Other bug");
+  }
+
+  @Test
+  void shouldMarkEntryWhichWasEditedDifferently() {
+    Changelog ours = parser.parse(Arrays.asList(
+      "# Changelog",
+      "",
+      "## [1.0.0] - 2020-12-07",
+      "### Added",
+      "- Feature",
+      "### Fixed",
+      "- Bug in parser",
+      "- Other bug",
+      "",
+      "[1.0.0]: https://example.com/1.0.0"
+    ));
+    Changelog theirs = parser.parse(Arrays.asList(
+      "# Changelog",
+      "",
+      "## [1.0.0] - 2020-12-07",
+      "### Added",
+      "- Feature",
+      "### Fixed",
+      "- Bug in renderer",
+      "- Other bug",
+      "",
+      "[1.0.0]: https://example.com/1.0.0"
+    ));
+
+    ChangelogMerger.Result result = ChangelogMerger.merge(base, ours, theirs);
+
+    assertThat(result.getConflicts()).containsExactly("version 1.0.0, Fixed: entry was changed differently");
+    assertThat(result.getContent()).contains(String.join(System.lineSeparator(),
+      "### Fixed",
+      "<<<<<<< ours",
+      "- Bug in parser",
+      "=======",
+      "- Bug in renderer",
+      ">>>>>>> theirs",
+      "- Other bug"
+    ));
+    assertThat(result.getChangelog().getVersions().get(0).getChanges().get("Fixed"))
+      .extracting(Changelog.Change::getValue)
+      .containsExactly("Bug in parser", "Other bug");
+  }
+
+  @Test
+  void shouldRemoveVersionWhichIsUnchangedOnTheOtherSide() {
+    Changelog ours = parser.parse(Arrays.asList(
+      "# Changelog",
+      ""
+    ));
+
+    ChangelogMerger.Result result = ChangelogMerger.merge(base, ours, base);
+
+    assertThat(result.hasConflicts()).isFalse();
+    assertThat(result.getChangelog().getVersions()).isEmpty();
+    assertThat(result.getContent()).doesNotContain("1.0.0");
+  }
+
+  @Test
+  void shouldConflictIfRemovedVersionWasModified() {
+    Changelog ours = parser.parse(Arrays.asList(
+      "# Changelog",
+      ""
+    ));
+    Changelog theirs = parser.parse(Arrays.asList(
+      "# Changelog",
+      "",
+      "## [1.0.0] - 2020-12-09",
+      "### Added",
+      "- Feature",
+      "### Fixed",
+      "- Bug",
+      "- Other bug",
+      "",
+      "[1.0.0]: https://example.com/1.0.0"
+    ));
+
+    ChangelogMerger.Result result = ChangelogMerger.merge(base, ours, theirs);
+
+    assertThat(result.getConflicts()).containsExactly("version 1.0.0 was modified by theirs and removed by ours");
+    assertThat(result.getContent()).contains(String.join(System.lineSeparator(),
+      "<<<<<<< ours",
+      "=======",
+      "## 1.0.0 - 2020-12-09"
+    ));
+    assertThat(result.getChangelog().getVersions()).isEmpty();
+  }
+}
@@ -26,12 +26,22 @@ package cloudogu.scm.changelog;
 
 import org.assertj.core.api.Assertions;
 import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
 
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.StringReader;
+import java.nio.channels.Channels;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.util.List;
 import java.util.Map;
 
 import static java.util.Arrays.asList;
+import static java.util.stream.Collectors.toList;
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.tuple;
 
 class ChangelogParserTest {
 
@@ -196,4 +206,91 @@ class ChangelogParserTest {
     assertThat(links.get(0).getVersion()).isEqualTo("2.11.0");
     assertThat(links.get(0).getLink()).isEqualTo("https://www.scm-manager.org/download/2.11.0");
   }
+
+  @Test
+  void shouldParseFromReader() throws IOException {
+    Changelog changelog = new ChangelogParser().parse(new StringReader(String.join("\r\n", CHANGELOG_WITH_LINKS)));
+
+    assertThat(changelog.getHeader()).hasSize(6);
+    assertThat(changelog.getVersions()).extracting(Changelog.Version::getNumber).containsExactly("2.11.1-rc1", "2.11.0");
+    assertThat(changelog.getVersions().get(1).getChanges().get("Added")).hasSize(8);
+    assertThat(changelog.getLinks()).extracting(Changelog.VersionLink::getVersion).containsExactly("2.11.0", "2.11.1-rc1");
+  }
+
+  @Test
+  void shouldParseFromChannel() throws IOException {
+    byte[] content = String.join("\n", CHANGELOG).getBytes(StandardCharsets.UTF_8);
+
+    Changelog changelog = new ChangelogParser().parse(Channels.newChannel(new ByteArrayInputStream(content)));
+
+    assertThat(changelog.getVersions()).extracting(Changelog.Version::getNumber).containsExactly("2.11.1-rc1-2", "2.11.0");
+    assertThat(changelog.getVersions().get(1).getChanges()).containsKeys("Added", "Changed", "Fixed");
+  }
+
+  @Test
+  void shouldIgnoreLinesWhichOnlyLookLikeVersions() {
+    Changelog changelog = new ChangelogParser().parse(asList(
+      "## 2.0.0 - 2020-12-07",
+      "## Unreleased",
+      "## 2.0.1 - 2020-12-0",
+      "#### Added",
+      "### Added",
+      "-Not a change",
+      "- A change",
+      "[2.0.0] https://scm-manager.org",
+      "[2.0.0-rc1]: https://scm-manager.org/[2.0.0]: download"
+    ));
+
+    assertThat(changelog.getVersions()).hasSize(1);
+    assertThat(changelog.getVersions().get(0).getChanges().get("Added"))
+      .extracting(Changelog.Change::getValue)
+      .containsExactly("A change");
+    assertThat(changelog.getLinks()).hasSize(1);
+    assertThat(changelog.getLinks().get(0).getVersion()).isEqualTo("2.0.0-rc1]: https://scm-manager.org/[2.0.0");
+    assertThat(changelog.getLinks().get(0).getLink()).isEqualTo("download");
+  }
+
+  @Test
+  void shouldParseLazily(@TempDir Path directory) throws IOException {
+    Path file = directory.resolve("CHANGELOG.md");
+    Files.write(file, CHANGELOG_WITH_LINKS, StandardCharsets.UTF_8);
+
+    Changelog eager = new ChangelogParser().parse(file);
+    Changelog lazy = new ChangelogParser().parseLazily(file);
+
+    assertThat(lazy.getHeader()).isEqualTo(eager.getHeader());
+    assertThat(lazy.getVersions()).hasSameSizeAs(eager.getVersions());
+    for (int i = 0; i < eager.getVersions().size(); i++) {
+      Changelog.Version expected = eager.getVersions().get(i);
+      Changelog.Version actual = lazy.getVersions().get(i);
+      assertThat(actual.getNumber()).isEqualTo(expected.getNumber());
+      assertThat(actual.getDate()).isEqualTo(expected.getDate());
+      assertThat(actual.getChanges()).containsOnlyKeys(expected.getChanges().keySet().toArray(new String[0]));
+      expected.getChanges().forEach(
+        (type, changes) -> assertThat(actual.getChanges().get(type))
+          .extracting(Changelog.Change::getValue)
+          .containsExactlyElementsOf(changes.stream().map(Changelog.Change::getValue).collect(toList()))
+      );
+    }
+    assertThat(lazy.getLinks())
+      .extracting(Changelog.VersionLink::getVersion, Changelog.VersionLink::getLink)
+      .containsExactly(
+        tuple("2.11.0", "https://www.scm-manager.org/download/2.11.0"),
+        tuple("2.11.1-rc1", "https://www.scm-manager.org/download/2.11.1")
+      );
+  }
+
+  @Test
+  void shouldReadLatestVersionLazily(@TempDir Path directory) throws IOException {
+    Path file = directory.resolve("CHANGELOG.md");
+    Files.write(file, CHANGELOG_WITH_EMPTY_VERSION, StandardCharsets.UTF_8);
+
+    Changelog changelog = new ChangelogParser().parseLazily(file);
+
+    assertThat(changelog.getVersions()).isNotEmpty();
+    assertThat(changelog.getVersions().get(0).getNumber()).isEqualTo("2.11.2");
+    assertThat(changelog.getVersions().get(1).getChanges()).isEmpty();
+    assertThat(changelog.getVersions().get(2).getChanges().get("Added")).hasSize(1);
+    assertThat(changelog.getVersions()).hasSize(3);
+  }
 }
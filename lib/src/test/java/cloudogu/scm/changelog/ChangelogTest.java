@@ -0,0 +1,117 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2020-present Cloudogu GmbH and Contributors
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package cloudogu.scm.changelog;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+import static java.util.Arrays.asList;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class ChangelogTest {
+
+  private static final List<String> CHANGELOG = asList(
+    "# Changelog",
+    "",
+    "## 2.17.4 - 2021-04-01",
+    "### Fixed",
+    "- Latest fix",
+    "## 3.0.0-rc1 - 2021-03-20",
+    "### Changed",
+    "- Preview of the next major",
+    "## 2.17.0 - 2021-03-01",
+    "## 2.10 - 2021-01-10",
+    "## 2.3.0 - 2020-12-04",
+    "### Added",
+    "- Old feature",
+    "## 2.2.1 - 2020-11-20",
+    "## 2.3.0 - 2020-11-01",
+    "## 1..0 - 2020-10-01"
+  );
+
+  private final Changelog changelog = new ChangelogParser().parse(CHANGELOG);
+
+  @Test
+  void shouldFindVersion() {
+    assertThat(changelog.findVersion("2.17.0")).get().extracting(Changelog.Version::getNumber).isEqualTo("2.17.0");
+    assertThat(changelog.findVersion("2.10.0")).get().extracting(Changelog.Version::getNumber).isEqualTo("2.10");
+    assertThat(changelog.findVersion("2.5.0")).isEmpty();
+  }
+
+  @Test
+  void shouldFindFirstOfDuplicateVersions() {
+    assertThat(changelog.findVersion("2.3.0").get().getChanges()).containsOnlyKeys("Added");
+  }
+
+  @Test
+  void shouldReturnLatestSemanticVersion() {
+    assertThat(changelog.getLatestVersion()).get().extracting(Changelog.Version::getNumber).isEqualTo("3.0.0-rc1");
+  }
+
+  @Test
+  void shouldReturnVersionsBetween() {
+    assertThat(changelog.getVersionsBetween("2.3.0", "2.17.4"))
+      .extracting(Changelog.Version::getNumber)
+      .containsExactly("2.17.4", "2.17.0", "2.10");
+    assertThat(changelog.getVersionsBetween("2.17.4", "2.3.0")).isEmpty();
+  }
+
+  @Test
+  void shouldReturnVersionsAfter() {
+    assertThat(changelog.getVersionsAfter("2.17.1"))
+      .extracting(Changelog.Version::getNumber)
+      .containsExactly("3.0.0-rc1", "2.17.4");
+    assertThat(changelog.getVersionsAfter("0.1"))
+      .extracting(Changelog.Version::getNumber)
+      .containsExactly("3.0.0-rc1", "2.17.4", "2.17.0", "2.10", "2.3.0", "2.2.1");
+  }
+
+  @Test
+  void shouldRejectInvalidVersion() {
+    assertThatThrownBy(() -> changelog.findVersion("latest"))
+      .isInstanceOf(IllegalArgumentException.class)
+      .hasMessageContaining("latest");
+  }
+
+  @Test
+  void shouldQueryLazyChangelog(@TempDir Path directory) throws IOException {
+    Path file = directory.resolve("CHANGELOG.md");
+    Files.write(file, CHANGELOG, StandardCharsets.UTF_8);
+
+    Changelog lazy = new ChangelogParser().parseLazily(file);
+
+    assertThat(lazy.getVersionsBetween("2.10.0", "2.17.4"))
+      .extracting(Changelog.Version::getNumber)
+      .containsExactly("2.17.4", "2.17.0");
+    assertThat(lazy.findVersion("3.0.0-rc1").get().getChanges().get("Changed")).hasSize(1);
+  }
+}
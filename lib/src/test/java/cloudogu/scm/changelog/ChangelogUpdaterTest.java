@@ -30,13 +30,23 @@ import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.io.TempDir;
 
 import java.io.IOException;
+import java.io.StringWriter;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.time.Instant;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.assertj.core.api.Assertions.tuple;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
 
 class ChangelogUpdaterTest {
 
@@ -114,6 +124,251 @@ class ChangelogUpdaterTest {
       );
   }
 
+  @Test
+  void shouldSpliceNewVersionIntoChangelog(@TempDir Path folder) throws IOException {
+    prepare(folder, "multiple", "changelog_with_links.md");
+    String original = new String(Files.readAllBytes(changelogFile), StandardCharsets.UTF_8);
+    updater
+      .withVersionUrls("https://www.scm-manager.org/download/{0}")
+      .withSplice(true)
+      .update();
+
+    String changelog = new String(Files.readAllBytes(changelogFile), StandardCharsets.UTF_8);
+    int firstVersion = original.indexOf("## [2.11.1]");
+    assertThat(changelog)
+      .startsWith(original.substring(0, firstVersion) + "## [2.12.0] - 2020-12-15")
+      .contains(original.substring(firstVersion).trim())
+      .endsWith("[2.11.1]: https://www.scm-manager.org/download/2.11.1" + System.lineSeparator() + "[2.12.0]: https://www.scm-manager.org/download/2.12.0" + System.lineSeparator());
+    assertThat(Files.readAllLines(changelogFile))
+      .containsAll(lines("expected_added.md"))
+      .containsAll(lines("expected_changed.md"))
+      .containsAll(lines("expected_fixed.md"));
+  }
+
+  @Test
+  void shouldSpliceWithoutLinks(@TempDir Path folder) throws IOException {
+    prepare(folder, "multiple", "changelog.md");
+    updater.withSplice(true).update();
+
+    List<String> changelog = Files.readAllLines(changelogFile);
+    assertThat(changelog)
+      .containsAll(source)
+      .containsSubsequence("## 2.12.0 - 2020-12-15", "## 2.11.1 - 2020-12-07", "## 2.11.0 - 2020-12-04")
+      .containsSubsequence("### Added", "### Fixed", "### Changed");
+  }
+
+  @Test
+  void shouldSpliceIntoChangelogWithoutVersions(@TempDir Path folder) throws IOException {
+    changelogFile = folder.resolve("CHANGELOG.md");
+    Files.write(changelogFile, "# Changelog".getBytes(StandardCharsets.UTF_8));
+
+    new ChangelogUpdater(changelogFile, resource("mixedcase"), Instant.parse("2020-12-15T10:15:30.00Z"))
+      .withSplice(true)
+      .update();
+
+    assertThat(Files.readAllLines(changelogFile))
+      .startsWith("# Changelog", "## 1.0.0 - 2020-12-15");
+  }
+
+  @Test
+  void shouldReportPhases(@TempDir Path folder) throws IOException {
+    prepare(folder, "multiple", "changelog.md");
+    ChangelogUpdateReport report = new ChangelogUpdateReport(changelogFile);
+    updater.withListener(report).update();
+
+    assertThat(report.getPhases())
+      .extracting(ChangelogPhaseMetrics::getPhase, ChangelogPhaseMetrics::getItems)
+      .containsExactly(
+        tuple(ChangelogUpdatePhase.SCAN_ENTRIES, 3L),
+        tuple(ChangelogUpdatePhase.PARSE_ENTRIES, 3L),
+        tuple(ChangelogUpdatePhase.PARSE_CHANGELOG, (long) source.size()),
+        tuple(ChangelogUpdatePhase.COMPUTE_VERSION, 6L),
+        tuple(ChangelogUpdatePhase.WRITE_CHANGELOG, 3L)
+      );
+    assertThat(report.getPhases().get(3).getBytes()).isZero();
+    assertThat(report.getPhases().get(4).getBytes()).isEqualTo(Files.size(changelogFile));
+
+    StringWriter json = new StringWriter();
+    report.writeJson(json);
+    assertThat(json.toString())
+      .startsWith("{\"changelog\":\"")
+      .contains("{\"phase\":\"parse_changelog\",\"durationMillis\":")
+      .endsWith(",\"items\":3,\"bytes\":" + Files.size(changelogFile) + "}]}");
+  }
+
+  @Test
+  void shouldReportComputedVersion(@TempDir Path folder) throws IOException {
+    changelogFile = folder.resolve("CHANGELOG.md");
+    Files.write(changelogFile, "# Changelog\n\n## 1.0.0 - 2020-12-07\n".getBytes(StandardCharsets.UTF_8));
+    List<String> versions = new ArrayList<>();
+
+    new ChangelogUpdater(changelogFile, resource("mixedcase"), Instant.parse("2020-12-15T10:15:30.00Z"))
+      .withListener(new ChangelogUpdateListener() {
+        @Override
+        public void phaseCompleted(ChangelogPhaseMetrics metrics) {
+        }
+
+        @Override
+        public void versionComputed(String number) {
+          versions.add(number);
+        }
+      })
+      .update();
+
+    assertThat(versions).containsExactly("1.1.0");
+  }
+
+  @Test
+  void shouldReportPhasesOfSplice(@TempDir Path folder) throws IOException {
+    prepare(folder, "multiple", "changelog.md");
+    long size = Files.size(changelogFile);
+    ChangelogUpdateReport report = new ChangelogUpdateReport(changelogFile);
+    updater.withSplice(true).withListener(report).update();
+
+    assertThat(report.getPhases())
+      .extracting(ChangelogPhaseMetrics::getPhase, ChangelogPhaseMetrics::getItems, ChangelogPhaseMetrics::getBytes)
+      .contains(
+        tuple(ChangelogUpdatePhase.PARSE_ENTRIES, 3L, Files.walk(resource("multiple")).filter(Files::isRegularFile).mapToLong(this::size).sum()),
+        tuple(ChangelogUpdatePhase.WRITE_CHANGELOG, 1L, Files.size(changelogFile))
+      );
+    assertThat(report.getPhases().get(2).getBytes()).isEqualTo(size);
+  }
+
+  @Test
+  void shouldNotLoseVersionsOfConcurrentUpdates(@TempDir Path folder) throws Exception {
+    changelogFile = folder.resolve("CHANGELOG.md");
+    Files.write(changelogFile, "# Changelog\n\n## 1.0.0 - 2020-12-07\n".getBytes(StandardCharsets.UTF_8));
+
+    ExecutorService executor = Executors.newFixedThreadPool(4);
+    try {
+      List<Future<?>> updates = new ArrayList<>();
+      for (int i = 0; i < 8; i++) {
+        boolean splice = i % 2 == 0;
+        updates.add(executor.submit(() -> {
+          new ChangelogUpdater(changelogFile, resource("mixedcase"), Instant.parse("2020-12-15T10:15:30.00Z"))
+            .withSplice(splice)
+            .withLock(true)
+            .update();
+          return null;
+        }));
+      }
+      for (Future<?> update : updates) {
+        update.get();
+      }
+    } finally {
+      executor.shutdown();
+    }
+
+    assertThat(Files.readAllLines(changelogFile))
+      .containsSubsequence(
+        "## 1.8.0 - 2020-12-15", "## 1.7.0 - 2020-12-15", "## 1.6.0 - 2020-12-15", "## 1.5.0 - 2020-12-15",
+        "## 1.4.0 - 2020-12-15", "## 1.3.0 - 2020-12-15", "## 1.2.0 - 2020-12-15", "## 1.1.0 - 2020-12-15",
+        "## 1.0.0 - 2020-12-07"
+      );
+  }
+
+  @Test
+  void shouldRepeatUpdateOfConcurrentlyModifiedChangelogWithoutLock(@TempDir Path folder) throws IOException {
+    changelogFile = folder.resolve("CHANGELOG.md");
+    Files.write(changelogFile, "# Changelog\n\n## 1.0.0 - 2020-12-07\n".getBytes(StandardCharsets.UTF_8));
+    List<ChangelogUpdatePhase> phases = new ArrayList<>();
+
+    new ChangelogUpdater(changelogFile, resource("mixedcase"), Instant.parse("2020-12-15T10:15:30.00Z"))
+      .withListener(metrics -> {
+        phases.add(metrics.getPhase());
+        if (metrics.getPhase() == ChangelogUpdatePhase.PARSE_CHANGELOG && phases.indexOf(metrics.getPhase()) == phases.size() - 1) {
+          // another update replaces the changelog after it was read
+          write(changelogFile, "# Changelog\n\n## 1.1.0 - 2020-12-10\n\n## 1.0.0 - 2020-12-07\n");
+        }
+      })
+      .update();
+
+    assertThat(phases).containsSubsequence(
+      ChangelogUpdatePhase.PARSE_CHANGELOG, ChangelogUpdatePhase.PARSE_CHANGELOG, ChangelogUpdatePhase.WRITE_CHANGELOG
+    );
+    assertThat(Files.readAllLines(changelogFile))
+      .containsSubsequence("## 1.2.0 - 2020-12-15", "## 1.1.0 - 2020-12-10", "## 1.0.0 - 2020-12-07");
+  }
+
+  @Test
+  void shouldNotCreateLockFileWithoutLock(@TempDir Path folder) throws IOException {
+    prepare(folder, "multiple", "changelog.md");
+
+    updater.update();
+
+    assertThat(folder.resolve(".CHANGELOG.md.lock")).doesNotExist();
+    assertThat(ChangelogLock.registeredLocks()).isZero();
+  }
+
+  @Test
+  void shouldReleaseLockOfLockedUpdate(@TempDir Path folder) throws IOException {
+    prepare(folder, "multiple", "changelog.md");
+
+    updater.withLock(true).update();
+
+    assertThat(folder.resolve(".CHANGELOG.md.lock")).exists();
+    assertThat(ChangelogLock.registeredLocks()).isZero();
+  }
+
+  @Test
+  void shouldFailIfChangelogIsModifiedOnEachRetry(@TempDir Path folder) throws IOException {
+    changelogFile = folder.resolve("CHANGELOG.md");
+    Files.write(changelogFile, "# Changelog\n\n## 1.0.0 - 2020-12-07\n".getBytes(StandardCharsets.UTF_8));
+    ChangelogUpdater concurrentlyModified = new ChangelogUpdater(changelogFile, resource("mixedcase"), Instant.parse("2020-12-15T10:15:30.00Z"))
+      .withRetries(2)
+      .withListener(metrics -> {
+        if (metrics.getPhase() == ChangelogUpdatePhase.PARSE_CHANGELOG) {
+          write(changelogFile, "# Changelog " + System.nanoTime() + "\n\n## 1.0.0 - 2020-12-07\n");
+        }
+      });
+
+    assertThatThrownBy(concurrentlyModified::update)
+      .isInstanceOf(ConcurrentChangelogModificationException.class);
+    assertThat(Files.readAllLines(changelogFile)).doesNotContain("## 1.1.0 - 2020-12-15");
+  }
+
+  @Test
+  void shouldNotReplaceChangelogWhichWasModified(@TempDir Path folder) throws IOException {
+    changelogFile = folder.resolve("CHANGELOG.md");
+    Files.write(changelogFile, "# Changelog\n".getBytes(StandardCharsets.UTF_8));
+    Path tempFile = AtomicFiles.createTempFile(changelogFile);
+    Files.write(tempFile, "# Changed\n".getBytes(StandardCharsets.UTF_8));
+
+    assertThatThrownBy(() -> AtomicFiles.replace(tempFile, changelogFile, "outdated"))
+      .isInstanceOf(ConcurrentChangelogModificationException.class);
+    assertThat(Files.readAllLines(changelogFile)).containsExactly("# Changelog");
+
+    AtomicFiles.replace(tempFile, changelogFile, AtomicFiles.hash(changelogFile));
+    assertThat(Files.readAllLines(changelogFile)).containsExactly("# Changed");
+    assertThat(tempFile).doesNotExist();
+  }
+
+  @Test
+  void shouldFailIfTempFileCouldNotBeWritten() {
+    Path full = Paths.get("/dev/full");
+    assumeTrue(Files.isWritable(full), "no device which is always full");
+
+    assertThatThrownBy(() -> AtomicFiles.write(full, out -> out.println("# Changelog")))
+      .isInstanceOf(IOException.class)
+      .hasMessageContaining("failed to write");
+  }
+
+  private static void write(Path file, String content) {
+    try {
+      Files.write(file, content.getBytes(StandardCharsets.UTF_8));
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+  }
+
+  private long size(Path file) {
+    try {
+      return Files.size(file);
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+  }
+
   @SuppressWarnings("UnstableApiUsage")
   private Path resource(String path) {
     return Paths.get(Resources.getResource(path).getFile());
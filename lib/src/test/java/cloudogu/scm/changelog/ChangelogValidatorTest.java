@@ -0,0 +1,145 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2020-present Cloudogu GmbH and Contributors
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package cloudogu.scm.changelog;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.assertj.core.api.Assertions.tuple;
+
+class ChangelogValidatorTest {
+
+  @Test
+  void shouldAcceptValidFiles(@TempDir Path temp) throws IOException {
+    Path directory = temp.resolve("changelog");
+    write(directory.resolve("a.yaml"), "- type: added\n  description: Awesome feature\n");
+    write(directory.resolve("b.yaml"), "- type: Fixed\n  description: |\n    Multi line\n    description\n");
+    Path changelog = write(temp.resolve("CHANGELOG.md"), "# Changelog\n\n## [Unreleased]\n\n## [1.0.0] - 2020-12-01\n### Added\n- Feature\n\n[1.0.0]: https://example.com/1.0.0\n");
+
+    assertThat(new ChangelogValidator().validate(changelog, directory)).isEmpty();
+  }
+
+  @Test
+  void shouldSkipMissingFiles(@TempDir Path temp) {
+    assertThat(new ChangelogValidator().validate(temp.resolve("CHANGELOG.md"), temp.resolve("changelog"))).isEmpty();
+  }
+
+  @Test
+  void shouldReportAllErrorsOfEntryFiles(@TempDir Path directory) throws IOException {
+    write(directory.resolve("a.yaml"), "- type: added\n  description: Fine\n- type: ''\n  description: Empty type\n");
+    write(directory.resolve("b.yaml"), "- type: added\n\n- description: Without type\n- type: unknown\n  description: 1.0\n");
+    write(directory.resolve("c.yaml"), "- type: added\n  description: [unclosed\n");
+    write(directory.resolve("d.yaml"), "");
+    write(directory.resolve("e.yaml"), "type: added\ndescription: Not a list\n");
+
+    List<ChangelogValidationError> errors = new ChangelogValidator(2).validate(directory.resolve("CHANGELOG.md"), directory);
+
+    assertThat(errors)
+      .extracting(e -> directory.relativize(e.getFile()).toString(), ChangelogValidationError::getLine, ChangelogValidationError::getMessage)
+      .containsExactly(
+        tuple("a.yaml", 3, "empty type"),
+        tuple("b.yaml", 1, "change without description"),
+        tuple("b.yaml", 3, "change without type"),
+        tuple("b.yaml", 4, "unknown type 'unknown', expected one of added, changed, deprecated, removed, fixed, security"),
+        tuple("b.yaml", 5, "description is not a text, quote it to use it as text"),
+        tuple("c.yaml", 3, "invalid yaml, expected ',' or ']', but got <stream end>"),
+        tuple("d.yaml", 1, "file contains no changes"),
+        tuple("e.yaml", 1, "expected a list of changes")
+      );
+    assertThat(errors.get(0)).hasToString(directory.resolve("a.yaml") + ":3: empty type");
+  }
+
+  @Test
+  void shouldReportErrorsOfChangelog(@TempDir Path temp) throws IOException {
+    Path changelog = write(temp.resolve("CHANGELOG.md"), String.join("\n",
+      "# Changelog",
+      "## [2.0.0] - 2020-13-01",
+      "- Without type",
+      "### Fixed",
+      "- Fine",
+      "## 1.1.0",
+      "## [1.0.0] - 2020-01-01",
+      "### Added",
+      "## [1.0.0] - 2019-12-01",
+      ""
+    ));
+
+    List<ChangelogValidationError> errors = new ChangelogValidator().validate(changelog, temp.resolve("changelog"));
+
+    assertThat(errors)
+      .extracting(ChangelogValidationError::getLine, ChangelogValidationError::getMessage)
+      .containsExactly(
+        tuple(2, "invalid date in version heading"),
+        tuple(3, "change without type heading"),
+        tuple(6, "invalid version heading, expected '## <version> - <yyyy-mm-dd>'"),
+        tuple(9, "duplicate version 1.0.0")
+      );
+  }
+
+  @Test
+  void shouldReportInvalidEncoding(@TempDir Path temp) throws IOException {
+    Path changelog = temp.resolve("CHANGELOG.md");
+    Files.write(changelog, new byte[]{'#', ' ', 'A', '\n', '#', ' ', (byte) 0xc3, '\n'});
+
+    assertThat(new ChangelogValidator().validate(changelog, temp.resolve("changelog")))
+      .extracting(ChangelogValidationError::getLine, ChangelogValidationError::getMessage)
+      .containsExactly(tuple(2, "invalid utf-8 encoding"));
+  }
+
+  @Test
+  void shouldValidatePackedEntries(@TempDir Path directory) throws IOException {
+    write(directory.resolve("a.yaml"), "- type: added\n  description: Fine\n");
+    write(directory.resolve("b.yaml"), "- type: other\n  description: Unknown type\n");
+    write(directory.resolve("c.yaml"), "- type: fixed\n");
+    new FragmentPack(directory).pack();
+    write(directory.resolve("c.yaml"), "- type: fixed\n  description: Replaced by loose file\n");
+
+    assertThat(new ChangelogValidator().validate(directory.resolve("CHANGELOG.md"), directory))
+      .extracting(ChangelogValidationError::getLine, ChangelogValidationError::getMessage)
+      .containsExactly(tuple(0, "entry b.yaml: unknown type 'Other', expected one of added, changed, deprecated, removed, fixed, security"));
+  }
+
+  @Test
+  void shouldFailUpdateWithChangelogExceptionOnEmptyType(@TempDir Path directory) throws IOException {
+    Path file = write(directory.resolve("a.yaml"), "- type: ''\n  description: Empty type\n");
+
+    assertThatThrownBy(() -> ChangeEntries.parse(file))
+      .isInstanceOf(ChangelogException.class)
+      .hasMessageContaining("a.yaml");
+  }
+
+  private static Path write(Path file, String content) throws IOException {
+    Files.createDirectories(file.getParent());
+    return Files.write(file, content.getBytes(UTF_8));
+  }
+}
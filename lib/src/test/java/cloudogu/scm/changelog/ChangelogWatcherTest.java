@@ -0,0 +1,153 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2020-present Cloudogu GmbH and Contributors
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package cloudogu.scm.changelog;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Predicate;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ChangelogWatcherTest {
+
+  private static final long TIMEOUT = TimeUnit.SECONDS.toMillis(10);
+
+  @Test
+  void shouldUpdateOnlyChangedFiles(@TempDir Path directory) throws IOException {
+    Path entries = directory.resolve("entries");
+    write(entries.resolve("a.yml"), "- type: fixed\n  description: Bug a\n");
+    write(entries.resolve("b.yml"), "- type: added\n  description: Feature b\n");
+    UnreleasedPreview preview = new UnreleasedPreview(entries, directory.resolve("preview.md"));
+    preview.load();
+
+    write(entries.resolve("a.yml"), "- type: fixed\n  description: Another bug a\n");
+    assertThat(preview.update(entries.resolve("a.yml"))).isTrue();
+    Files.delete(entries.resolve("b.yml"));
+    assertThat(preview.update(entries.resolve("b.yml"))).isTrue();
+    assertThat(preview.update(entries.resolve("b.yml"))).isFalse();
+
+    assertThat(preview.getChanges()).containsOnlyKeys("Fixed");
+    assertThat(preview.getChanges().get("Fixed")).extracting(Changelog.Change::getValue).containsExactly("Another bug a");
+  }
+
+  @Test
+  void shouldKeepEntriesOfInvalidFile(@TempDir Path directory) throws IOException {
+    Path entries = directory.resolve("entries");
+    write(entries.resolve("a.yml"), "- type: fixed\n  description: Bug a\n");
+    List<ChangelogException> errors = new ArrayList<>();
+    UnreleasedPreview preview = new UnreleasedPreview(entries, directory.resolve("preview.md")).withErrorHandler(errors::add);
+    preview.load();
+
+    write(entries.resolve("a.yml"), "- type: fixed\n  description: [unclosed\n");
+
+    assertThat(preview.update(entries.resolve("a.yml"))).isFalse();
+    assertThat(errors).hasSize(1);
+    assertThat(preview.getChanges().get("Fixed")).extracting(Changelog.Change::getValue).containsExactly("Bug a");
+  }
+
+  @Test
+  void shouldReportEmptyFile(@TempDir Path directory) throws IOException {
+    Path entries = directory.resolve("entries");
+    write(entries.resolve("a.yml"), "- type: fixed\n  description: Bug a\n");
+    List<ChangelogException> errors = new ArrayList<>();
+    UnreleasedPreview preview = new UnreleasedPreview(entries, directory.resolve("preview.md")).withErrorHandler(errors::add);
+    preview.load();
+
+    write(entries.resolve("b.yml"), "");
+    write(entries.resolve("c.yml"), "# a new entry\n");
+
+    assertThat(preview.update(entries.resolve("b.yml"))).isFalse();
+    assertThat(preview.update(entries.resolve("c.yml"))).isFalse();
+    assertThat(errors).extracting(ChangelogException::getMessage).allMatch(message -> message.endsWith("contains no changes"));
+    assertThat(errors).hasSize(2);
+    assertThat(preview.getChanges().get("Fixed")).extracting(Changelog.Change::getValue).containsExactly("Bug a");
+  }
+
+  @Test
+  void shouldWatchEntryDirectory(@TempDir Path directory) throws Exception {
+    Path entries = directory.resolve("entries");
+    Path previewFile = directory.resolve("preview.md");
+    write(entries.resolve("a.yml"), "- type: fixed\n  description: Bug a\n");
+
+    ChangelogWatcher watcher = new ChangelogWatcher(new UnreleasedPreview(entries, previewFile));
+    Thread thread = new Thread(() -> {
+      try {
+        watcher.run();
+      } catch (IOException e) {
+        throw new IllegalStateException(e);
+      }
+    });
+    thread.start();
+    try {
+      awaitPreview(previewFile, preview -> preview.contains("- Bug a"));
+
+      write(entries.resolve("b.yml"), "- type: added\n  description: Feature b\n");
+      awaitPreview(previewFile, preview -> preview.startsWith("## Unreleased\n### Added\n- Feature b\n\n### Fixed\n- Bug a\n"));
+
+      write(entries.resolve("nested").resolve("c.yml"), "- type: changed\n  description: Change c\n");
+      awaitPreview(previewFile, preview -> preview.contains("- Change c"));
+
+      // a new entry file is usually created empty
+      write(entries.resolve("d.yml"), "");
+      write(entries.resolve("d.yml"), "- type: added\n  description: Feature d\n");
+      awaitPreview(previewFile, preview -> preview.contains("- Feature d"));
+
+      Files.delete(entries.resolve("a.yml"));
+      awaitPreview(previewFile, preview -> !preview.contains("- Bug a"));
+    } finally {
+      watcher.close();
+      thread.join(TIMEOUT);
+    }
+    assertThat(thread.isAlive()).isFalse();
+  }
+
+  private void awaitPreview(Path previewFile, Predicate<String> condition) throws IOException, InterruptedException {
+    long deadline = System.currentTimeMillis() + TIMEOUT;
+    String content = null;
+    while (System.currentTimeMillis() < deadline) {
+      if (Files.exists(previewFile)) {
+        content = new String(Files.readAllBytes(previewFile), StandardCharsets.UTF_8).replace("\r\n", "\n");
+        if (condition.test(content)) {
+          return;
+        }
+      }
+      Thread.sleep(10);
+    }
+    throw new AssertionError("preview was not updated, last content:\n" + content);
+  }
+
+  private void write(Path file, String content) throws IOException {
+    Files.createDirectories(file.getParent());
+    Files.write(file, content.getBytes(StandardCharsets.UTF_8));
+  }
+}
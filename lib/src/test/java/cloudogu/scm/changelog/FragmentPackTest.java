@@ -0,0 +1,199 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2020-present Cloudogu GmbH and Contributors
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package cloudogu.scm.changelog;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import static java.util.stream.Collectors.toList;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class FragmentPackTest {
+
+  @Test
+  void shouldReadPackedEntriesLikeLooseFiles(@TempDir Path directory) throws IOException {
+    write(directory.resolve("c.yaml"), "Added", "c");
+    write(directory.resolve("a.yaml"), "Added", "a");
+    write(directory.resolve("b/a.yaml"), "security", "b/a");
+    write(directory.resolve("b/b.yaml"), "Fixed", "b/b");
+    Files.write(directory.resolve("d.yaml"), "- type: changed\n".getBytes());
+    Map<String, List<String>> loose = read(directory);
+
+    int packed = new FragmentPack(directory).pack();
+
+    assertThat(packed).isEqualTo(5);
+    assertThat(directory.resolve("a.yaml")).doesNotExist();
+    assertThat(directory.resolve("b/b.yaml")).doesNotExist();
+    assertThat(directory.resolve(FragmentPack.FILE_NAME)).exists();
+    assertThat(read(directory)).isEqualTo(loose);
+  }
+
+  @Test
+  void shouldMergePackedAndLooseFiles(@TempDir Path directory) throws IOException {
+    write(directory.resolve("a.yaml"), "Added", "a");
+    write(directory.resolve("c.yaml"), "Added", "c");
+    new FragmentPack(directory).pack();
+
+    write(directory.resolve("b.yaml"), "Added", "b");
+    write(directory.resolve("c.yaml"), "Added", "modified c");
+
+    assertThat(read(directory)).containsEntry("Added", Arrays.asList("a", "b", "modified c"));
+  }
+
+  @Test
+  void shouldAppendToExistingPack(@TempDir Path directory) throws IOException {
+    FragmentPack pack = new FragmentPack(directory);
+    write(directory.resolve("a.yaml"), "Added", "a");
+    pack.pack();
+    byte[] before = Files.readAllBytes(pack.getFile());
+
+    write(directory.resolve("b.yaml"), "Fixed", "b");
+    write(directory.resolve("a.yaml"), "Added", "modified a");
+    assertThat(pack.pack()).isEqualTo(2);
+
+    byte[] after = Files.readAllBytes(pack.getFile());
+    assertThat(Arrays.copyOf(after, before.length)).isEqualTo(before);
+    assertThat(read(directory))
+      .containsEntry("Added", Arrays.asList("modified a"))
+      .containsEntry("Fixed", Arrays.asList("b"));
+  }
+
+  @Test
+  void shouldRemovePackedAndLooseFiles(@TempDir Path directory) throws IOException {
+    FragmentPack pack = new FragmentPack(directory);
+    write(directory.resolve("a.yaml"), "Added", "a");
+    write(directory.resolve("b.yaml"), "Added", "b");
+    pack.pack();
+    write(directory.resolve("c.yaml"), "Added", "c");
+
+    assertThat(pack.remove("a.yaml")).isTrue();
+    assertThat(pack.remove("c.yaml")).isTrue();
+    assertThat(pack.remove("d.yaml")).isFalse();
+
+    assertThat(read(directory)).containsOnlyKeys("Added").containsEntry("Added", Arrays.asList("b"));
+  }
+
+  @Test
+  void shouldRewritePackWithMostlyReplacedRecords(@TempDir Path directory) throws IOException {
+    FragmentPack pack = new FragmentPack(directory);
+    write(directory.resolve("a.yaml"), "Added", "a");
+    pack.pack();
+    long size = Files.size(pack.getFile());
+
+    for (int i = 0; i < 10; i++) {
+      write(directory.resolve("a.yaml"), "Added", "a");
+      pack.pack();
+    }
+
+    assertThat(Files.size(pack.getFile())).isLessThan(size * 4);
+    assertThat(read(directory)).containsEntry("Added", Arrays.asList("a"));
+  }
+
+  @Test
+  void shouldIgnoreIncompleteRecord(@TempDir Path directory) throws IOException {
+    FragmentPack pack = new FragmentPack(directory);
+    write(directory.resolve("a.yaml"), "Added", "a");
+    pack.pack();
+    // an interrupted append of b.yaml, whose loose file is still there
+    Files.write(pack.getFile(), new byte[]{1, 0, 0, 0, 6, 'b', '.'}, StandardOpenOption.APPEND);
+    write(directory.resolve("b.yaml"), "Added", "b");
+
+    assertThat(read(directory)).containsEntry("Added", Arrays.asList("a", "b"));
+
+    pack.pack();
+    assertThat(directory.resolve("b.yaml")).doesNotExist();
+    assertThat(read(directory)).containsEntry("Added", Arrays.asList("a", "b"));
+  }
+
+  @Test
+  void shouldPackEntryWithLongDescription(@TempDir Path directory) throws IOException {
+    StringBuilder description = new StringBuilder();
+    while (description.length() < 70_000) {
+      description.append("Long description äöü ");
+    }
+    Files.write(
+      directory.resolve("a.yaml"),
+      ("- type: Added\n  description: " + description.toString().trim() + "\n").getBytes(StandardCharsets.UTF_8)
+    );
+    Map<String, List<String>> loose = read(directory);
+
+    new FragmentPack(directory).pack();
+
+    assertThat(directory.resolve("a.yaml")).doesNotExist();
+    assertThat(read(directory)).isEqualTo(loose);
+  }
+
+  @Test
+  void shouldNotChangeAnythingIfAnEntryFileIsInvalid(@TempDir Path directory) throws IOException {
+    FragmentPack pack = new FragmentPack(directory);
+    write(directory.resolve("a.yaml"), "Added", "a");
+    Files.write(directory.resolve("b.yaml"), "- type: [added\n".getBytes());
+
+    assertThatThrownBy(pack::pack).isInstanceOf(ChangelogException.class);
+
+    assertThat(directory.resolve("a.yaml")).exists();
+    assertThat(pack.getFile()).doesNotExist();
+  }
+
+  @Test
+  void shouldUpdatePreviewWithPack(@TempDir Path directory) throws IOException {
+    write(directory.resolve("a.yaml"), "Added", "a");
+    write(directory.resolve("b.yaml"), "Fixed", "b");
+    UnreleasedPreview preview = new UnreleasedPreview(directory, directory.resolve("preview.md"));
+    preview.load();
+
+    FragmentPack pack = new FragmentPack(directory);
+    pack.pack();
+    preview.update(directory.resolve("a.yaml"));
+    assertThat(preview.update(pack.getFile())).isTrue();
+    preview.update(directory.resolve("b.yaml"));
+
+    assertThat(preview.getChanges()).containsOnlyKeys("Added", "Fixed");
+  }
+
+  private Map<String, List<String>> read(Path directory) {
+    Map<String, List<String>> result = new LinkedHashMap<>();
+    new ChangeEntries().from(directory).forEach(
+      (type, changes) -> result.put(type, changes.stream().map(Changelog.Change::getValue).collect(toList()))
+    );
+    return result;
+  }
+
+  private void write(Path file, String type, String description) throws IOException {
+    Files.createDirectories(file.getParent());
+    Files.write(file, ("- type: " + type + "\n  description: " + description + "\n").getBytes());
+  }
+}
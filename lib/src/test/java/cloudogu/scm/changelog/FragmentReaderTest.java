@@ -0,0 +1,95 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2020-present Cloudogu GmbH and Contributors
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package cloudogu.scm.changelog;
+
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+import static java.util.Arrays.asList;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.tuple;
+
+class FragmentReaderTest {
+
+  @Test
+  void shouldReadDocumentedFormat() {
+    List<ChangeEntries.ChangelogEntry> entries = read(
+      "# comment",
+      "- type: changed",
+      "  description: Implement new changelog process ([#1517](https://github.com/scm-manager/scm-manager/issues/1517))",
+      "",
+      "- description: 'It''s quoted' # trailing comment",
+      "  type: \"fixed\""
+    );
+
+    assertThat(entries)
+      .extracting("type", "description")
+      .containsExactly(
+        tuple("Changed", "Implement new changelog process ([#1517](https://github.com/scm-manager/scm-manager/issues/1517))"),
+        tuple("Fixed", "It's quoted")
+      );
+  }
+
+  @Test
+  void shouldReadUnicode() {
+    List<ChangeEntries.ChangelogEntry> entries = read("- type: added", "  description: Übersetzung für 中文");
+
+    assertThat(entries).extracting("description").containsExactly("Übersetzung für 中文");
+  }
+
+  @Test
+  void shouldFallBackForUnsupportedFeatures() {
+    List<String> contents = asList(
+    "- type: added\n  description: &anchor Text",
+    "- type: added\n  description: *alias",
+    "- type: added\n  description: !!str Text",
+    "- type: added\n  description: |\n    Block",
+    "- type: added\n  description: >\n    Folded",
+    "- {type: added, description: Flow}",
+    "- type: added\n  description: \"Escaped \\u00fc\"",
+    "- type: added\n  description: Multi\n    line",
+    "- type: added\n  description: 1.0",
+    "- type: added\n  description: true",
+    "- type: added\n  description: a: b",
+    "- type: added\n  type: fixed\n  description: Duplicate",
+    "- type: added\n  description: Text\n  issue: 42",
+    "- type: added",
+    "---\n- type: added\n  description: Document",
+    "\uFEFF- type: added\n  description: Byte order mark",
+    "- type: added\n  description:\tTab",
+    ""
+    );
+
+    for (String content : contents) {
+      assertThat(FragmentReader.read(content.getBytes(StandardCharsets.UTF_8))).as(content).isNull();
+    }
+  }
+
+  private List<ChangeEntries.ChangelogEntry> read(String... lines) {
+    return FragmentReader.read(String.join("\n", lines).getBytes(StandardCharsets.UTF_8));
+  }
+}
@@ -0,0 +1,131 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2020-present Cloudogu GmbH and Contributors
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package cloudogu.scm.changelog;
+
+import com.google.common.io.Resources;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.StringWriter;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.stream.Collectors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ReleaseNotesExtractorTest {
+
+  private static final String NOTES_2_11_0 = String.join("\n",
+    "### Added",
+    "- Add tooltips to short links on repository overview ([#1441](https://github.com/scm-manager/scm-manager/pull/1441))",
+    "- Show the date of the last commit for branches in the frontend ([#1439](https://github.com/scm-manager/scm-manager/pull/1439))",
+    "- Unify and add description to key view across user settings ([#1440](https://github.com/scm-manager/scm-manager/pull/1440))",
+    "- Healthcheck for docker image ([#1428](https://github.com/scm-manager/scm-manager/issues/1428) and [#1454](https://github.com/scm-manager/scm-manager/issues/1454))",
+    "- Tags can now be added and deleted through the ui ([#1456](https://github.com/scm-manager/scm-manager/pull/1456))",
+    "- The ui now displays tag signatures ([#1456](https://github.com/scm-manager/scm-manager/pull/1456))",
+    "- Repository import via URL for git ([#1460](https://github.com/scm-manager/scm-manager/pull/1460))",
+    "- Repository import via URL for hg ([#1463](https://github.com/scm-manager/scm-manager/pull/1463))",
+    "",
+    "### Changed",
+    "- Send mercurial hook callbacks over separate tcp socket instead of http ([#1416](https://github.com/scm-manager/scm-manager/pull/1416))",
+    "",
+    "### Fixed",
+    "- Language detection of files with interpreter parameters e.g.: `#!/usr/bin/make -f` ([#1450](https://github.com/scm-manager/scm-manager/issues/1450))",
+    "- Unexpected mercurial server pool stop ([#1446](https://github.com/scm-manager/scm-manager/issues/1446) and [#1457](https://github.com/scm-manager/scm-manager/issues/1457))",
+    ""
+  );
+
+  @Test
+  void shouldExtractMarkdownWithoutLinks(@TempDir Path folder) throws IOException {
+    Path changelogFile = copy(folder);
+
+    assertThat(markdown(new ReleaseNotesExtractor(changelogFile), "2.11.0")).isEqualTo(NOTES_2_11_0);
+    assertThat(markdown(new ReleaseNotesExtractor(changelogFile).withIndex(true), "2.11.0")).isEqualTo(NOTES_2_11_0);
+    assertThat(ChangelogIndex.indexFile(changelogFile)).exists();
+  }
+
+  @Test
+  void shouldExtractFirstVersionWithHeading(@TempDir Path folder) throws IOException {
+    Path changelogFile = copy(folder);
+    String expected = "## [2.11.1] - 2020-12-07\n### Fixed\n- Initialization of new git repository with master set as default branch "
+      + "([#1467](https://github.com/scm-manager/scm-manager/issues/1467) and [#1470](https://github.com/scm-manager/scm-manager/pull/1470))\n";
+
+    assertThat(markdown(new ReleaseNotesExtractor(changelogFile).withHeading(true), null)).isEqualTo(expected);
+    assertThat(markdown(new ReleaseNotesExtractor(changelogFile).withHeading(true).withIndex(true), null)).isEqualTo(expected);
+  }
+
+  @Test
+  void shouldExtractVersionBySemanticVersion(@TempDir Path folder) throws IOException {
+    Path changelogFile = copy(folder);
+
+    Changelog.Version version = new ReleaseNotesExtractor(changelogFile).extract("2.11").get();
+
+    Changelog.Version parsed = new ChangelogParser().parse(changelogFile).getVersions().get(1);
+    assertThat(version.getNumber()).isEqualTo("2.11.0");
+    assertThat(version.getDate()).isEqualTo(parsed.getDate());
+    assertThat(version.getChanges().keySet()).containsExactly("Added", "Changed", "Fixed");
+    assertThat(version.getChanges().get("Added")).extracting(Changelog.Change::getValue)
+      .containsExactlyElementsOf(parsed.getChanges().get("Added").stream().map(Changelog.Change::getValue).collect(Collectors.toList()));
+  }
+
+  @Test
+  void shouldNotFindUnknownVersion(@TempDir Path folder) throws IOException {
+    Path changelogFile = copy(folder);
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+    assertThat(new ReleaseNotesExtractor(changelogFile).extractMarkdown("3.0.0", out)).isFalse();
+    assertThat(new ReleaseNotesExtractor(changelogFile).withIndex(true).extract("3.0.0")).isEmpty();
+    assertThat(out.size()).isZero();
+  }
+
+  @Test
+  void shouldNotReadVersionsAfterTheSection(@TempDir Path folder) throws IOException {
+    Path changelogFile = folder.resolve("CHANGELOG.md");
+    try (OutputStream out = Files.newOutputStream(changelogFile)) {
+      out.write("# Changelog\n\n## 2.0.0 - 2021-01-01\n### Added\n- \"Quoted\" feature\n\n## 1.0.0 - 2020-01-01\n# ".getBytes(StandardCharsets.UTF_8));
+      out.write(new byte[]{(byte) 0xc3, '\n'});
+    }
+
+    StringWriter json = new StringWriter();
+    assertThat(new ReleaseNotesExtractor(changelogFile).extractJson("2.0.0", json)).isTrue();
+
+    assertThat(json).hasToString("{\"version\":\"2.0.0\",\"date\":\"2021-01-01\",\"changes\":{\"Added\":[\"\\\"Quoted\\\" feature\"]}}");
+  }
+
+  private static String markdown(ReleaseNotesExtractor extractor, String number) throws IOException {
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    assertThat(extractor.extractMarkdown(number, out)).isTrue();
+    return new String(out.toByteArray(), StandardCharsets.UTF_8);
+  }
+
+  private static Path copy(Path folder) throws IOException {
+    return Files.copy(Paths.get(Resources.getResource("changelog_with_links.md").getFile()), folder.resolve("CHANGELOG.md"));
+  }
+}
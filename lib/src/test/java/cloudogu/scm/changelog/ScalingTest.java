@@ -0,0 +1,197 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2020-present Cloudogu GmbH and Contributors
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package cloudogu.scm.changelog;
+
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+/**
+ * Guards the parser and the updater against quadratic behaviour and allocation blow-ups. The duration of a run depends
+ * on the machine, so the bytes which are allocated by the current thread are measured instead. Each case runs with a
+ * small and a ten times larger input. The allocation per line (or entry) has to stay below a fixed budget, and it must
+ * not grow noticeably with the size of the input.
+ */
+class ScalingTest {
+
+  private static final int SCALE = 10;
+  private static final double MAX_GROWTH = 1.3;
+
+  private static final long PARSE_BYTES_PER_LINE = 256;
+  private static final long GROUP_BYTES_PER_ENTRY = 96;
+  private static final long READ_BYTES_PER_FRAGMENT = 12 * 1024;
+  private static final long REWRITE_BYTES_PER_LINE = 640;
+  private static final long SPLICE_BYTES = 128 * 1024;
+  private static final long DIFF_BYTES_PER_VERSION = 5 * 1024;
+
+  private static com.sun.management.ThreadMXBean threads;
+
+  @BeforeAll
+  static void enableAllocationCounting() {
+    ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+    assumeTrue(bean instanceof com.sun.management.ThreadMXBean, "jvm does not count allocated bytes");
+    threads = (com.sun.management.ThreadMXBean) bean;
+    assumeTrue(threads.isThreadAllocatedMemorySupported(), "jvm does not count allocated bytes");
+    threads.setThreadAllocatedMemoryEnabled(true);
+  }
+
+  @Test
+  void shouldParseWithConstantAllocationPerLine(@TempDir Path directory) throws IOException {
+    assertScaling("parse", 1000, PARSE_BYTES_PER_LINE, versions -> {
+      Path changelog = directory.resolve("CHANGELOG-" + versions + ".md");
+      int lines = writeChangelog(changelog, versions);
+      return allocatedPer(lines, () -> new ChangelogParser().parse(changelog));
+    });
+  }
+
+  @Test
+  void shouldGroupEntriesWithConstantAllocationPerEntry() throws IOException {
+    assertScaling("group", 10000, GROUP_BYTES_PER_ENTRY, count -> {
+      List<ChangeEntries.ChangelogEntry> entries = entries(count);
+      return allocatedPer(count, () -> ChangeEntries.group(entries));
+    });
+  }
+
+  @Test
+  void shouldReadFragmentsWithConstantAllocationPerFragment(@TempDir Path directory) throws IOException {
+    assertScaling("fragments", 100, READ_BYTES_PER_FRAGMENT, count -> {
+      Path entries = writeFragments(directory.resolve("entries-" + count), count);
+      // a single thread, because only the allocations of the current thread are counted
+      return allocatedPer(count, () -> new ChangeEntries(1).from(entries));
+    });
+  }
+
+  @Test
+  void shouldRewriteWithConstantAllocationPerLine(@TempDir Path directory) throws IOException {
+    Path entries = writeFragments(directory.resolve("entries"), 3);
+    assertScaling("rewrite", 1000, REWRITE_BYTES_PER_LINE, versions -> {
+      Path changelog = directory.resolve("CHANGELOG-" + versions + ".md");
+      int lines = writeChangelog(changelog, versions);
+      return allocatedPer(lines, () -> new ChangelogUpdater(changelog, entries, Instant.now()).update());
+    });
+  }
+
+  @Test
+  void shouldSpliceIndependentOfTheSizeOfTheHistory(@TempDir Path directory) throws IOException {
+    Path entries = writeFragments(directory.resolve("entries"), 3);
+    assertScaling("splice", 1000, SPLICE_BYTES, versions -> {
+      Path changelog = directory.resolve("CHANGELOG-" + versions + ".md");
+      writeChangelog(changelog, versions);
+      return allocatedPer(1, () -> new ChangelogUpdater(changelog, entries, Instant.now()).withSplice(true).update());
+    });
+  }
+
+  @Test
+  void shouldDiffWithConstantAllocationPerVersion(@TempDir Path directory) throws IOException {
+    assertScaling("diff", 1000, DIFF_BYTES_PER_VERSION, versions -> {
+      Path changelog = directory.resolve("CHANGELOG-" + versions + ".md");
+      writeChangelog(changelog, versions);
+      Changelog from = new ChangelogParser().parse(changelog);
+      Changelog to = new ChangelogParser().parse(changelog);
+      return allocatedPer(versions, () -> ChangelogDiff.between(from, to));
+    });
+  }
+
+  private void assertScaling(String name, int size, long budget, Measurement measurement) throws IOException {
+    long small = measurement.bytesPerUnit(size);
+    long large = measurement.bytesPerUnit(size * SCALE);
+    assertThat(large)
+      .describedAs("%s allocates %d bytes per unit, which exceeds the budget of %d bytes", name, large, budget)
+      .isLessThanOrEqualTo(budget);
+    assertThat((double) large)
+      .describedAs("%s allocates %d bytes per unit for %d and %d bytes for %d", name, small, size, large, size * SCALE)
+      .isLessThanOrEqualTo(small * MAX_GROWTH);
+  }
+
+  /**
+   * Runs the action twice and measures the second run only, so that class loading and other one time initializations
+   * are not counted.
+   */
+  private long allocatedPer(int units, Action action) throws IOException {
+    action.run();
+    long threadId = Thread.currentThread().getId();
+    long before = threads.getThreadAllocatedBytes(threadId);
+    action.run();
+    return (threads.getThreadAllocatedBytes(threadId) - before) / units;
+  }
+
+  private static int writeChangelog(Path file, int versions) throws IOException {
+    StringBuilder content = new StringBuilder("# Changelog\nAll notable changes to this project will be documented in this file.\n\n");
+    LocalDate date = LocalDate.of(2020, 1, 1);
+    for (int i = versions; i > 0; i--) {
+      content.append("## [1.").append(i).append(".0] - ").append(date.plusDays(i)).append("\n")
+        .append("### Added\n")
+        .append("- Feature ").append(i).append(" ([#").append(i).append("](https://github.com/scm-manager/scm-manager/pull/").append(i).append("))\n")
+        .append("\n### Fixed\n")
+        .append("- Bug ").append(i).append("\n")
+        .append("- Another bug ").append(i).append("\n\n");
+    }
+    for (int i = versions; i > 0; i--) {
+      content.append("[1.").append(i).append(".0]: https://example.com/1.").append(i).append(".0\n");
+    }
+    Files.write(file, content.toString().getBytes(StandardCharsets.UTF_8));
+    return 3 + versions * 9;
+  }
+
+  private static Path writeFragments(Path directory, int count) throws IOException {
+    Files.createDirectories(directory);
+    for (int i = 0; i < count; i++) {
+      String content = "- type: " + (i % 2 == 0 ? "added" : "fixed") + "\n  description: Change number " + i + "\n";
+      Files.write(directory.resolve(String.format("%05d.yaml", i)), content.getBytes(StandardCharsets.UTF_8));
+    }
+    return directory;
+  }
+
+  private static List<ChangeEntries.ChangelogEntry> entries(int count) {
+    String[] types = {"added", "fixed", "changed", "removed", "deprecated", "security"};
+    List<ChangeEntries.ChangelogEntry> entries = new ArrayList<>(count);
+    for (int i = 0; i < count; i++) {
+      entries.add(new ChangeEntries.ChangelogEntry(types[i % types.length], "Change " + i));
+    }
+    return entries;
+  }
+
+  private interface Measurement {
+    long bytesPerUnit(int size) throws IOException;
+  }
+
+  private interface Action {
+    void run() throws IOException;
+  }
+}